@@ -0,0 +1,93 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.api;
+
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * Non-blocking variant of {@link OpenShiftHandle}.
+ * <p/>
+ * Each operation is submitted to an executor owned by the container adapter,
+ * so independent cluster operations (e.g. scaling several DCs) can overlap.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public interface AsyncOpenShiftHandle {
+    /**
+     * @see OpenShiftHandle#waitForReadyPods(String, int)
+     */
+    Future<Void> waitForReadyPods(String prefix, int replicas);
+
+    /**
+     * @see OpenShiftHandle#replacePods(String, int, int)
+     */
+    Future<Void> replacePods(String prefix, int size, int replicas);
+
+    /**
+     * @see OpenShiftHandle#scaleDeployment(String, int)
+     */
+    Future<Void> scaleDeployment(String prefix, int replicas);
+
+    /**
+     * @see OpenShiftHandle#triggerDeploymentConfigUpdate(String, boolean)
+     */
+    Future<Void> triggerDeploymentConfigUpdate(String prefix, boolean wait);
+
+    /**
+     * @see OpenShiftHandle#getLog(String)
+     */
+    Future<String> getLog(String podName);
+
+    /**
+     * @see OpenShiftHandle#getLog(String, Map)
+     */
+    Future<String> getLog(String prefix, Map<String, String> labels);
+
+    /**
+     * @see OpenShiftHandle#exec(Map, int, String...)
+     */
+    Future<String> exec(Map<String, String> labels, int waitSeconds, String... input);
+
+    /**
+     * All ready.
+     * <p/>
+     * Completes once every future has completed, or fails with the first failure,
+     * in which case the remaining futures are cancelled.
+     *
+     * @param futures futures returned by this handle
+     * @return combined future
+     */
+    Future<Void> allOf(Future<?>... futures);
+
+    /**
+     * Any failed.
+     * <p/>
+     * Completes with the first failure cause, or with null once all futures succeeded.
+     *
+     * @param futures futures returned by this handle
+     * @return first failure or null
+     */
+    Future<Throwable> anyFailed(Future<?>... futures);
+}
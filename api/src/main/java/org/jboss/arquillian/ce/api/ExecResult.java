@@ -0,0 +1,74 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.api;
+
+import java.io.Serializable;
+
+/**
+ * Result of a command run in a pod.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class ExecResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String podName;
+    private final Integer exitCode;
+    private final String stdout;
+    private final String stderr;
+
+    public ExecResult(String podName, Integer exitCode, String stdout, String stderr) {
+        this.podName = podName;
+        this.exitCode = exitCode;
+        this.stdout = stdout;
+        this.stderr = stderr;
+    }
+
+    public String getPodName() {
+        return podName;
+    }
+
+    /**
+     * @return the exit code, or null if the command did not finish in time
+     */
+    public Integer getExitCode() {
+        return exitCode;
+    }
+
+    public boolean isSuccess() {
+        return exitCode != null && exitCode == 0;
+    }
+
+    public String getStdout() {
+        return stdout;
+    }
+
+    public String getStderr() {
+        return stderr;
+    }
+
+    public String toString() {
+        return String.format("ExecResult[pod=%s, exitCode=%s]", podName, exitCode);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.api;
+
+import java.io.Serializable;
+
+/**
+ * Pod log options, mirrors the Kubernetes PodLogOptions query parameters.
+ * <p/>
+ * Negative values (the default) mean "not set".
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class LogOptions implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String container;
+    private boolean follow;
+    private long tailLines = -1;
+    private long sinceSeconds = -1;
+    private long limitBytes = -1;
+
+    public String getContainer() {
+        return container;
+    }
+
+    /**
+     * @param container the container, only needed for multi container pods
+     * @return this
+     */
+    public LogOptions container(String container) {
+        this.container = container;
+        return this;
+    }
+
+    public boolean isFollow() {
+        return follow;
+    }
+
+    /**
+     * @param follow keep the stream open and follow new output
+     * @return this
+     */
+    public LogOptions follow(boolean follow) {
+        this.follow = follow;
+        return this;
+    }
+
+    public long getTailLines() {
+        return tailLines;
+    }
+
+    /**
+     * @param tailLines only the last lines
+     * @return this
+     */
+    public LogOptions tailLines(long tailLines) {
+        this.tailLines = tailLines;
+        return this;
+    }
+
+    public long getSinceSeconds() {
+        return sinceSeconds;
+    }
+
+    /**
+     * @param sinceSeconds only output newer than this many seconds
+     * @return this
+     */
+    public LogOptions sinceSeconds(long sinceSeconds) {
+        this.sinceSeconds = sinceSeconds;
+        return this;
+    }
+
+    public long getLimitBytes() {
+        return limitBytes;
+    }
+
+    /**
+     * @param limitBytes stop after this many bytes
+     * @return this
+     */
+    public LogOptions limitBytes(long limitBytes) {
+        this.limitBytes = limitBytes;
+        return this;
+    }
+
+    public String toString() {
+        return String.format("LogOptions[container=%s, follow=%s, tailLines=%s, sinceSeconds=%s, limitBytes=%s]", container, follow, tailLines, sinceSeconds, limitBytes);
+    }
+}
@@ -24,6 +24,7 @@
 package org.jboss.arquillian.ce.api;
 
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -40,8 +41,65 @@ public interface OpenShiftHandle {
 
     InputStream execute(Map<String, String> labels, int pod, int port, String path) throws Exception;
 
+    /**
+     * Run command in the first pod matching labels, with a TTY and System.in as stdin.
+     *
+     * @param labels      the pod labels
+     * @param waitSeconds how long to wait for the command to exit
+     * @param input       the command and its arguments
+     * @return stdout, as much as was received if the command did not exit in time
+     * @throws Exception for any error
+     */
     String exec(Map<String, String> labels, int waitSeconds, String... input) throws Exception;
 
+    /**
+     * Run command in the first pod matching labels.
+     *
+     * @param labels      the pod labels
+     * @param waitSeconds how long to wait for the command to exit
+     * @param stdin       stdin source, forwarded as data becomes available; null for none
+     * @param tty         allocate a TTY, stderr is then merged into stdout
+     * @param input       the command and its arguments
+     * @return stdout, as much as was received if the command did not exit in time
+     * @throws Exception for any error
+     */
+    String exec(Map<String, String> labels, int waitSeconds, InputStream stdin, boolean tty, String... input) throws Exception;
+
+    /**
+     * Run command in pod, streaming its output.
+     *
+     * @param podName     the pod name
+     * @param out         stdout sink
+     * @param err         stderr sink
+     * @param waitSeconds how long to wait for the command to exit
+     * @param command     the command and its arguments
+     * @return the exit code
+     * @throws Exception if the command did not exit in time or for any other error
+     */
+    int execInPod(String podName, OutputStream out, OutputStream err, int waitSeconds, String... command) throws Exception;
+
+    /**
+     * Run command in pod, output is kept in bounded buffers.
+     *
+     * @param podName     the pod name
+     * @param waitSeconds how long to wait for the command to exit
+     * @param command     the command and its arguments
+     * @return the result, with null exit code if the command did not exit in time
+     * @throws Exception for any error
+     */
+    ExecResult execInPod(String podName, int waitSeconds, String... command) throws Exception;
+
+    /**
+     * Run the same command in all pods matching labels, concurrently.
+     *
+     * @param labels      the pod labels
+     * @param waitSeconds how long to wait for the command to exit
+     * @param command     the command and its arguments
+     * @return results, one per pod
+     * @throws Exception for any error
+     */
+    List<ExecResult> execInPods(Map<String, String> labels, int waitSeconds, String... command) throws Exception;
+
     /**
      * Wait for ready pods.
      *
@@ -88,6 +146,30 @@ public interface OpenShiftHandle {
      */
     InputStream streamLog(String podName) throws Exception;
 
+    /**
+     * Stream pod log with options, nothing is buffered in memory.
+     *
+     * @param podName the pod name
+     * @param options the log options
+     * @return log as a stream, the caller must close it
+     * @throws Exception for any error
+     */
+    InputStream streamLog(String podName, LogOptions options) throws Exception;
+
+    /**
+     * Follow pod log until a line matches the regexp.
+     *
+     * Only the current line is kept in memory.
+     *
+     * @param podName        the pod name
+     * @param regexp         the pattern to find in a line
+     * @param timeoutSeconds how long to wait, must be positive
+     * @return the first matching line
+     * @throws IllegalArgumentException if the timeout is not positive
+     * @throws Exception if no line matched in time, the log ended or on any other error
+     */
+    String waitForLogLine(String podName, String regexp, long timeoutSeconds) throws Exception;
+
     /**
      * Get the logs for a given pod.
      *
@@ -0,0 +1,50 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Run the in-container test methods of a class concurrently across the deployment's ready replicas.
+ * <p/>
+ * When the first method is invoked, all scheduled independent methods of the class are dispatched,
+ * their results are then handed back as each method is reached in the normal order.
+ * Methods with @InSequence, @RunAsClient or @Ignore, TestNG methods with dependencies, a priority or a single threaded class,
+ * and classes with @FixMethodOrder are not dispatched ahead, they run as usual.
+ * Only methods left by @Ignore, TestNG's enabled flag and Surefire's test property count as scheduled,
+ * a method picked by any other runner filter (e.g. an IDE's single method run) may still be dispatched ahead.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ParallelMethods {
+    /**
+     * @return max concurrent invocations per pod
+     */
+    int perPod() default 2;
+}
@@ -25,12 +25,12 @@ package org.jboss.arquillian.ce.fabric8;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.net.URL;
+import java.net.HttpURLConnection;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -38,17 +38,20 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 import io.fabric8.kubernetes.api.KubernetesHelper;
 import io.fabric8.kubernetes.api.model.*;
-import io.fabric8.kubernetes.client.dsl.ClientNonNamespaceOperation;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
 import io.fabric8.kubernetes.client.dsl.ClientPodResource;
 import io.fabric8.kubernetes.client.dsl.ClientResource;
 import io.fabric8.kubernetes.client.dsl.Deletable;
-import io.fabric8.kubernetes.client.dsl.ExecListener;
+import io.fabric8.kubernetes.client.utils.HttpClientUtils;
 import io.fabric8.openshift.api.model.Build;
 import io.fabric8.openshift.api.model.BuildList;
 import io.fabric8.openshift.api.model.DeploymentConfig;
@@ -70,11 +73,15 @@ import io.fabric8.openshift.client.OpenShiftConfigBuilder;
 import io.fabric8.openshift.client.ParameterValue;
 import io.fabric8.openshift.client.dsl.ClientDeployableScalableResource;
 import io.fabric8.openshift.client.dsl.ClientTemplateResource;
-import okhttp3.Response;
+import io.fabric8.openshift.client.internal.OpenShiftOAuthInterceptor;
+import okhttp3.Authenticator;
+import okhttp3.OkHttpClient;
 
 import org.apache.commons.io.IOUtils;
 import org.jboss.arquillian.ce.adapter.AbstractOpenShiftAdapter;
 import org.jboss.arquillian.ce.api.MountSecret;
+import org.jboss.arquillian.ce.cache.Informer;
+import org.jboss.arquillian.ce.cache.WatchListener;
 import org.jboss.arquillian.ce.api.model.OpenShiftResource;
 import org.jboss.arquillian.ce.fabric8.model.F8DeploymentConfig;
 import org.jboss.arquillian.ce.portfwd.PortForwardContext;
@@ -84,6 +91,7 @@ import org.jboss.arquillian.ce.utils.Checker;
 import org.jboss.arquillian.ce.utils.Configuration;
 import org.jboss.arquillian.ce.utils.Containers;
 import org.jboss.arquillian.ce.utils.HookType;
+import org.jboss.arquillian.ce.utils.OkHttpClientUtils;
 import org.jboss.arquillian.ce.utils.Operator;
 import org.jboss.arquillian.ce.utils.ParamValue;
 import org.jboss.arquillian.ce.utils.Port;
@@ -103,6 +111,7 @@ public class F8OpenShiftAdapter extends AbstractOpenShiftAdapter {
 
     private final NamespacedOpenShiftClient client;
     private Map<String, KubernetesList> templates = new ConcurrentHashMap<>();
+    private Informer<DeploymentConfig> dcs;
 
     static OpenShiftConfig toOpenShiftConfig(Configuration configuration) {
         OpenShiftConfigBuilder builder = new OpenShiftConfigBuilder()
@@ -119,8 +128,26 @@ public class F8OpenShiftAdapter extends AbstractOpenShiftAdapter {
     }
 
     static NamespacedOpenShiftClient create(Configuration configuration) {
-        OpenShiftConfig config = toOpenShiftConfig(configuration);
-        return new DefaultOpenShiftClient(config);
+        final OpenShiftConfig config = toOpenShiftConfig(configuration);
+        OkHttpClient.Builder builder = HttpClientUtils.createHttpClient(config).newBuilder();
+        // DefaultOpenShiftClient replaces the application interceptors with its OAuth one
+        OkHttpClientUtils.applyNetworkMetrics(builder);
+        return new DefaultOpenShiftClient(builder.build(), config) {
+            {
+                // this constructor only gives the Kubernetes delegate an OAuth interceptor, basic auth needs it for oapi too
+                httpClient = withOAuthInterceptor(httpClient, config);
+            }
+        };
+    }
+
+    /**
+     * Same as DefaultOpenShiftClient(config) does: exchange basic auth credentials for a token.
+     */
+    private static OkHttpClient withOAuthInterceptor(OkHttpClient httpClient, OpenShiftConfig config) {
+        OkHttpClient client = httpClient.newBuilder().authenticator(Authenticator.NONE).build();
+        OkHttpClient.Builder builder = client.newBuilder();
+        builder.interceptors().clear();
+        return builder.addInterceptor(new OpenShiftOAuthInterceptor(client, config)).build();
     }
 
     public F8OpenShiftAdapter(Configuration configuration) {
@@ -133,43 +160,6 @@ public class F8OpenShiftAdapter extends AbstractOpenShiftAdapter {
         this.client = client;
     }
 
-    public String exec(Map<String, String> labels, int waitSeconds, String... input) throws Exception {
-        List<Pod> pods = client.inAnyNamespace().pods().withLabels(labels).list().getItems();
-        if (pods.isEmpty()) {
-            throw new IllegalStateException("No such pod: " + labels);
-        }
-        Pod targetPod = pods.get(0);
-
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        client.inNamespace(targetPod.getMetadata().getNamespace()).pods().withName(targetPod.getMetadata().getName())
-            .readingInput(System.in)
-            .writingOutput(output)
-            .writingError(System.err)
-            .withTTY()
-            .usingListener(new SimpleListener())
-            .exec(input);
-
-        Thread.sleep(waitSeconds * 1000);
-
-        output.flush();
-        return output.toString();
-    }
-
-    private static class SimpleListener implements ExecListener {
-        public void onOpen(Response response) {
-            System.out.println("Exec open");
-        }
-
-        public void onFailure(IOException e, Response response) {
-            System.err.println("Exec failure");
-            e.printStackTrace();
-        }
-
-        public void onClose(int code, String reason) {
-            System.out.println("Exec close");
-        }
-    }
-
     protected Proxy createProxy() {
         return new F8Proxy(configuration, client);
     }
@@ -197,22 +187,29 @@ public class F8OpenShiftAdapter extends AbstractOpenShiftAdapter {
         return new RegistryLookupEntry(ip, String.valueOf(port));
     }
 
-    private Object createProject() {
-        // oc new-project <namespace>
-        return client.projectrequests().createNew().withNewMetadata().withName(configuration.getNamespace()).endMetadata().done();
-    }
-
-    public boolean checkProject() {
-        for (Project project : client.projects().list().getItems()) {
-            if (configuration.getNamespace().equals(KubernetesHelper.getName(project))) {
+    public boolean createProject(String namespace) {
+        Project existing = null;
+        try {
+            existing = client.projects().withName(namespace).get();
+        } catch (KubernetesClientException ignored) {
+            // 403 for a project we cannot see yet
+        }
+        if (existing != null) {
+            return false;
+        }
+        try {
+            // oc new-project <namespace>
+            return client.projectrequests().createNew().withNewMetadata().withName(namespace).endMetadata().done() != null;
+        } catch (KubernetesClientException e) {
+            if (e.getCode() == HttpURLConnection.HTTP_CONFLICT) {
                 return false;
             }
+            throw e;
         }
-        return createProject() != null;
     }
 
-    public boolean deleteProject() {
-        return client.projects().withName(configuration.getNamespace()).delete();
+    public boolean deleteProject(String namespace) {
+        return client.projects().withName(namespace).delete();
     }
 
     public void deletePod(String podName, long gracePeriodSeconds) {
@@ -225,11 +222,13 @@ public class F8OpenShiftAdapter extends AbstractOpenShiftAdapter {
     }
 
     public void triggerDeploymentConfigUpdate(String prefix, boolean wait) throws Exception {
-        DeploymentConfigList list = client.deploymentConfigs().inNamespace(configuration.getNamespace()).list();
-        String actualName = getActualName(prefix, list.getItems(), "No such deployment config: " + prefix);
+        String actualName = findDC(prefix, "No such deployment config: " + prefix).getMetadata().getName();
         final ClientResource<DeploymentConfig, DoneableDeploymentConfig> ccr = client.deploymentConfigs().inNamespace(configuration.getNamespace()).withName(actualName);
-        List<Container> containers = ccr.get().getSpec().getTemplate().getSpec().getContainers();
-        if (containers.size() > 0) {
+        DeploymentConfig current = ccr.get();
+        final long previousVersion = latestVersion(current.getStatus());
+        List<Container> containers = current.getSpec().getTemplate().getSpec().getContainers();
+        final boolean updated = containers.size() > 0;
+        if (updated) {
             // there should be one to do upgrade
             Container container = containers.get(0);
             List<EnvVar> oldEnv = container.getEnv();
@@ -240,9 +239,12 @@ public class F8OpenShiftAdapter extends AbstractOpenShiftAdapter {
         }
         if (wait) {
             final int replicas = ccr.get().getSpec().getReplicas();
-            Containers.delay(configuration.getStartupTimeout(), 3000L, new Checker() {
+            Containers.delay("deployment config update", configuration.getStartupTimeout(), 3000L, new Checker() {
                 public boolean check() {
                     DeploymentConfigStatus status = ccr.get().getStatus();
+                    if (updated && latestVersion(status) <= previousVersion) {
+                        return false; // the old rollout's status is complete, until the new one starts
+                    }
                     Map<String, Object> additionalProperties = status.getAdditionalProperties();
                     Number updatedReplicas = (Number) additionalProperties.get("updatedReplicas");
                     if (updatedReplicas != null && replicas == updatedReplicas.intValue()) {
@@ -256,6 +258,11 @@ public class F8OpenShiftAdapter extends AbstractOpenShiftAdapter {
         }
     }
 
+    private static long latestVersion(DeploymentConfigStatus status) {
+        Number version = (status != null) ? status.getLatestVersion() : null;
+        return (version != null) ? version.longValue() : 0;
+    }
+
     public String deployPod(String name, String env, RCContext context) throws Exception {
         List<Container> containers = getContainers(name, context);
 
@@ -409,7 +416,7 @@ public class F8OpenShiftAdapter extends AbstractOpenShiftAdapter {
     }
 
     private KubernetesList processTemplate(String templateURL, List<ParameterValue> values, Map<String, String> labels) throws IOException {
-        try (InputStream stream = new URL(templateURL).openStream()) {
+        try (InputStream stream = openStream(templateURL)) {
             ClientTemplateResource<Template, KubernetesList, DoneableTemplate> templateHandle = client.templates().inNamespace(configuration.getNamespace()).load(stream);
             Template template = templateHandle.get();
             if (template.getLabels() == null) {
@@ -524,10 +531,67 @@ public class F8OpenShiftAdapter extends AbstractOpenShiftAdapter {
         return client.services().inNamespace(namespace).withName(serviceName).get();
     }
 
-    private ClientDeployableScalableResource<DeploymentConfig, DoneableDeploymentConfig> getDC(String prefix) throws Exception {
+    private synchronized Informer<DeploymentConfig> getDCs() {
+        if (dcs == null) {
+            dcs = createInformer("deploymentconfigs", new Informer.Source<DeploymentConfig>() {
+                public String getName(DeploymentConfig dc) {
+                    return dc.getMetadata().getName();
+                }
+
+                public Map<String, String> getLabels(DeploymentConfig dc) {
+                    return dc.getMetadata().getLabels();
+                }
+
+                public List<DeploymentConfig> list() {
+                    return client.deploymentConfigs().inNamespace(configuration.getNamespace()).list().getItems();
+                }
+
+                public Closeable watch(final WatchListener<DeploymentConfig> listener) {
+                    final Watch watch = client.deploymentConfigs().inNamespace(configuration.getNamespace()).watch(new Watcher<DeploymentConfig>() {
+                        public void eventReceived(Action action, DeploymentConfig dc) {
+                            if (action != Action.ERROR) {
+                                listener.onEvent(dc, action == Action.DELETED);
+                            }
+                        }
+
+                        public void onClose(KubernetesClientException cause) {
+                            listener.onClose(cause);
+                        }
+                    });
+                    return new Closeable() {
+                        public void close() {
+                            watch.close();
+                        }
+                    };
+                }
+            });
+        }
+        return dcs;
+    }
+
+    private DeploymentConfig findDC(String prefix, String msg) throws Exception {
+        if (configuration.isResourceCache()) {
+            DeploymentConfig dc = getDCs().findFirst(prefix);
+            if (dc != null) {
+                return dc;
+            }
+            // the watch may not have delivered a DC we just created, read it from the server
+        }
         DeploymentConfigList list = client.deploymentConfigs().inNamespace(configuration.getNamespace()).list();
-        String actualName = getActualName(prefix, list.getItems(), "No DC found starting with " + prefix);
-        return client.deploymentConfigs().inNamespace(configuration.getNamespace()).withName(actualName);
+        return getActual(prefix, list.getItems(), msg);
+    }
+
+    private ClientDeployableScalableResource<DeploymentConfig, DoneableDeploymentConfig> getDC(String prefix) throws Exception {
+        String actualName = findDC(prefix, "No DC found starting with " + prefix).getMetadata().getName();
+        ClientDeployableScalableResource<DeploymentConfig, DoneableDeploymentConfig> dc = client.deploymentConfigs().inNamespace(configuration.getNamespace()).withName(actualName);
+        // the cached DC might already be deleted
+        if (dc.get() == null) {
+            if (configuration.isResourceCache()) {
+                getDCs().evict(actualName);
+            }
+            throw new IllegalStateException(String.format("Deployment config %s (prefix %s) no longer exists.", actualName, prefix));
+        }
+        return dc;
     }
 
     private void delayDeployment(DeploymentConfig dc, String prefix, int replicas, Operator op) throws Exception {
@@ -540,7 +604,7 @@ public class F8OpenShiftAdapter extends AbstractOpenShiftAdapter {
     }
 
     protected Map<String, String> getLabels(String prefix) throws Exception {
-        return getDC(prefix).get().getSpec().getSelector();
+        return findDC(prefix, "No DC found starting with " + prefix).getSpec().getSelector();
     }
 
     public void scaleDeployment(final String prefix, final int replicas) throws Exception {
@@ -548,20 +612,6 @@ public class F8OpenShiftAdapter extends AbstractOpenShiftAdapter {
         delayDeployment(dc, prefix, replicas, Operator.EQUAL);
     }
 
-    public List<String> getPods(String prefix) throws Exception {
-        PodList pods;
-        if (prefix == null) {
-            pods = client.pods().inNamespace(configuration.getNamespace()).list();
-        } else {
-            pods = client.pods().inNamespace(configuration.getNamespace()).withLabels(getLabels(prefix)).list();
-        }
-        List<String> podNames = new ArrayList<>();
-        for (Pod pod : pods.getItems()) {
-            podNames.add(pod.getMetadata().getName());
-        }
-        return podNames;
-    }
-
     public String getLog(String podName) throws Exception {
         log.info("Retrieving logs from pod " + podName);
         return client.pods().inNamespace(configuration.getNamespace()).withName(podName).getLog();
@@ -571,34 +621,11 @@ public class F8OpenShiftAdapter extends AbstractOpenShiftAdapter {
         return client.pods().inNamespace(configuration.getNamespace()).withName(podName).watchLog().getOutput();
     }
 
-    public String getLog(String prefix, Map<String, String> labels) throws Exception {
-        List<Pod> pods;
-        ClientNonNamespaceOperation<Pod, PodList, DoneablePod, ClientPodResource<Pod, DoneablePod>> allPods = client.pods().inNamespace(configuration.getNamespace());
-
-        if (labels == null) {
-            pods = allPods.list().getItems();
-        } else {
-            pods = allPods.withLabels(labels).list().getItems();
-        }
-
-        String actualName;
-
-        if (prefix != null) {
-            actualName = getActualName(prefix, pods, String.format("No pod found starting with '%s' and labels %s.", prefix, labels));
-        } else {
-            if (pods.isEmpty()) {
-                throw new Exception("No pod found with labels " + labels);
-            }
-            actualName = pods.get(0).getMetadata().getName();
-        }
-        return getLog(actualName);
-    }
-
-    private String getActualName(String prefix, Iterable<? extends HasMetadata> objects, String msg) throws Exception {
-        for (HasMetadata hmd : objects) {
+    private <T extends HasMetadata> T getActual(String prefix, Iterable<T> objects, String msg) throws Exception {
+        for (T hmd : objects) {
             String name = hmd.getMetadata().getName();
             if (name.startsWith(prefix)) {
-                return name;
+                return hmd;
             }
         }
         throw new Exception(msg);
@@ -688,6 +715,10 @@ public class F8OpenShiftAdapter extends AbstractOpenShiftAdapter {
     }
 
     public void cleanPods(Map<String, String> labels) throws Exception {
+        if (bulkDelete(labels, "pods").isEmpty()) {
+            return;
+        }
+
         final PodList pods = client.pods().inNamespace(configuration.getNamespace()).withLabels(labels).list();
         try {
             for (Pod pod : pods.getItems()) {
@@ -702,8 +733,15 @@ public class F8OpenShiftAdapter extends AbstractOpenShiftAdapter {
 
     @Override
     public void cleanRemnants(Map<String, String> labels) throws Exception {
-        cleanBuilds(labels);
-        cleanDeployments(labels);
+        Set<String> remaining = bulkDelete(labels, "builds", "replicationcontrollers");
+        if (remaining.contains("builds")) {
+            cleanBuilds(labels);
+        }
+        if (remaining.contains("replicationcontrollers")) {
+            cleanDeployments(labels);
+        }
+        // older servers ignore the propagation policy, and the RCs' pods would be orphaned
+        cleanPods(labels);
     }
 
     private void cleanBuilds(Map<String, String> labels) throws Exception {
@@ -734,6 +772,7 @@ public class F8OpenShiftAdapter extends AbstractOpenShiftAdapter {
     }
 
     public void close() throws IOException {
+        super.close();
         templates.clear();
         if (client != null) {
             client.close();
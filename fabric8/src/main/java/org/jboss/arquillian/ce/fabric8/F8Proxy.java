@@ -23,18 +23,27 @@
 
 package org.jboss.arquillian.ce.fabric8;
 
+import java.io.Closeable;
 import java.util.List;
 import java.util.Map;
 
 import javax.net.ssl.SSLContext;
 
+import io.fabric8.kubernetes.api.model.DoneablePod;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.api.model.PodCondition;
+import io.fabric8.kubernetes.api.model.PodList;
 import io.fabric8.kubernetes.api.model.PodStatus;
 import io.fabric8.kubernetes.client.Adapters;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.dsl.ClientNonNamespaceOperation;
+import io.fabric8.kubernetes.client.dsl.ClientPodResource;
 import io.fabric8.kubernetes.client.internal.SSLUtils;
 import io.fabric8.openshift.client.OpenShiftClient;
 import okhttp3.OkHttpClient;
+import org.jboss.arquillian.ce.cache.WatchListener;
 import org.jboss.arquillian.ce.proxy.AbstractProxy;
 import org.jboss.arquillian.ce.utils.Configuration;
 import org.jboss.arquillian.ce.utils.OkHttpClientUtils;
@@ -44,7 +53,7 @@ import org.jboss.arquillian.ce.utils.OkHttpClientUtils;
  */
 public class F8Proxy extends AbstractProxy<Pod> {
     private final OpenShiftClient client;
-    private OkHttpClient httpClient;
+    private volatile OkHttpClient httpClient;
 
     public F8Proxy(Configuration configuration, OpenShiftClient client) {
         super(configuration);
@@ -59,25 +68,66 @@ public class F8Proxy extends AbstractProxy<Pod> {
         }
     }
 
-    protected synchronized OkHttpClient getHttpClient() {
-        if (httpClient == null) {
-            OkHttpClient okHttpClient = Adapters.get(OkHttpClient.class).adapt(client);
-            OkHttpClient.Builder builder = okHttpClient.newBuilder(); // clone
-            OkHttpClientUtils.applyConnectTimeout(builder, configuration.getHttpClientTimeout());
-            OkHttpClientUtils.applyCookieJar(builder);
-            httpClient = builder.build();
+    protected OkHttpClient getHttpClient() {
+        OkHttpClient current = httpClient;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (httpClient == null) {
+                OkHttpClient okHttpClient = Adapters.get(OkHttpClient.class).adapt(client);
+                OkHttpClient.Builder builder = okHttpClient.newBuilder(); // clone
+                OkHttpClientUtils.applyConnectTimeout(builder, configuration.getHttpClientTimeout());
+                OkHttpClientUtils.applyCookieJar(builder);
+                OkHttpClientUtils.applyMetrics(builder);
+                httpClient = builder.build();
+            }
+            return httpClient;
         }
-        return httpClient;
     }
 
-    protected List<Pod> getPods(Map<String, String> labels) {
-        return client.pods().inNamespace(configuration.getNamespace()).withLabels(labels).list().getItems();
+    protected List<Pod> listPods(Map<String, String> labels) {
+        ClientNonNamespaceOperation<Pod, PodList, DoneablePod, ClientPodResource<Pod, DoneablePod>> allPods = client.pods().inNamespace(configuration.getNamespace());
+        if (labels == null) {
+            return allPods.list().getItems();
+        } else {
+            return allPods.withLabels(labels).list().getItems();
+        }
+    }
+
+    protected Closeable watchPods(Map<String, String> labels, final WatchListener<Pod> listener) {
+        ClientNonNamespaceOperation<Pod, PodList, DoneablePod, ClientPodResource<Pod, DoneablePod>> allPods = client.pods().inNamespace(configuration.getNamespace());
+        Watcher<Pod> watcher = new Watcher<Pod>() {
+            public void eventReceived(Action action, Pod pod) {
+                if (action != Action.ERROR) {
+                    listener.onEvent(pod, action == Action.DELETED);
+                }
+            }
+
+            public void onClose(KubernetesClientException cause) {
+                listener.onClose(cause);
+            }
+        };
+        final Watch watch = (labels == null) ? allPods.watch(watcher) : allPods.withLabels(labels).watch(watcher);
+        return new Closeable() {
+            public void close() {
+                watch.close();
+            }
+        };
     }
 
     protected String getName(Pod pod) {
         return pod.getMetadata().getName();
     }
 
+    protected Map<String, String> getLabels(Pod pod) {
+        return pod.getMetadata().getLabels();
+    }
+
+    protected String getIP(Pod pod) {
+        return (pod.getStatus() != null) ? pod.getStatus().getPodIP() : null;
+    }
+
     protected boolean isReady(Pod pod) {
         PodStatus status = pod.getStatus();
         if (pod.getMetadata().getDeletionTimestamp() == null) {
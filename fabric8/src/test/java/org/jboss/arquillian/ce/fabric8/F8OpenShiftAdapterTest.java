@@ -0,0 +1,135 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.fabric8;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.fabric8.openshift.client.NamespacedOpenShiftClient;
+import okhttp3.Credentials;
+import org.jboss.arquillian.ce.metrics.ApiMetrics;
+import org.jboss.arquillian.ce.spi.WebSPIConfiguration;
+import org.jboss.arquillian.ce.utils.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class F8OpenShiftAdapterTest {
+    private static final String TOKEN = "s3cr3t";
+
+    private HttpServer server;
+    private final List<String> authorized = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/oauth/authorize", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                if (Credentials.basic("developer", "secret").equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                    exchange.getResponseHeaders().set("Location", master() + "/oauth/token/implicit#access_token=" + TOKEN + "&expires_in=86400&token_type=Bearer");
+                    exchange.sendResponseHeaders(302, -1);
+                } else {
+                    exchange.sendResponseHeaders(401, -1);
+                }
+                exchange.close();
+            }
+        });
+        server.createContext("/oauth/token/implicit", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+            }
+        });
+        server.createContext("/oapi/v1/projects/foo", new ApiHandler("{\"kind\":\"Project\",\"apiVersion\":\"v1\",\"metadata\":{\"name\":\"foo\"}}"));
+        server.createContext("/api/v1/namespaces/foo/pods", new ApiHandler("{\"kind\":\"PodList\",\"apiVersion\":\"v1\",\"items\":[]}"));
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private String master() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Test
+    public void testBasicAuthLogin() throws Exception {
+        Configuration configuration = new WebSPIConfiguration();
+        configuration.setKubernetesMaster(master());
+        configuration.setOpenshiftUsername("developer");
+        configuration.setOpenshiftPassword("secret");
+
+        ApiMetrics.getInstance().reset();
+        NamespacedOpenShiftClient client = F8OpenShiftAdapter.create(configuration);
+        try {
+            // OpenShift and Kubernetes API both exchange the credentials for a token
+            assertNotNull(client.projects().withName("foo").get());
+            assertEquals(0, client.pods().inNamespace("foo").list().getItems().size());
+        } finally {
+            client.close();
+        }
+
+        assertTrue(authorized.contains("/oapi/v1/projects/foo"));
+        assertTrue(authorized.contains("/api/v1/namespaces/foo/pods"));
+        assertTrue(ApiMetrics.getInstance().getRequestCount() > 0);
+    }
+
+    private class ApiHandler implements HttpHandler {
+        private final byte[] body;
+
+        private ApiHandler(String body) {
+            this.body = body.getBytes(StandardCharsets.UTF_8);
+        }
+
+        public void handle(HttpExchange exchange) throws IOException {
+            if (("Bearer " + TOKEN).equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                authorized.add(exchange.getRequestURI().getPath());
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } else {
+                exchange.sendResponseHeaders(401, -1);
+            }
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.fabric8;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import io.fabric8.openshift.client.NamespacedOpenShiftClient;
+import okhttp3.OkHttpClient;
+import org.jboss.arquillian.ce.spi.WebSPIConfiguration;
+import org.jboss.arquillian.ce.utils.Configuration;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class F8ProxyTest {
+    private static final int THREADS = 16;
+
+    @Test
+    public void testHttpClientBuiltOnce() throws Exception {
+        Configuration configuration = new WebSPIConfiguration();
+        configuration.setKubernetesMaster("http://127.0.0.1:1");
+        NamespacedOpenShiftClient client = F8OpenShiftAdapter.create(configuration);
+        try {
+            for (int round = 0; round < 20; round++) {
+                final F8Proxy proxy = new F8Proxy(configuration, client);
+                final CountDownLatch start = new CountDownLatch(1);
+                ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+                try {
+                    List<Future<OkHttpClient>> futures = new ArrayList<>();
+                    for (int i = 0; i < THREADS; i++) {
+                        futures.add(executor.submit(new Callable<OkHttpClient>() {
+                            public OkHttpClient call() throws Exception {
+                                start.await();
+                                return proxy.getHttpClient();
+                            }
+                        }));
+                    }
+                    start.countDown();
+                    OkHttpClient first = futures.get(0).get();
+                    assertNotNull(first);
+                    for (Future<OkHttpClient> future : futures) {
+                        assertSame(first, future.get());
+                    }
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+        } finally {
+            client.close();
+        }
+    }
+}
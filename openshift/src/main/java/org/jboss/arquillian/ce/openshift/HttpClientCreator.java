@@ -104,6 +104,7 @@ class HttpClientCreator {
             builder.readTimeout(10, TimeUnit.SECONDS);
 
             OkHttpClientUtils.applyCookieJar(builder);
+            OkHttpClientUtils.applyMetrics(builder);
 
             final OkHttpClient client = builder.build();
 
@@ -23,12 +23,12 @@
 
 package org.jboss.arquillian.ce.openshift;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringWriter;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -38,6 +38,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
@@ -47,7 +49,10 @@ import com.openshift.internal.restclient.model.properties.ResourcePropertyKeys;
 import com.openshift.internal.restclient.model.template.Parameter;
 import com.openshift.restclient.ClientFactory;
 import com.openshift.restclient.IClient;
+import com.openshift.restclient.IOpenShiftWatchListener;
+import com.openshift.restclient.IWatcher;
 import com.openshift.restclient.NoopSSLCertificateCallback;
+import com.openshift.restclient.NotFoundException;
 import com.openshift.restclient.ResourceKind;
 import com.openshift.restclient.authorization.AuthorizationClientFactory;
 import com.openshift.restclient.authorization.BasicAuthorizationStrategy;
@@ -70,6 +75,8 @@ import com.openshift.restclient.model.template.ITemplate;
 import org.jboss.arquillian.ce.adapter.AbstractOpenShiftAdapter;
 import org.jboss.arquillian.ce.api.MountSecret;
 import org.jboss.arquillian.ce.api.model.OpenShiftResource;
+import org.jboss.arquillian.ce.cache.Informer;
+import org.jboss.arquillian.ce.cache.WatchListener;
 import org.jboss.arquillian.ce.openshift.model.NativeDeploymentConfig;
 import org.jboss.arquillian.ce.portfwd.PortForwardContext;
 import org.jboss.arquillian.ce.proxy.Proxy;
@@ -92,6 +99,7 @@ public class NativeOpenShiftAdapter extends AbstractOpenShiftAdapter {
     private final IClient client;
 
     private Map<String, Collection<IResource>> templates = new ConcurrentHashMap<>();
+    private Informer<IDeploymentConfig> dcs;
 
     public NativeOpenShiftAdapter(Configuration configuration) {
         super(configuration);
@@ -131,10 +139,25 @@ public class NativeOpenShiftAdapter extends AbstractOpenShiftAdapter {
             KubernetesResource kr = (KubernetesResource) resource;
             ModelNode node = kr.getNode();
             String key = node.has(ResourcePropertyKeys.OBJECTS) ? ResourcePropertyKeys.OBJECTS : "items";
-            List<IResource> items = new ArrayList<>();
+            List<Callable<IResource>> tasks = new ArrayList<>();
             for (ModelNode item : node.get(key).asList()) {
-                IResource ir = client.getResourceFactory().create(item.toJSONString(true));
-                items.add(client.create(ir, configuration.getNamespace()));
+                final IResource ir = client.getResourceFactory().create(item.toJSONString(true));
+                tasks.add(new Callable<IResource>() {
+                    public IResource call() throws Exception {
+                        return client.create(ir, configuration.getNamespace());
+                    }
+                });
+            }
+            List<IResource> items = new ArrayList<>();
+            try {
+                invokeAll(tasks, items);
+            } catch (Exception e) {
+                // list is a single handle, don't leave partial list behind
+                try {
+                    new NativeListOpenShiftResourceHandle(items).delete();
+                } catch (RuntimeException ignored) {
+                }
+                throw (e instanceof IOException) ? (IOException) e : new IOException(e);
             }
             return new NativeListOpenShiftResourceHandle(items);
         } else {
@@ -162,16 +185,6 @@ public class NativeOpenShiftAdapter extends AbstractOpenShiftAdapter {
         return new NativeProxy(configuration, client);
     }
 
-    public String exec(Map<String, String> labels, int waitSeconds, String... input) throws Exception {
-        final List<IPod> pods = client.list(ResourceKind.POD, configuration.getNamespace(), labels);
-    	if (pods.isEmpty()) {
-            throw new IllegalStateException("No such pods: " + labels);
-        }
-        IPod targetPod = pods.get(0);
-
-        return "NOT IMPLEMENTED"; // TODO
-    }
-
     public PortForwardContext createPortForwardContext(Map<String, String> labels, int port) {
         final List<IPod> pods = client.list(ResourceKind.POD, configuration.getNamespace(), labels);
         if (pods.isEmpty()) {
@@ -190,21 +203,21 @@ public class NativeOpenShiftAdapter extends AbstractOpenShiftAdapter {
         return new RegistryLookupEntry(ip, String.valueOf(port));
     }
 
-    private Object createProject() {
+    private Object createProjectRequest(String namespace) {
         // oc new-project <namespace>
         Properties properties = new Properties();
-        properties.put("PROJECT_NAME", configuration.getNamespace());
+        properties.put("PROJECT_NAME", namespace);
         IProjectRequest pr = createResource(Templates.PROJECT_REQUEST, properties);
         return client.create(pr);
     }
 
-    public boolean checkProject() {
-        IProject project = client.get(ResourceKind.PROJECT, configuration.getNamespace(), "");
-        return project == null && createProject() != null;
+    public boolean createProject(String namespace) {
+        IProject project = client.get(ResourceKind.PROJECT, namespace, "");
+        return project == null && createProjectRequest(namespace) != null;
     }
 
-    public boolean deleteProject() {
-        IProject project = client.get(ResourceKind.PROJECT, configuration.getNamespace(), "");
+    public boolean deleteProject(String namespace) {
+        IProject project = client.get(ResourceKind.PROJECT, namespace, "");
         client.delete(project);
         return true;
     }
@@ -297,7 +310,7 @@ public class NativeOpenShiftAdapter extends AbstractOpenShiftAdapter {
         final IProject project = client.get(ResourceKind.PROJECT, configuration.getNamespace(), "");
 
         final ITemplate template;
-        try (InputStream stream = new URL(templateURL).openStream()) {
+        try (InputStream stream = openStream(templateURL)) {
             template = client.getResourceFactory().create(stream);
         }
        
@@ -360,9 +373,7 @@ public class NativeOpenShiftAdapter extends AbstractOpenShiftAdapter {
     }
 
     public void resumeDeployment(String name, int replicas) throws Exception {
-        String dcName = getFirstResource(ResourceKind.DEPLOYMENT_CONFIG, name, null);
-        final IDeploymentConfig dc = client.get(ResourceKind.DEPLOYMENT_CONFIG, dcName, configuration.getNamespace());
-        final Map<String, String> labels = dc.getReplicaSelector();
+        final Map<String, String> labels = findDC(name).getReplicaSelector();
         try {
             delay(labels, replicas, Operator.EQUAL);
         } catch (Exception e) {
@@ -371,14 +382,11 @@ public class NativeOpenShiftAdapter extends AbstractOpenShiftAdapter {
     }
 
     protected Map<String, String> getLabels(String prefix) throws Exception {
-        String dcName = getFirstResource(ResourceKind.DEPLOYMENT_CONFIG, prefix, null);
-        final IDeploymentConfig dc = client.get(ResourceKind.DEPLOYMENT_CONFIG, dcName, configuration.getNamespace());
-        return dc.getReplicaSelector();
+        return findDC(prefix).getReplicaSelector();
     }
 
     public void scaleDeployment(final String prefix, final int replicas) throws Exception {
-        String dcName = getFirstResource(ResourceKind.DEPLOYMENT_CONFIG, prefix, null);
-        final IDeploymentConfig dc = client.get(ResourceKind.DEPLOYMENT_CONFIG, dcName, configuration.getNamespace());
+        final IDeploymentConfig dc = getDC(prefix);
         final Map<String, String> labels = dc.getReplicaSelector();
         dc.setReplicas(replicas);
         client.update(dc);
@@ -389,15 +397,90 @@ public class NativeOpenShiftAdapter extends AbstractOpenShiftAdapter {
         }
     }
 
-    private String getFirstResource(String kind, String prefix, Map<String, String> labels) throws Exception {
-        List<IResource> list = (labels != null) ? client.list(kind, configuration.getNamespace(), labels) : client.list(kind, configuration.getNamespace());
-        for (IResource r : list) {
-            String name = r.getName();
-            if (name.startsWith(prefix)) {
-                return name;
+    private synchronized Informer<IDeploymentConfig> getDCs() {
+        if (dcs == null) {
+            dcs = createInformer(ResourceKind.DEPLOYMENT_CONFIG, new Informer.Source<IDeploymentConfig>() {
+                public String getName(IDeploymentConfig dc) {
+                    return dc.getName();
+                }
+
+                public Map<String, String> getLabels(IDeploymentConfig dc) {
+                    return dc.getLabels();
+                }
+
+                public List<IDeploymentConfig> list() {
+                    return client.list(ResourceKind.DEPLOYMENT_CONFIG, configuration.getNamespace());
+                }
+
+                public Closeable watch(final WatchListener<IDeploymentConfig> listener) {
+                    final IWatcher watcher = client.watch(configuration.getNamespace(), new IOpenShiftWatchListener() {
+                        public void connected(List<IResource> resources) {
+                        }
+
+                        public void disconnected() {
+                            listener.onClose(null);
+                        }
+
+                        public void received(IResource resource, ChangeType change) {
+                            if (resource instanceof IDeploymentConfig) {
+                                listener.onEvent((IDeploymentConfig) resource, ChangeType.DELETED.equals(change));
+                            }
+                        }
+
+                        public void error(Throwable err) {
+                            listener.onClose(err);
+                        }
+                    }, ResourceKind.DEPLOYMENT_CONFIG);
+                    return new Closeable() {
+                        public void close() {
+                            watcher.stop();
+                        }
+                    };
+                }
+            });
+        }
+        return dcs;
+    }
+
+    /**
+     * Resolve the first DC whose name starts with prefix.
+     * The returned instance may be shared with the cache, do not mutate it.
+     */
+    private IDeploymentConfig findDC(String prefix) throws Exception {
+        if (configuration.isResourceCache()) {
+            IDeploymentConfig dc = getDCs().findFirst(prefix);
+            if (dc != null) {
+                return dc;
+            }
+            // the watch may not have delivered a DC we just created, read it from the server
+        }
+        List<IDeploymentConfig> list = client.list(ResourceKind.DEPLOYMENT_CONFIG, configuration.getNamespace());
+        for (IDeploymentConfig dc : list) {
+            if (dc.getName().startsWith(prefix)) {
+                return dc;
+            }
+        }
+        throw new Exception(String.format("No resource [%s] found starting with %s", ResourceKind.DEPLOYMENT_CONFIG, prefix));
+    }
+
+    /**
+     * Read the current DC from the server, the cached one might already be deleted.
+     */
+    private IDeploymentConfig getDC(String prefix) throws Exception {
+        String dcName = findDC(prefix).getName();
+        IDeploymentConfig dc;
+        try {
+            dc = client.get(ResourceKind.DEPLOYMENT_CONFIG, dcName, configuration.getNamespace());
+        } catch (NotFoundException e) {
+            dc = null;
+        }
+        if (dc == null) {
+            if (configuration.isResourceCache()) {
+                getDCs().evict(dcName);
             }
+            throw new IllegalStateException(String.format("Deployment config %s (prefix %s) no longer exists.", dcName, prefix));
         }
-        throw new Exception(String.format("No resource [%s] found starting with %s", kind, prefix));
+        return dc;
     }
 
     public String getLog(String podName) throws Exception {
@@ -420,28 +503,8 @@ public class NativeOpenShiftAdapter extends AbstractOpenShiftAdapter {
         return l.getLogs(false);
     }
 
-    public String getLog(String prefix, Map<String, String> labels) throws Exception {
-        String podName = getFirstResource(ResourceKind.POD, prefix, labels);
-        return getLog(podName);
-    }
-
-    public List<String> getPods(String prefix) throws Exception {
-        final List<IPod> pods;
-        if (prefix == null) {
-            pods = client.list(ResourceKind.POD, configuration.getNamespace());
-        } else {
-            pods = client.list(ResourceKind.POD, configuration.getNamespace(), getLabels(prefix));
-        }
-        List<String> podNames = new ArrayList<>();
-        for (IPod pod : pods) {
-            podNames.add(pod.getName());
-        }
-        return podNames;
-    }
-
     public void triggerDeploymentConfigUpdate(String prefix, boolean wait) throws Exception {
-        String dcName = getFirstResource(ResourceKind.DEPLOYMENT_CONFIG, prefix, null);
-        IDeploymentConfig dc = client.get(ResourceKind.DEPLOYMENT_CONFIG, dcName, configuration.getNamespace());
+        IDeploymentConfig dc = getDC(prefix);
         Collection<IContainer> containers = dc.getContainers();
         if (containers.size() > 0) {
             dc.setEnvironmentVariable(containers.iterator().next().getName(), "_DUMMY", "_VALUE");
@@ -454,6 +517,31 @@ public class NativeOpenShiftAdapter extends AbstractOpenShiftAdapter {
     }
 
     public void cleanReplicationControllers(String... ids) throws Exception {
+        if (configuration.isBulkDelete()) {
+            // by name, no need to list the whole namespace
+            final Proxy proxy = getProxy();
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (final String id : ids) {
+                tasks.add(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        try {
+                            IReplicationController rc = client.get(ResourceKind.REPLICATION_CONTROLLER, id, configuration.getNamespace());
+                            boolean exists = proxy.delete("replicationcontrollers", id, getDeleteGracePeriod());
+                            log.info(String.format("RC [%s] delete: %s.", id, exists));
+                            cleanReplicationControllerPods(rc);
+                        } catch (NotFoundException ignored) {
+                            log.info(String.format("RC [%s] delete: false.", id));
+                        } catch (Exception e) {
+                            log.log(Level.WARNING, String.format("Exception while deleting RC [%s]: %s", id, e), e);
+                        }
+                        return null;
+                    }
+                });
+            }
+            invokeAll(tasks, new ArrayList<Void>());
+            return;
+        }
+
         List<IReplicationController> rcs = client.list(ResourceKind.REPLICATION_CONTROLLER, configuration.getNamespace());
         for (IReplicationController rc : rcs) {
             for (String id : ids) {
@@ -461,6 +549,7 @@ public class NativeOpenShiftAdapter extends AbstractOpenShiftAdapter {
                     try {
                         client.delete(rc);
                         log.info(String.format("RC [%s] delete.", id));
+                        cleanReplicationControllerPods(rc);
                     } catch (Exception e) {
                         log.log(Level.WARNING, String.format("Exception while deleting RC [%s]: %s", id, e), e);
                     }
@@ -469,7 +558,21 @@ public class NativeOpenShiftAdapter extends AbstractOpenShiftAdapter {
         }
     }
 
+    /**
+     * Older (3.x) servers ignore the propagation policy, delete the RC's pods by its selector.
+     */
+    private void cleanReplicationControllerPods(IReplicationController rc) throws Exception {
+        Map<String, String> selector = rc.getReplicaSelector();
+        if (selector != null && selector.isEmpty() == false) {
+            cleanPods(selector);
+        }
+    }
+
     public void cleanPods(Map<String, String> labels) throws Exception {
+        if (bulkDelete(labels, "pods").isEmpty()) {
+            return;
+        }
+
         final List<IPod> pods = client.list(ResourceKind.POD, configuration.getNamespace(), labels);
         for (IPod pod : pods) {
             try {
@@ -483,8 +586,15 @@ public class NativeOpenShiftAdapter extends AbstractOpenShiftAdapter {
 
     @Override
     public void cleanRemnants(Map<String, String> labels) throws Exception {
-        cleanBuilds(labels);
-        cleanReplicationControllers(labels);
+        Set<String> remaining = bulkDelete(labels, "builds", "replicationcontrollers");
+        if (remaining.contains("builds")) {
+            cleanBuilds(labels);
+        }
+        if (remaining.contains("replicationcontrollers")) {
+            cleanReplicationControllers(labels);
+        }
+        // older servers ignore the propagation policy, and the RCs' pods would be orphaned
+        cleanPods(labels);
     }
 
     private void cleanBuilds(Map<String, String> labels) {
@@ -512,6 +622,7 @@ public class NativeOpenShiftAdapter extends AbstractOpenShiftAdapter {
     }
 
     public void close() throws IOException {
+        super.close();
         templates.clear();
     }
 
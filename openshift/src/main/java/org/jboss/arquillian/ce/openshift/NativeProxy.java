@@ -23,15 +23,21 @@
 
 package org.jboss.arquillian.ce.openshift;
 
+import java.io.Closeable;
 import java.util.List;
 import java.util.Map;
 
 import javax.net.ssl.SSLContext;
 
+import com.openshift.internal.restclient.model.KubernetesResource;
 import com.openshift.restclient.IClient;
+import com.openshift.restclient.IOpenShiftWatchListener;
+import com.openshift.restclient.IWatcher;
 import com.openshift.restclient.ResourceKind;
 import com.openshift.restclient.model.IPod;
+import com.openshift.restclient.model.IResource;
 import okhttp3.OkHttpClient;
+import org.jboss.arquillian.ce.cache.WatchListener;
 import org.jboss.arquillian.ce.proxy.AbstractProxy;
 import org.jboss.arquillian.ce.utils.Configuration;
 import org.jboss.dmr.ModelNode;
@@ -57,39 +63,80 @@ public class NativeProxy extends AbstractProxy<IPod> {
         return httpClient;
     }
 
-    protected List<IPod> getPods(Map<String, String> labels) {
-        return client.list(ResourceKind.POD, configuration.getNamespace(), labels);
+    protected List<IPod> listPods(Map<String, String> labels) {
+        if (labels != null) {
+            return client.list(ResourceKind.POD, configuration.getNamespace(), labels);
+        } else {
+            return client.list(ResourceKind.POD, configuration.getNamespace());
+        }
+    }
+
+    protected Closeable watchPods(final Map<String, String> labels, final WatchListener<IPod> listener) {
+        final IWatcher watcher = client.watch(configuration.getNamespace(), new IOpenShiftWatchListener() {
+            public void connected(List<IResource> resources) {
+            }
+
+            public void disconnected() {
+                listener.onClose(null);
+            }
+
+            public void received(IResource resource, ChangeType change) {
+                // native watch has no label selector, filter here
+                if (resource instanceof IPod && matches(resource.getLabels(), labels)) {
+                    listener.onEvent((IPod) resource, ChangeType.DELETED.equals(change));
+                }
+            }
+
+            public void error(Throwable err) {
+                listener.onClose(err);
+            }
+        }, ResourceKind.POD);
+        return new Closeable() {
+            public void close() {
+                watcher.stop();
+            }
+        };
     }
 
     protected String getName(IPod pod) {
         return pod.getName();
     }
 
+    protected Map<String, String> getLabels(IPod pod) {
+        return pod.getLabels();
+    }
+
+    protected String getIP(IPod pod) {
+        return pod.getIP();
+    }
+
     protected boolean isReady(IPod pod) {
-        ModelNode root = ModelNode.fromJSONString(pod.toJson());
+        // read the backing model in place, no need to serialize and re-parse the whole pod
+        ModelNode root = (pod instanceof KubernetesResource) ? ((KubernetesResource) pod).getNode() : ModelNode.fromJSONString(pod.toJson());
 
-        ModelNode metadata = root.get("metadata");
-        ModelNode ts = metadata.get("deletionTimestamp");
-        if (ts.isDefined() && ts.asString() != null) {
-            return false;
+        // only has() before get(), as get() would add missing children to the pod's model
+        if (root.has("metadata")) {
+            ModelNode metadata = root.get("metadata");
+            if (metadata.has("deletionTimestamp") && metadata.get("deletionTimestamp").isDefined()) {
+                return false;
+            }
         }
 
+        if (root.has("status") == false) {
+            return false;
+        }
         ModelNode statusNode = root.get("status");
-        ModelNode phaseNode = statusNode.get("phase");
-        if (!phaseNode.isDefined() || !"Running".equalsIgnoreCase(phaseNode.asString())) {
+        if (statusNode.has("phase") == false || "Running".equalsIgnoreCase(statusNode.get("phase").asString()) == false) {
             return false;
         }
-        ModelNode conditionsNode = statusNode.get("conditions");
-        if (!conditionsNode.isDefined()) {
+        if (statusNode.has("conditions") == false) {
             return false;
         }
-        List<ModelNode> conditions = conditionsNode.asList();
-        for (ModelNode condition : conditions) {
-            ModelNode conditionTypeNode = condition.get("type");
-            ModelNode conditionStatusNode = condition.get("status");
-            if (conditionTypeNode.isDefined() && "Ready".equalsIgnoreCase(conditionTypeNode.asString()) &&
-                conditionStatusNode.isDefined() && "True".equalsIgnoreCase(conditionStatusNode.asString())) {
-                return true;
+        ModelNode conditions = statusNode.get("conditions");
+        for (int i = 0; conditions.has(i); i++) {
+            ModelNode condition = conditions.get(i);
+            if (condition.has("type") && "Ready".equalsIgnoreCase(condition.get("type").asString())) {
+                return condition.has("status") && "True".equalsIgnoreCase(condition.get("status").asString());
             }
         }
         return false;
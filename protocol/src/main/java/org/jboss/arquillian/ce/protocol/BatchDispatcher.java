@@ -0,0 +1,114 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.protocol;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.arquillian.ce.proxy.AbstractProxy;
+import org.jboss.arquillian.test.spi.TestResult;
+
+/**
+ * Runs a test class' independent methods in one round-trip per pod, once per deployment and class.
+ * <p/>
+ * Arquillian still drives methods one by one, each invoke just picks up its batched result.
+ * Anything not batched, or a batch whose pod could not be reached, falls back to a normal invocation.
+ * Any other failure of a batch is the result of all its methods, they may already have run.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+class BatchDispatcher {
+    private static final Logger log = Logger.getLogger(BatchDispatcher.class.getName());
+
+    private final Set<Class<?>> dispatched = new HashSet<>();
+    private final Map<Method, TestResult> results = new HashMap<>();
+
+    TestResult invoke(CEServletExecutor executor, Class<?> testClass, Method method, int threads) {
+        TestResult result;
+        synchronized (this) {
+            if (dispatched.add(testClass)) {
+                dispatch(executor, testClass, threads);
+            }
+            result = results.remove(method);
+        }
+        return (result != null) ? result : executor.invoke(testClass, method);
+    }
+
+    private void dispatch(CEServletExecutor executor, Class<?> testClass, int threads) {
+        // same pod the method would be invoked on one by one
+        Map<String, List<Method>> byPod = new LinkedHashMap<>();
+        for (Method method : testClass.getMethods()) {
+            if (ParallelMethodsDispatcher.isIndependent(testClass, method, executor.getDeploymentContext())) {
+                String pod = executor.locatePodName(method);
+                List<Method> methods = byPod.get(pod);
+                if (methods == null) {
+                    methods = new ArrayList<>();
+                    byPod.put(pod, methods);
+                }
+                methods.add(method);
+            }
+        }
+
+        for (Map.Entry<String, List<Method>> entry : byPod.entrySet()) {
+            List<Method> methods = entry.getValue();
+            List<TestResult> batch;
+            try {
+                batch = executor.invokeBatch(testClass, methods, entry.getKey(), threads);
+            } catch (Exception e) {
+                if (isConnectFailure(e)) {
+                    // nothing ran, the methods can still be invoked one by one
+                    log.log(Level.WARNING, String.format("Cannot reach pod %s, invoking methods of %s one by one.", entry.getKey(), testClass.getName()), e);
+                    continue;
+                }
+                // the batch may have run, don't run its methods again
+                log.log(Level.WARNING, String.format("Batch of %s failed.", testClass.getName()), e);
+                batch = new ArrayList<>();
+                for (int i = 0; i < methods.size(); i++) {
+                    batch.add(TestResult.failed(e));
+                }
+            }
+            for (int i = 0; i < methods.size(); i++) {
+                results.put(methods.get(i), batch.get(i));
+            }
+        }
+    }
+
+    private static boolean isConnectFailure(Throwable t) {
+        for (; t != null; t = t.getCause()) {
+            if (t instanceof IOException && AbstractProxy.isConnectFailure((IOException) t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.protocol;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.jboss.arquillian.container.test.spi.TestRunner;
+import org.jboss.arquillian.container.test.spi.util.TestRunners;
+import org.jboss.arquillian.test.spi.TestResult;
+
+/**
+ * In-container runner for a batch of test methods of one class, results are returned in a single response.
+ * <p/>
+ * Parameters: className, methodNames (comma separated), threads (1 runs the methods sequentially)
+ * and optional outputMode (serializedObjectGzip compresses the response).
+ * There is no command channel, so methods relying on in-container commands (e.g. Deployer) cannot be batched.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class BatchTestRunner extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+    private static final Logger log = Logger.getLogger(BatchTestRunner.class.getName());
+
+    public static final String NAME = "ArquillianServletRunnerBatch";
+    public static final String MAPPING = "/ArquillianServletRunnerBatch";
+
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        execute(request, response);
+    }
+
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        execute(request, response);
+    }
+
+    private void execute(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String className = request.getParameter("className");
+        String methodNames = request.getParameter("methodNames");
+        if (className == null || methodNames == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing className or methodNames");
+            return;
+        }
+        String threadsParameter = request.getParameter("threads");
+        int threads = (threadsParameter != null) ? Integer.parseInt(threadsParameter) : 1;
+
+        ArrayList<TestResult> results = new ArrayList<>();
+        try {
+            Class<?> testClass = Thread.currentThread().getContextClassLoader().loadClass(className);
+            run(testClass, methodNames.split(","), threads, results);
+        } catch (Throwable t) {
+            results.clear();
+            results.add(TestResult.failed(t));
+        }
+
+        response.setContentType("application/octet-stream");
+        OutputStream out = response.getOutputStream();
+        if (CEServletTestRunner.isGzip(request)) {
+            response.setHeader("Content-Encoding", "gzip");
+            out = new GZIPOutputStream(out);
+        }
+        long start = System.nanoTime();
+        try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(results);
+            oos.flush();
+        }
+        log.fine(String.format("Encoded %s results in %sms", results.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+
+    private void run(final Class<?> testClass, String[] methodNames, int threads, List<TestResult> results) throws Exception {
+        if (threads <= 1) {
+            for (String methodName : methodNames) {
+                results.add(runMethod(testClass, methodName));
+            }
+            return;
+        }
+
+        final ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, methodNames.length));
+        try {
+            List<Future<TestResult>> futures = new ArrayList<>();
+            for (final String methodName : methodNames) {
+                futures.add(executor.submit(new Callable<TestResult>() {
+                    public TestResult call() throws Exception {
+                        Thread.currentThread().setContextClassLoader(cl);
+                        return runMethod(testClass, methodName);
+                    }
+                }));
+            }
+            // keep results in request order
+            for (Future<TestResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    results.add(TestResult.failed(e.getCause()));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private TestResult runMethod(Class<?> testClass, String methodName) {
+        try {
+            TestRunner runner = TestRunners.getTestRunner(BatchTestRunner.class.getClassLoader());
+            return runner.execute(testClass, methodName);
+        } catch (Throwable t) {
+            return TestResult.failed(t);
+        }
+    }
+}
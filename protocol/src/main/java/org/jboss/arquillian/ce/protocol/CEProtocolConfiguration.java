@@ -36,6 +36,11 @@ public class CEProtocolConfiguration extends ServletProtocolConfiguration {
     private String apiVersion;
     private String namespace;
 
+    private boolean batch;
+    private int batchThreads = 1;
+    private String outputMode = CEServletTestRunner.OUTPUT_MODE_SERIALIZED;
+    private long eventWaitInMilliSeconds = 5000;
+
     public void setConfiguration(Configuration configuration) {
         this.configuration = configuration;
     }
@@ -72,4 +77,48 @@ public class CEProtocolConfiguration extends ServletProtocolConfiguration {
     public void setNamespace(String namespace) {
         this.namespace = namespace;
     }
+
+    /**
+     * @return true if a class' independent methods are run in one round-trip
+     */
+    public boolean isBatch() {
+        return batch;
+    }
+
+    public void setBatch(boolean batch) {
+        this.batch = batch;
+    }
+
+    /**
+     * @return in-container threads per batch, 1 runs the batch sequentially
+     */
+    public int getBatchThreads() {
+        return batchThreads;
+    }
+
+    public void setBatchThreads(int batchThreads) {
+        this.batchThreads = batchThreads;
+    }
+
+    /**
+     * @return serializedObject, or serializedObjectGzip to compress results and command events
+     */
+    public String getOutputMode() {
+        return outputMode;
+    }
+
+    public void setOutputMode(String outputMode) {
+        this.outputMode = outputMode;
+    }
+
+    /**
+     * @return how long the container holds a command service poll, 0 answers right away
+     */
+    public long getEventWaitInMilliSeconds() {
+        return eventWaitInMilliSeconds;
+    }
+
+    public void setEventWaitInMilliSeconds(long eventWaitInMilliSeconds) {
+        this.eventWaitInMilliSeconds = eventWaitInMilliSeconds;
+    }
 }
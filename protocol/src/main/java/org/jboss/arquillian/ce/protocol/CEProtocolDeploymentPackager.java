@@ -55,6 +55,7 @@ public class CEProtocolDeploymentPackager implements DeploymentPackager {
         Archive<?> archive = testDeployment.getApplicationArchive();
 
         WebArchive protocol = new ProtocolDeploymentAppender().createAuxiliaryArchive();
+        protocol.addClasses(BatchTestRunner.class, CEServletTestRunner.class);
         Collection<Archive<?>> auxiliaryArchives = testDeployment.getAuxiliaryArchives();
         Processor processor = new Processor(testDeployment, processors);
 
@@ -108,12 +109,23 @@ public class CEProtocolDeploymentPackager implements DeploymentPackager {
         } else {
             war.merge(protocol);
         }
+        addCEServlets(war);
 
         processor.process(war);
 
         return war;
     }
 
+    private static void addCEServlets(WebArchive war) {
+        if (war.contains(WEB_XML_PATH)) {
+            WebAppDescriptor descriptor = Descriptors.importAs(WebAppDescriptor.class).fromStream(war.get(WEB_XML_PATH).getAsset().openStream());
+            descriptor.servlet(BatchTestRunner.NAME, BatchTestRunner.class.getName(), new String[]{BatchTestRunner.MAPPING});
+            descriptor.servlet(CEServletTestRunner.NAME, CEServletTestRunner.class.getName(), new String[]{CEServletTestRunner.MAPPING});
+            war.delete(WEB_XML_PATH);
+            war.setWebXML(new StringAsset(descriptor.exportAsString()));
+        }
+    }
+
     static WebAppDescriptor mergeWithArqDescriptor(WebAppDescriptor descriptor) {
         // use String v. of desc.servlet(..) so we don't force Servlet API on classpath
         descriptor.servlet(
@@ -23,13 +23,20 @@
 
 package org.jboss.arquillian.ce.protocol;
 
+import java.io.IOException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
-import java.util.Timer;
+import java.util.Set;
 import java.util.logging.Logger;
 
+import org.jboss.arquillian.ce.api.ParallelMethods;
+import org.jboss.arquillian.ce.metrics.ApiMetrics;
+import org.jboss.arquillian.ce.proxy.AbstractProxy;
 import org.jboss.arquillian.ce.proxy.Proxy;
+import org.jboss.arquillian.ce.proxy.Transport;
 import org.jboss.arquillian.ce.runinpod.RunInPodUtils;
 import org.jboss.arquillian.ce.utils.Archives;
 import org.jboss.arquillian.ce.utils.DeploymentContext;
@@ -39,6 +46,7 @@ import org.jboss.arquillian.container.spi.client.protocol.metadata.ProtocolMetaD
 import org.jboss.arquillian.container.spi.client.protocol.metadata.Servlet;
 import org.jboss.arquillian.container.test.api.OperateOnDeployment;
 import org.jboss.arquillian.container.test.api.TargetsContainer;
+import org.jboss.arquillian.container.test.spi.command.Command;
 import org.jboss.arquillian.container.test.spi.command.CommandCallback;
 import org.jboss.arquillian.protocol.servlet.ServletMethodExecutor;
 import org.jboss.arquillian.test.spi.TestMethodExecutor;
@@ -54,13 +62,14 @@ public class CEServletExecutor extends ServletMethodExecutor {
     private String contextRoot;
     private Map<String, String> labels;
     private Proxy proxy;
+    private DeploymentContext deploymentContext;
 
     public CEServletExecutor(CEProtocolConfiguration configuration, ProtocolMetaData protocolMetaData, CommandCallback callback) {
         this.config = configuration;
         this.callback = callback;
 
         this.contextRoot = readContextRoot(protocolMetaData);
-        DeploymentContext deploymentContext = DeploymentContext.getDeploymentContext(protocolMetaData);
+        this.deploymentContext = DeploymentContext.getDeploymentContext(protocolMetaData);
 
         this.labels = deploymentContext.getLabels();
         this.proxy = deploymentContext.getProxy();
@@ -83,40 +92,186 @@ public class CEServletExecutor extends ServletMethodExecutor {
         }
 
         Class<?> testClass = testMethodExecutor.getInstance().getClass();
+        Method method = testMethodExecutor.getMethod();
+
+        ParallelMethods parallelMethods = testClass.getAnnotation(ParallelMethods.class);
+        if (parallelMethods != null && RunInPodUtils.isRunInPod(testClass, method) == false) {
+            ParallelMethodsDispatcher dispatcher = deploymentContext.getAttachment(ParallelMethodsDispatcher.class);
+            if (dispatcher == null) {
+                dispatcher = deploymentContext.putAttachmentIfAbsent(ParallelMethodsDispatcher.class, new ParallelMethodsDispatcher());
+            }
+            return dispatcher.invoke(this, testClass, method, parallelMethods.perPod());
+        }
+
+        CEProtocolConfiguration configuration = (CEProtocolConfiguration) config;
+        if (configuration.isBatch() && RunInPodUtils.isRunInPod(testClass, method) == false) {
+            BatchDispatcher dispatcher = deploymentContext.getAttachment(BatchDispatcher.class);
+            if (dispatcher == null) {
+                dispatcher = deploymentContext.putAttachmentIfAbsent(BatchDispatcher.class, new BatchDispatcher());
+            }
+            return dispatcher.invoke(this, testClass, method, configuration.getBatchThreads());
+        }
 
+        return invoke(testClass, method);
+    }
+
+    DeploymentContext getDeploymentContext() {
+        return deploymentContext;
+    }
+
+    TestResult invoke(Class<?> testClass, Method method) {
         String context;
         String podName;
-        if (isRunInPod(testMethodExecutor)) {
+        if (RunInPodUtils.isRunInPod(testClass, method)) {
             context = "/runinpod";
             podName = findRunInPod();
         } else {
             context = contextRoot;
-            podName = locatePodName(testMethodExecutor);
-        }
-
-        String url = proxy.url(podName, 8080, context + ARQUILLIAN_SERVLET_MAPPING, "outputMode=serializedObject&className=" + testClass.getName() + "&methodName=" + testMethodExecutor.getMethod().getName());
-        log.info(String.format("Invoking test, url: %s", url));
-        String eventUrl = proxy.url(podName, 8080, context + ARQUILLIAN_SERVLET_MAPPING, "outputMode=serializedObject&className=" + testClass.getName() + "&methodName=" + testMethodExecutor.getMethod().getName() + "&cmd=event");
-
-        Timer eventTimer = null;
-        try {
-            eventTimer = createCommandServicePullTimer(eventUrl);
-            return executeWithRetry(url, TestResult.class);
-        } catch (Exception e) {
-            throw new IllegalStateException("Error launching test " + testClass.getName() + " " + testMethodExecutor.getMethod(), e);
-        } finally {
-            if (eventTimer != null) {
-                eventTimer.cancel();
+            podName = locatePodName(method);
+        }
+        return invoke(testClass, method, context, podName);
+    }
+
+    TestResult invoke(Class<?> testClass, Method method, String context, String podName) {
+        String outputMode = getOutputMode();
+        String mapping = CEServletTestRunner.MAPPING;
+        // run-in-pod deployments only have the plain Arquillian servlet
+        if (context.equals(contextRoot) == false) {
+            outputMode = CEServletTestRunner.OUTPUT_MODE_SERIALIZED;
+            mapping = ARQUILLIAN_SERVLET_MAPPING;
+        }
+        String parameters = "outputMode=" + outputMode + "&className=" + testClass.getName() + "&methodName=" + method.getName();
+        String description = testClass.getName() + " " + method;
+        return invoke(podName, context + mapping, parameters, TestResult.class, true, description);
+    }
+
+    private String getOutputMode() {
+        String outputMode = ((CEProtocolConfiguration) config).getOutputMode();
+        return (outputMode != null) ? outputMode : CEServletTestRunner.OUTPUT_MODE_SERIALIZED;
+    }
+
+    /**
+     * Run methods in one round-trip, see BatchTestRunner.
+     *
+     * @return results in method order
+     */
+    List<TestResult> invokeBatch(Class<?> testClass, List<Method> methods, String podName, int threads) {
+        StringBuilder names = new StringBuilder();
+        for (Method method : methods) {
+            if (names.length() > 0) {
+                names.append(",");
             }
+            names.append(method.getName());
         }
+        String parameters = "outputMode=" + getOutputMode() + "&className=" + testClass.getName() + "&methodNames=" + names + "&threads=" + threads;
+        String description = String.format("batch of %s methods of %s", methods.size(), testClass.getName());
+        List<?> results = invoke(podName, contextRoot + BatchTestRunner.MAPPING, parameters, ArrayList.class, false, description);
+        List<TestResult> testResults = new ArrayList<>();
+        if (results != null && results.size() == 1 && methods.size() > 1) {
+            // the batch failed as a whole in the container, e.g. the class could not be loaded
+            for (int i = 0; i < methods.size(); i++) {
+                testResults.add((TestResult) results.get(0));
+            }
+            return testResults;
+        }
+        if (results == null || results.size() != methods.size()) {
+            throw new IllegalStateException(String.format("Expected %s results for %s, got %s", methods.size(), description, (results != null) ? results.size() : null));
+        }
+        for (Object result : results) {
+            testResults.add((TestResult) result);
+        }
+        return testResults;
     }
 
-    protected <T> T execute(String url, Class<T> returnType, Object requestObject) throws Exception {
-        return proxy.post(url, returnType, requestObject);
+    private <T> T invoke(String podName, String path, String parameters, Class<T> type, boolean events, String description) {
+        Exception failure = null;
+        for (Transport candidate : candidates()) {
+            long start = System.nanoTime();
+            CommandChannel.Subscription subscription = null;
+            try {
+                String url = candidate.url(podName, 8080, path, parameters);
+                if (url == null) {
+                    continue;
+                }
+                log.info(String.format("Invoking test, url: %s", url));
+                if (events) {
+                    subscription = subscribeCommands(candidate.url(podName, 8080, path, parameters + "&cmd=event"));
+                }
+                T result = executeWithRetry(url, type);
+                record(candidate, start, false);
+                deploymentContext.putAttachment(Transport.class, candidate);
+                return result;
+            } catch (IOException e) {
+                record(candidate, start, true);
+                if (AbstractProxy.isConnectFailure(e) == false) {
+                    // the test may already have run, don't run it again over another transport
+                    throw new IllegalStateException("Error launching test " + description, e);
+                }
+                // pod not reachable this way, fall back to next transport
+                log.warning(String.format("Transport %s failed for pod %s: %s", candidate.getName(), podName, e));
+                failure = e;
+            } catch (Exception e) {
+                throw new IllegalStateException("Error launching test " + description, e);
+            } finally {
+                if (subscription != null) {
+                    subscription.cancel();
+                }
+            }
+        }
+        throw new IllegalStateException("Error launching test " + description + ", no transport could reach pod " + podName, failure);
+    }
+
+    private CommandChannel.Subscription subscribeCommands(String eventUrl) {
+        Integer pull = config.getPullInMilliSeconds();
+        if (pull == null || pull <= 0) {
+            log.warning("Command service is disabled, pullInMilliSeconds is " + pull);
+            return null;
+        }
+        CommandChannel channel = deploymentContext.getAttachment(CommandChannel.class);
+        if (channel == null) {
+            channel = deploymentContext.putAttachmentIfAbsent(CommandChannel.class, new CommandChannel());
+        }
+        long wait = ((CEProtocolConfiguration) config).getEventWaitInMilliSeconds();
+        return channel.subscribe(this, eventUrl + "&wait=" + wait, pull);
+    }
+
+    /**
+     * One round on the event channel, fires and answers the command if the container emitted one.
+     *
+     * @return true if a command was fired
+     */
+    boolean pollCommand(String eventUrl) throws Exception {
+        Object o = execute(eventUrl, Object.class, null);
+        if (o == null) {
+            return false;
+        }
+        if (o instanceof Command == false) {
+            throw new IllegalStateException("Received a non " + Command.class.getName() + " object on event channel");
+        }
+        Command<?> command = (Command<?>) o;
+        callback.fired(command);
+        execute(eventUrl, Object.class, command);
+        return true;
+    }
+
+    /**
+     * Transport which worked last for this deployment goes first.
+     */
+    private List<Transport> candidates() {
+        List<Transport> candidates = new ArrayList<>(proxy.getTransports());
+        Transport transport = deploymentContext.getAttachment(Transport.class);
+        if (transport != null && candidates.remove(transport)) {
+            candidates.add(0, transport);
+        }
+        return candidates;
     }
 
-    private boolean isRunInPod(TestMethodExecutor testMethodExecutor) {
-        return RunInPodUtils.isRunInPod(testMethodExecutor.getInstance().getClass(), testMethodExecutor.getMethod());
+    private static void record(Transport transport, long start, boolean error) {
+        ApiMetrics.getInstance().record("INVOKE", transport.getName(), "test", System.nanoTime() - start, -1, -1, error);
+    }
+
+    protected <T> T execute(String url, Class<T> returnType, Object requestObject) throws Exception {
+        return proxy.post(url, returnType, requestObject);
     }
 
     private String findRunInPod() {
@@ -125,8 +280,23 @@ public class CEServletExecutor extends ServletMethodExecutor {
         return proxy.findPod(labels, 0);
     }
 
-    private String locatePodName(TestMethodExecutor testMethodExecutor) {
-        Method method = testMethodExecutor.getMethod();
+    /**
+     * @return pod index from @TargetsContainer, -1 if none
+     */
+    static int targetIndex(Method method) {
+        TargetsContainer tc = method.getAnnotation(TargetsContainer.class);
+        return (tc != null) ? Strings.parseNumber(tc.value()) : -1;
+    }
+
+    String getContextRoot() {
+        return contextRoot;
+    }
+
+    Set<String> getReadyPods() {
+        return proxy.getReadyPods(labels);
+    }
+
+    String locatePodName(Method method) {
         TargetsContainer tc = method.getAnnotation(TargetsContainer.class);
         int index = 0;
         if (tc != null) {
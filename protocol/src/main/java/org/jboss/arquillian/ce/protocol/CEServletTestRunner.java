@@ -0,0 +1,260 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.protocol;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.jboss.arquillian.protocol.servlet.runner.ServletTestRunner;
+
+/**
+ * Arquillian's servlet runner, with gzip'd responses for outputMode=serializedObjectGzip
+ * and long-polled command service events (cmd=event&wait=millis).
+ * <p/>
+ * Test results and command service events are still plain Java serialization,
+ * the client picks the encoding up from Content-Encoding.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class CEServletTestRunner extends ServletTestRunner {
+    private static final long serialVersionUID = 1L;
+    private static final Logger log = Logger.getLogger(CEServletTestRunner.class.getName());
+
+    public static final String NAME = "ArquillianServletRunnerCE";
+    public static final String MAPPING = "/ArquillianServletRunnerCE";
+
+    public static final String OUTPUT_MODE_SERIALIZED = "serializedObject";
+    public static final String OUTPUT_MODE_GZIP = "serializedObjectGzip";
+
+    private static final long EVENT_CHECK_INTERVAL = 20;
+
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        execute(request, response, false);
+    }
+
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        execute(request, response, true);
+    }
+
+    private void execute(HttpServletRequest request, HttpServletResponse response, boolean post) throws ServletException, IOException {
+        GzipResponse gzip = null;
+        if (isGzip(request)) {
+            request = new SerializedObjectRequest(request);
+            response = gzip = new GzipResponse(response);
+        }
+        try {
+            long wait = eventWait(request);
+            if (wait > 0) {
+                holdEvent(request, response, wait);
+            } else if (post) {
+                super.doPost(request, response);
+            } else {
+                super.doGet(request, response);
+            }
+        } finally {
+            if (gzip != null) {
+                gzip.finish();
+            }
+        }
+    }
+
+    /**
+     * @return millis to hold a command service poll, 0 if this is not one
+     */
+    private static long eventWait(HttpServletRequest request) {
+        String wait = request.getParameter("wait");
+        if (wait == null || "event".equals(request.getParameter("cmd")) == false || request.getContentLength() > 0) {
+            return 0;
+        }
+        return Long.parseLong(wait);
+    }
+
+    /**
+     * Long-poll, re-check for a command in-container until there is one or the wait is over.
+     */
+    private void holdEvent(HttpServletRequest request, HttpServletResponse response, long wait) throws ServletException, IOException {
+        long deadline = System.currentTimeMillis() + wait;
+        while (true) {
+            NoContentResponse probe = new NoContentResponse(response);
+            super.doGet(request, probe);
+            if (probe.noContent == false) {
+                return;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+                return;
+            }
+            try {
+                Thread.sleep(EVENT_CHECK_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+                return;
+            }
+        }
+    }
+
+    static boolean isGzip(HttpServletRequest request) {
+        return OUTPUT_MODE_GZIP.equals(request.getParameter("outputMode"));
+    }
+
+    /**
+     * ServletTestRunner only knows serializedObject, anything else is html.
+     */
+    private static class SerializedObjectRequest extends HttpServletRequestWrapper {
+        private SerializedObjectRequest(HttpServletRequest request) {
+            super(request);
+        }
+
+        public String getParameter(String name) {
+            if ("outputMode".equals(name)) {
+                return OUTPUT_MODE_SERIALIZED;
+            }
+            return super.getParameter(name);
+        }
+    }
+
+    /**
+     * Swallows "no command yet", so the poll can be retried.
+     */
+    private static class NoContentResponse extends HttpServletResponseWrapper {
+        private boolean noContent;
+
+        private NoContentResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        public void setStatus(int sc) {
+            if (sc == SC_NO_CONTENT) {
+                noContent = true;
+            } else {
+                super.setStatus(sc);
+            }
+        }
+
+        @SuppressWarnings("deprecation")
+        public void setStatus(int sc, String sm) {
+            if (sc == SC_NO_CONTENT) {
+                noContent = true;
+            } else {
+                super.setStatus(sc, sm);
+            }
+        }
+    }
+
+    static class GzipResponse extends HttpServletResponseWrapper {
+        private GZIPOutputStream gzip;
+        private GzipServletOutputStream stream;
+
+        GzipResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (stream == null) {
+                setHeader("Content-Encoding", "gzip");
+                gzip = new GZIPOutputStream(super.getOutputStream());
+                stream = new GzipServletOutputStream(gzip);
+            }
+            return stream;
+        }
+
+        public PrintWriter getWriter() throws IOException {
+            throw new IllegalStateException("Only binary output is compressed");
+        }
+
+        // no Content-Length, it would be the uncompressed one
+        public void setContentLength(int len) {
+        }
+
+        public void flushBuffer() throws IOException {
+            if (gzip != null) {
+                gzip.flush();
+            }
+            super.flushBuffer();
+        }
+
+        void finish() throws IOException {
+            if (gzip != null) {
+                long start = System.nanoTime();
+                gzip.finish();
+                gzip.flush();
+                stream.nanos += System.nanoTime() - start;
+                log.fine(String.format("Gzip'd %s bytes in %sms", stream.bytes, TimeUnit.NANOSECONDS.toMillis(stream.nanos)));
+            }
+        }
+
+        /**
+         * @return time spent compressing and writing the response body, in nanos
+         */
+        long getEncodeNanos() {
+            return (stream != null) ? stream.nanos : 0;
+        }
+    }
+
+    private static class GzipServletOutputStream extends ServletOutputStream {
+        private final OutputStream delegate;
+        private long nanos;
+        private long bytes;
+
+        private GzipServletOutputStream(OutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        public void write(int b) throws IOException {
+            long start = System.nanoTime();
+            delegate.write(b);
+            nanos += System.nanoTime() - start;
+            bytes++;
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            delegate.write(b, off, len);
+            nanos += System.nanoTime() - start;
+            bytes += len;
+        }
+
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        // finish the gzip trailer, but leave the container's stream to the container
+        public void close() throws IOException {
+            ((GZIPOutputStream) delegate).finish();
+            delegate.flush();
+        }
+    }
+}
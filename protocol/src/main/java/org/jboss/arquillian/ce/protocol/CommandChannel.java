@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.protocol;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Command service channel of a deployment, replacing Arquillian's polling Timer per test method.
+ * <p/>
+ * Every running test method subscribes its event url, which is long-polled on the channel's shared pool;
+ * CEServletTestRunner holds the request until the container emits a command, so it is delivered right away.
+ * Runners which don't hold the request (e.g. run-in-pod) are simply polled every pullInMilliSeconds.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+class CommandChannel {
+    private static final Logger log = Logger.getLogger(CommandChannel.class.getName());
+
+    private final AtomicInteger counter = new AtomicInteger();
+    private final ExecutorService pool = Executors.newCachedThreadPool(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "CE-CommandChannel-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    Subscription subscribe(final CEServletExecutor executor, final String eventUrl, final long pullMillis) {
+        final Subscription subscription = new Subscription();
+        pool.execute(new Runnable() {
+            public void run() {
+                while (subscription.cancelled == false) {
+                    long start = System.nanoTime();
+                    boolean fired = false;
+                    try {
+                        fired = executor.pollCommand(eventUrl);
+                    } catch (Exception e) {
+                        if (subscription.cancelled == false) {
+                            log.log(Level.FINE, String.format("Error polling commands from %s", eventUrl), e);
+                        }
+                    }
+                    if (fired == false) {
+                        // nothing held the request, don't hammer the pod
+                        long remaining = pullMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                        if (remaining > 0) {
+                            try {
+                                Thread.sleep(remaining);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                return;
+                            }
+                        }
+                    }
+                }
+            }
+        });
+        return subscription;
+    }
+
+    static class Subscription {
+        private volatile boolean cancelled;
+
+        void cancel() {
+            cancelled = true;
+        }
+    }
+}
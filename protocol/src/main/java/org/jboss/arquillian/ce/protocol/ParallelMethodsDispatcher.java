@@ -0,0 +1,215 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.protocol;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.jboss.arquillian.ce.runinpod.RunInPodUtils;
+import org.jboss.arquillian.ce.utils.DeploymentContext;
+import org.jboss.arquillian.test.spi.TestResult;
+
+/**
+ * Dispatches a test class' independent methods across ready replicas, once per deployment and class.
+ * <p/>
+ * Arquillian still drives methods one by one, each invoke just picks up its already running result.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+class ParallelMethodsDispatcher {
+    private static final Logger log = Logger.getLogger(ParallelMethodsDispatcher.class.getName());
+
+    // matched by name, the protocol does not depend on a test framework
+    private static final Set<String> TEST_ANNOTATIONS = new HashSet<>(Arrays.asList(
+        "org.junit.Test", "org.testng.annotations.Test"
+    ));
+    private static final Set<String> SEQUENTIAL_ANNOTATIONS = new HashSet<>(Arrays.asList(
+        "org.jboss.arquillian.junit.InSequence", "org.jboss.arquillian.container.test.api.RunAsClient"
+    ));
+    private static final String TESTNG_TEST = "org.testng.annotations.Test";
+    private static final String FIX_METHOD_ORDER = "org.junit.FixMethodOrder";
+    private static final String OPERATE_ON_DEPLOYMENT = "org.jboss.arquillian.container.test.api.OperateOnDeployment";
+
+    private final AtomicInteger counter = new AtomicInteger();
+    private final Set<Class<?>> dispatched = new HashSet<>();
+    private final Map<Method, Future<TestResult>> results = new HashMap<>();
+
+    TestResult invoke(CEServletExecutor executor, Class<?> testClass, Method method, int perPod) {
+        Future<TestResult> future;
+        synchronized (this) {
+            if (dispatched.add(testClass)) {
+                dispatch(executor, testClass, perPod);
+            }
+            future = results.remove(method);
+        }
+        if (future == null) {
+            return executor.invoke(testClass, method);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * A test whose order does not matter, neither on its own nor through its class.
+     */
+    static boolean isIndependent(Class<?> testClass, Method method) {
+        for (Annotation annotation : testClass.getAnnotations()) {
+            String name = annotation.annotationType().getName();
+            if (FIX_METHOD_ORDER.equals(name) || (TESTNG_TEST.equals(name) && isOrdered(annotation))) {
+                return false;
+            }
+        }
+        boolean test = false;
+        for (Annotation annotation : method.getAnnotations()) {
+            String name = annotation.annotationType().getName();
+            if (SEQUENTIAL_ANNOTATIONS.contains(name) || (TESTNG_TEST.equals(name) && isOrdered(annotation))) {
+                return false;
+            }
+            test |= TEST_ANNOTATIONS.contains(name);
+        }
+        return test;
+    }
+
+    /**
+     * TestNG orders methods by their dependencies and priority, and keeps a single threaded class on one thread.
+     */
+    static boolean isOrdered(Annotation test) {
+        return isNotEmpty(ScheduledMethods.value(test, "dependsOnMethods"))
+            || isNotEmpty(ScheduledMethods.value(test, "dependsOnGroups"))
+            || isNonZero(ScheduledMethods.value(test, "priority"))
+            || Boolean.TRUE.equals(ScheduledMethods.value(test, "singleThreaded"));
+    }
+
+    private static boolean isNotEmpty(Object values) {
+        return values instanceof String[] && ((String[]) values).length > 0;
+    }
+
+    private static boolean isNonZero(Object value) {
+        return value instanceof Integer && (Integer) value != 0;
+    }
+
+    /**
+     * Scheduled, independent and invoked against this deployment's pods, run-in-pod methods go to their own deployment.
+     */
+    static boolean isIndependent(Class<?> testClass, Method method, DeploymentContext context) {
+        if (isIndependent(testClass, method) == false || ScheduledMethods.isScheduled(testClass, method) == false || RunInPodUtils.isRunInPod(testClass, method)) {
+            return false;
+        }
+        String target = getTargetDeployment(method);
+        return (target == null) ? context.isDefaultDeployment() : target.equals(context.getDeploymentName());
+    }
+
+    private static String getTargetDeployment(Method method) {
+        for (Annotation annotation : method.getAnnotations()) {
+            if (OPERATE_ON_DEPLOYMENT.equals(annotation.annotationType().getName())) {
+                return String.valueOf(ScheduledMethods.value(annotation, "value"));
+            }
+        }
+        return null;
+    }
+
+    private void dispatch(final CEServletExecutor executor, final Class<?> testClass, int perPod) {
+        List<Method> methods = new ArrayList<>();
+        for (Method method : testClass.getMethods()) {
+            if (isIndependent(testClass, method, executor.getDeploymentContext())) {
+                methods.add(method);
+            }
+        }
+        List<String> pods = new ArrayList<>(executor.getReadyPods());
+        if (methods.isEmpty() || pods.isEmpty()) {
+            return;
+        }
+        Collections.sort(methods, new Comparator<Method>() {
+            public int compare(Method m1, Method m2) {
+                return m1.getName().compareTo(m2.getName());
+            }
+        });
+
+        final int permits = Math.max(1, perPod);
+        final Map<String, Semaphore> limits = new HashMap<>();
+        for (String pod : pods) {
+            limits.put(pod, new Semaphore(permits));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(pods.size() * permits, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "CE-ParallelMethods-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        log.info(String.format("Dispatching %s methods of %s across %s pods, %s per pod.", methods.size(), testClass.getName(), pods.size(), permits));
+
+        int next = 0;
+        for (final Method method : methods) {
+            // explicit targets keep their pod, the rest go round robin
+            final String pod = (CEServletExecutor.targetIndex(method) >= 0) ? executor.locatePodName(method) : pods.get(next++ % pods.size());
+            Semaphore limit = limits.get(pod);
+            if (limit == null) {
+                limit = new Semaphore(permits);
+                limits.put(pod, limit);
+            }
+            final Semaphore semaphore = limit;
+            results.put(method, pool.submit(new Callable<TestResult>() {
+                public TestResult call() throws Exception {
+                    semaphore.acquire();
+                    try {
+                        return executor.invoke(testClass, method, executor.getContextRoot(), pod);
+                    } finally {
+                        semaphore.release();
+                    }
+                }
+            }));
+        }
+        pool.shutdown(); // submitted tasks still run
+    }
+}
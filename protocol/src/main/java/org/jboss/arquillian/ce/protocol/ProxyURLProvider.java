@@ -28,6 +28,7 @@ import java.net.URL;
 import java.util.Map;
 
 import org.jboss.arquillian.ce.proxy.Proxy;
+import org.jboss.arquillian.ce.proxy.Transport;
 import org.jboss.arquillian.ce.utils.DeploymentContext;
 import org.jboss.arquillian.container.spi.client.protocol.metadata.ProtocolMetaData;
 import org.jboss.arquillian.core.api.Instance;
@@ -75,8 +76,13 @@ public class ProxyURLProvider implements ResourceProvider {
 
             String podName = proxy.findPod(labels, 0);
 
-            String spec = proxy.url(podName, 8080, context, null);
-            return new URL(spec);
+            for (Transport transport : proxy.getTransports()) {
+                String spec = transport.url(podName, 8080, context, null);
+                if (spec != null) {
+                    return new URL(spec);
+                }
+            }
+            return new URL(proxy.url(podName, 8080, context, null));
         } catch (Exception e) {
             throw new IllegalStateException(e);
         }
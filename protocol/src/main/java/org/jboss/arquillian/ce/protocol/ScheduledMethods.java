@@ -0,0 +1,160 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.protocol;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.regex.Pattern;
+
+/**
+ * Which test methods the runner is going to invoke, as far as the client side can tell.
+ * <p/>
+ * The protocol never sees the runner's own filter, so this honours @Ignore, TestNG's enabled flag
+ * and Surefire's test property (Class#method patterns). Whatever it cannot decide is reported as not scheduled,
+ * such methods are simply not dispatched ahead and run as usual.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+final class ScheduledMethods {
+    static final String TEST_PROPERTY = "test";
+
+    private static final String IGNORE = "org.junit.Ignore";
+    private static final String TESTNG_TEST = "org.testng.annotations.Test";
+
+    private ScheduledMethods() {
+    }
+
+    static boolean isScheduled(Class<?> testClass, Method method) {
+        return isScheduled(testClass, method, System.getProperty(TEST_PROPERTY));
+    }
+
+    static boolean isScheduled(Class<?> testClass, Method method, String filter) {
+        if (isDisabled(testClass.getAnnotations()) || isDisabled(method.getAnnotations())) {
+            return false;
+        }
+        return (filter == null || filter.trim().isEmpty()) || matchesFilter(testClass, method, filter);
+    }
+
+    private static boolean isDisabled(Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            String name = annotation.annotationType().getName();
+            if (IGNORE.equals(name) || (TESTNG_TEST.equals(name) && Boolean.FALSE.equals(value(annotation, "enabled")))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Surefire's syntax: comma separated patterns, Class#method+method, * wildcards and ! exclusions.
+     */
+    private static boolean matchesFilter(Class<?> testClass, Method method, String filter) {
+        boolean included = false;
+        boolean inclusions = false;
+        for (String pattern : filter.split(",")) {
+            pattern = pattern.trim();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            if (pattern.contains("%regex[")) {
+                return false; // too much to mirror here
+            }
+            boolean exclusion = pattern.startsWith("!");
+            if (exclusion) {
+                pattern = pattern.substring(1);
+            } else {
+                inclusions = true;
+            }
+            if (matches(testClass, method, pattern)) {
+                if (exclusion) {
+                    return false;
+                }
+                included = true;
+            }
+        }
+        return included || inclusions == false;
+    }
+
+    private static boolean matches(Class<?> testClass, Method method, String pattern) {
+        int p = pattern.indexOf('#');
+        String classPattern = (p >= 0) ? pattern.substring(0, p) : pattern;
+        if (classPattern.isEmpty() == false && matchesClass(testClass, classPattern) == false) {
+            return false;
+        }
+        if (p < 0) {
+            return true;
+        }
+        for (String methodPattern : pattern.substring(p + 1).split("\\+")) {
+            if (methodPattern.isEmpty() || toRegex(methodPattern, ".*").matcher(method.getName()).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesClass(Class<?> testClass, String classPattern) {
+        if (classPattern.endsWith(".java") || classPattern.endsWith(".class")) {
+            classPattern = classPattern.substring(0, classPattern.lastIndexOf('.'));
+        }
+        Pattern regex = Pattern.compile("(.*\\.)?" + toRegex(classPattern.replace('/', '.'), "[^.]*").pattern());
+        return regex.matcher(testClass.getName()).matches();
+    }
+
+    private static Pattern toRegex(String glob, String star) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                    regex.append(".*");
+                    i++;
+                } else {
+                    regex.append(star);
+                }
+            } else if (c == '?') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * @return the annotation's attribute, null if this version of the annotation does not have it
+     */
+    static Object value(Annotation annotation, String attribute) {
+        Method method;
+        try {
+            method = annotation.annotationType().getMethod(attribute);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+        try {
+            return method.invoke(annotation);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.protocol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.arquillian.ce.utils.DeploymentContext;
+import org.jboss.arquillian.container.spi.client.protocol.metadata.HTTPContext;
+import org.jboss.arquillian.container.spi.client.protocol.metadata.ProtocolMetaData;
+import org.jboss.arquillian.container.spi.client.protocol.metadata.Servlet;
+import org.jboss.arquillian.junit.InSequence;
+import org.jboss.arquillian.test.spi.TestResult;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class BatchDispatcherTest {
+
+    public static class Fixture {
+        @Test
+        public void testOne() {
+        }
+
+        @Test
+        public void testTwo() {
+        }
+
+        @Test
+        @Ignore
+        public void testIgnored() {
+        }
+
+        @Test
+        @InSequence(1)
+        public void testInSequence() {
+        }
+    }
+
+    private static class TestExecutor extends CEServletExecutor {
+        private final List<String> batched = new ArrayList<>();
+        private final List<String> invoked = new ArrayList<>();
+        private Exception failure;
+
+        private TestExecutor() {
+            super(new CEProtocolConfiguration(), new ProtocolMetaData()
+                .addContext(new HTTPContext("localhost", 8080).add(new Servlet(ARQUILLIAN_SERVLET_NAME, "/test")))
+                .addContext(new DeploymentContext(null, Collections.<String, String>emptyMap(), null)), null);
+        }
+
+        String locatePodName(Method method) {
+            return "pod-1";
+        }
+
+        List<TestResult> invokeBatch(Class<?> testClass, List<Method> methods, String podName, int threads) {
+            List<TestResult> results = new ArrayList<>();
+            for (Method method : methods) {
+                batched.add(method.getName());
+                results.add(TestResult.passed());
+            }
+            if (failure != null) {
+                throw new IllegalStateException("Error launching test batch", failure);
+            }
+            return results;
+        }
+
+        TestResult invoke(Class<?> testClass, Method method) {
+            invoked.add(method.getName());
+            return TestResult.passed();
+        }
+    }
+
+    private static TestResult invoke(BatchDispatcher dispatcher, TestExecutor executor, String name) throws Exception {
+        return dispatcher.invoke(executor, Fixture.class, Fixture.class.getMethod(name), 1);
+    }
+
+    private static void withFilter(String filter, Runnable runnable) {
+        String previous = System.getProperty(ScheduledMethods.TEST_PROPERTY);
+        if (filter != null) {
+            System.setProperty(ScheduledMethods.TEST_PROPERTY, filter);
+        } else {
+            System.clearProperty(ScheduledMethods.TEST_PROPERTY);
+        }
+        try {
+            runnable.run();
+        } finally {
+            if (previous != null) {
+                System.setProperty(ScheduledMethods.TEST_PROPERTY, previous);
+            } else {
+                System.clearProperty(ScheduledMethods.TEST_PROPERTY);
+            }
+        }
+    }
+
+    @Test
+    public void testBatchesScheduledMethods() throws Exception {
+        final BatchDispatcher dispatcher = new BatchDispatcher();
+        final TestExecutor executor = new TestExecutor();
+        withFilter(null, new Runnable() {
+            public void run() {
+                try {
+                    invoke(dispatcher, executor, "testOne");
+                    invoke(dispatcher, executor, "testTwo");
+                    invoke(dispatcher, executor, "testInSequence");
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        Collections.sort(executor.batched);
+        assertEquals(Arrays.asList("testOne", "testTwo"), executor.batched);
+        assertEquals(Collections.singletonList("testInSequence"), executor.invoked);
+    }
+
+    @Test
+    public void testFilteredMethodsAreNotBatched() throws Exception {
+        final BatchDispatcher dispatcher = new BatchDispatcher();
+        final TestExecutor executor = new TestExecutor();
+        withFilter("BatchDispatcherTest$Fixture#testTwo", new Runnable() {
+            public void run() {
+                try {
+                    invoke(dispatcher, executor, "testTwo");
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        assertEquals(Collections.singletonList("testTwo"), executor.batched);
+        assertTrue(executor.invoked.isEmpty());
+    }
+
+    @Test
+    public void testConnectFailureFallsBack() throws Exception {
+        final BatchDispatcher dispatcher = new BatchDispatcher();
+        final TestExecutor executor = new TestExecutor();
+        executor.failure = new ConnectException("Connection refused");
+        withFilter(null, new Runnable() {
+            public void run() {
+                try {
+                    assertEquals(TestResult.Status.PASSED, invoke(dispatcher, executor, "testOne").getStatus());
+                    assertEquals(TestResult.Status.PASSED, invoke(dispatcher, executor, "testTwo").getStatus());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        assertEquals(Arrays.asList("testOne", "testTwo"), executor.invoked);
+    }
+
+    @Test
+    public void testOtherFailureIsTheResult() throws Exception {
+        final BatchDispatcher dispatcher = new BatchDispatcher();
+        final TestExecutor executor = new TestExecutor();
+        final IOException failure = new IOException("unexpected end of stream");
+        executor.failure = failure;
+        withFilter(null, new Runnable() {
+            public void run() {
+                try {
+                    TestResult result = invoke(dispatcher, executor, "testOne");
+                    assertEquals(TestResult.Status.FAILED, result.getStatus());
+                    assertSame(failure, result.getThrowable().getCause());
+                    assertEquals(TestResult.Status.FAILED, invoke(dispatcher, executor, "testTwo").getStatus());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        assertTrue(executor.invoked.isEmpty());
+    }
+}
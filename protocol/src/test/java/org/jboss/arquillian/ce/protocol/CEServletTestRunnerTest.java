@@ -0,0 +1,186 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.protocol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.net.ssl.SSLContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import org.jboss.arquillian.ce.cache.WatchListener;
+import org.jboss.arquillian.ce.metrics.ApiMetrics;
+import org.jboss.arquillian.ce.proxy.AbstractProxy;
+import org.jboss.arquillian.ce.spi.WebSPIConfiguration;
+import org.jboss.arquillian.ce.utils.Configuration;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class CEServletTestRunnerTest {
+
+    /**
+     * Servlet response over the exchange, just what GzipResponse uses.
+     */
+    private static HttpServletResponse toResponse(final HttpExchange exchange) {
+        return (HttpServletResponse) Proxy.newProxyInstance(CEServletTestRunnerTest.class.getClassLoader(), new Class[]{HttpServletResponse.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if ("setHeader".equals(method.getName())) {
+                    exchange.getResponseHeaders().set((String) args[0], (String) args[1]);
+                } else if ("getOutputStream".equals(method.getName())) {
+                    exchange.sendResponseHeaders(200, 0);
+                    final OutputStream body = exchange.getResponseBody();
+                    return new ServletOutputStream() {
+                        public void write(int b) throws IOException {
+                            body.write(b);
+                        }
+
+                        public void write(byte[] b, int off, int len) throws IOException {
+                            body.write(b, off, len);
+                        }
+                    };
+                }
+                return null;
+            }
+        });
+    }
+
+    @Test
+    public void testGzipRoundTrip() throws Exception {
+        final List<Long> encodeNanos = new ArrayList<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    Object request;
+                    try (ObjectInputStream ois = new ObjectInputStream(exchange.getRequestBody())) {
+                        request = ois.readObject();
+                    } catch (ClassNotFoundException e) {
+                        throw new IOException(e);
+                    }
+                    ArrayList<String> results = new ArrayList<>();
+                    for (int i = 0; i < 1000; i++) {
+                        results.add(request + "-" + i);
+                    }
+                    CEServletTestRunner.GzipResponse response = new CEServletTestRunner.GzipResponse(toResponse(exchange));
+                    ObjectOutputStream oos = new ObjectOutputStream(response.getOutputStream());
+                    oos.writeObject(results);
+                    oos.flush();
+                    response.finish();
+                    synchronized (encodeNanos) {
+                        encodeNanos.add(response.getEncodeNanos());
+                    }
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+
+        ApiMetrics.getInstance().reset();
+        TestProxy proxy = new TestProxy();
+        try {
+            String url = String.format("http://127.0.0.1:%s/test?outputMode=%s", server.getAddress().getPort(), CEServletTestRunner.OUTPUT_MODE_GZIP);
+            ArrayList<?> results = proxy.post(url, ArrayList.class, "result");
+            assertEquals(1000, results.size());
+            assertEquals("result-999", results.get(999));
+        } finally {
+            proxy.close();
+            server.stop(0);
+        }
+
+        assertEquals(1, encodeNanos.size());
+        assertTrue(encodeNanos.get(0) > 0);
+        String dump = ApiMetrics.getInstance().dump();
+        assertTrue(dump, dump.contains("ENCODE identity [String]"));
+        assertTrue(dump, dump.contains("DECODE gzip [ArrayList]"));
+        // compressed on the wire, 1000 similar strings are far less than their serialized size
+        assertTrue(dump, ApiMetrics.getInstance().getBytesReceived() < 1000 * "result-999".length());
+    }
+
+    private static class TestProxy extends AbstractProxy<Object> {
+        private TestProxy() {
+            super(createConfiguration());
+        }
+
+        private static Configuration createConfiguration() {
+            Configuration configuration = new WebSPIConfiguration();
+            configuration.setKubernetesMaster("http://127.0.0.1:1");
+            configuration.setNamespace("test");
+            return configuration;
+        }
+
+        public SSLContext getSSLContext() {
+            return null;
+        }
+
+        protected OkHttpClient getHttpClient() {
+            return new OkHttpClient();
+        }
+
+        protected List<Object> listPods(Map<String, String> labels) {
+            return Collections.emptyList();
+        }
+
+        protected Closeable watchPods(Map<String, String> labels, WatchListener<Object> listener) {
+            return null;
+        }
+
+        protected String getName(Object pod) {
+            return null;
+        }
+
+        protected Map<String, String> getLabels(Object pod) {
+            return null;
+        }
+
+        protected boolean isReady(Object pod) {
+            return false;
+        }
+
+        protected String getIP(Object pod) {
+            return null;
+        }
+    }
+}
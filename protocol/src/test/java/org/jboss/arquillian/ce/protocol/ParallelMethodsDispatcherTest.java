@@ -0,0 +1,167 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.protocol;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.Method;
+import java.util.Collections;
+
+import org.jboss.arquillian.ce.utils.DeploymentContext;
+import org.jboss.arquillian.container.test.api.OperateOnDeployment;
+import org.jboss.arquillian.container.test.api.RunAsClient;
+import org.jboss.arquillian.junit.InSequence;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class ParallelMethodsDispatcherTest {
+
+    // same attributes as TestNG's @Test, which is not on the classpath
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface Ordering {
+        String[] dependsOnMethods() default {};
+
+        String[] dependsOnGroups() default {};
+
+        int priority() default 0;
+
+        boolean singleThreaded() default false;
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface Legacy {
+        String[] dependsOnMethods() default {};
+    }
+
+    public static class Fixture {
+        @Test
+        public void testPlain() {
+        }
+
+        public void helper() {
+        }
+
+        @Test
+        @InSequence(1)
+        public void testInSequence() {
+        }
+
+        @Test
+        @RunAsClient
+        public void testRunAsClient() {
+        }
+
+        @Test
+        @Ignore
+        public void testIgnored() {
+        }
+
+        @Test
+        @OperateOnDeployment("other")
+        public void testOther() {
+        }
+
+        @Ordering
+        public void unordered() {
+        }
+
+        @Ordering(dependsOnMethods = "testPlain")
+        public void dependsOnMethods() {
+        }
+
+        @Ordering(dependsOnGroups = "first")
+        public void dependsOnGroups() {
+        }
+
+        @Ordering(priority = 1)
+        public void priority() {
+        }
+
+        @Ordering(singleThreaded = true)
+        public void singleThreaded() {
+        }
+
+        @Legacy
+        public void legacy() {
+        }
+    }
+
+    private static Method method(String name) throws Exception {
+        return Fixture.class.getMethod(name);
+    }
+
+    private static boolean ordered(String name) throws Exception {
+        Method method = method(name);
+        return ParallelMethodsDispatcher.isOrdered(method.getAnnotations()[0]);
+    }
+
+    @Test
+    public void testIndependent() throws Exception {
+        assertTrue(ParallelMethodsDispatcher.isIndependent(Fixture.class, method("testPlain")));
+        assertFalse(ParallelMethodsDispatcher.isIndependent(Fixture.class, method("helper")));
+        assertFalse(ParallelMethodsDispatcher.isIndependent(Fixture.class, method("testInSequence")));
+        assertFalse(ParallelMethodsDispatcher.isIndependent(Fixture.class, method("testRunAsClient")));
+    }
+
+    @Test
+    public void testOrdered() throws Exception {
+        assertFalse(ordered("unordered"));
+        assertTrue(ordered("dependsOnMethods"));
+        assertTrue(ordered("dependsOnGroups"));
+        assertTrue(ordered("priority"));
+        assertTrue(ordered("singleThreaded"));
+        assertFalse(ordered("legacy"));
+    }
+
+    @Test
+    public void testScheduledAndTargeted() throws Exception {
+        DeploymentContext context = new DeploymentContext(null, Collections.<String, String>emptyMap(), null);
+        String previous = System.getProperty(ScheduledMethods.TEST_PROPERTY);
+        System.clearProperty(ScheduledMethods.TEST_PROPERTY);
+        try {
+            assertTrue(ParallelMethodsDispatcher.isIndependent(Fixture.class, method("testPlain"), context));
+            assertFalse(ParallelMethodsDispatcher.isIndependent(Fixture.class, method("testIgnored"), context));
+            assertFalse(ParallelMethodsDispatcher.isIndependent(Fixture.class, method("testOther"), context));
+
+            System.setProperty(ScheduledMethods.TEST_PROPERTY, "ParallelMethodsDispatcherTest$Fixture#testOther");
+            assertFalse(ParallelMethodsDispatcher.isIndependent(Fixture.class, method("testPlain"), context));
+
+            context.setDeploymentName("other");
+            context.setDefaultDeployment(false);
+            assertTrue(ParallelMethodsDispatcher.isIndependent(Fixture.class, method("testOther"), context));
+        } finally {
+            if (previous != null) {
+                System.setProperty(ScheduledMethods.TEST_PROPERTY, previous);
+            } else {
+                System.clearProperty(ScheduledMethods.TEST_PROPERTY);
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.protocol;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class ScheduledMethodsTest {
+
+    public static class Fixture {
+        @Test
+        public void testFoo() {
+        }
+
+        @Test
+        public void testBar() {
+        }
+
+        @Ignore
+        @Test
+        public void testIgnored() {
+        }
+    }
+
+    @Ignore
+    public static class IgnoredFixture {
+        @Test
+        public void testFoo() {
+        }
+    }
+
+    private static Method method(Class<?> testClass, String name) throws Exception {
+        return testClass.getMethod(name);
+    }
+
+    private static boolean scheduled(String methodName, String filter) throws Exception {
+        return ScheduledMethods.isScheduled(Fixture.class, method(Fixture.class, methodName), filter);
+    }
+
+    @Test
+    public void testNoFilter() throws Exception {
+        assertTrue(scheduled("testFoo", null));
+        assertTrue(scheduled("testFoo", " "));
+    }
+
+    @Test
+    public void testIgnore() throws Exception {
+        assertFalse(scheduled("testIgnored", null));
+        assertFalse(ScheduledMethods.isScheduled(IgnoredFixture.class, method(IgnoredFixture.class, "testFoo"), null));
+    }
+
+    @Test
+    public void testClassPatterns() throws Exception {
+        assertTrue(scheduled("testFoo", "ScheduledMethodsTest$Fixture"));
+        assertTrue(scheduled("testFoo", Fixture.class.getName()));
+        assertTrue(scheduled("testFoo", "org/jboss/arquillian/ce/protocol/ScheduledMethodsTest$Fixture.java"));
+        assertTrue(scheduled("testFoo", "**/Scheduled*$Fixture"));
+        assertTrue(scheduled("testFoo", "OtherTest,ScheduledMethodsTest$*"));
+        assertFalse(scheduled("testFoo", "OtherTest"));
+        assertFalse(scheduled("testFoo", "protocol"));
+    }
+
+    @Test
+    public void testMethodPatterns() throws Exception {
+        assertTrue(scheduled("testFoo", "ScheduledMethodsTest$Fixture#testFoo"));
+        assertFalse(scheduled("testBar", "ScheduledMethodsTest$Fixture#testFoo"));
+        assertTrue(scheduled("testBar", "ScheduledMethodsTest$Fixture#testFoo+testBar"));
+        assertTrue(scheduled("testBar", "*$Fixture#test*"));
+        assertTrue(scheduled("testBar", "#testB?r"));
+        assertFalse(scheduled("testIgnored", "ScheduledMethodsTest$Fixture#testIgnored"));
+    }
+
+    @Test
+    public void testExclusions() throws Exception {
+        assertFalse(scheduled("testFoo", "!ScheduledMethodsTest$Fixture#testFoo"));
+        assertTrue(scheduled("testBar", "!ScheduledMethodsTest$Fixture#testFoo"));
+        assertFalse(scheduled("testFoo", "*$Fixture, !*#testFoo"));
+    }
+
+    @Test
+    public void testRegexNotScheduled() throws Exception {
+        assertFalse(scheduled("testFoo", "%regex[.*Fixture.*]"));
+    }
+}
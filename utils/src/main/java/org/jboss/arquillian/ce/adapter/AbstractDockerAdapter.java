@@ -0,0 +1,273 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.AccessController;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivilegedAction;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import org.jboss.arquillian.ce.utils.Configuration;
+import org.jboss.arquillian.ce.utils.DockerFileTemplateHandler;
+import org.jboss.arquillian.ce.utils.RegistryLookup;
+import org.jboss.arquillian.ce.utils.StringResolver;
+import org.jboss.arquillian.ce.utils.Strings;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.asset.ArchiveAsset;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.exporter.ZipExporter;
+
+/**
+ * Dockerfile, image naming and temp dir handling, common to all image builders.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public abstract class AbstractDockerAdapter implements DockerAdapter {
+    protected static final Charset UTF_8 = Charset.forName("UTF-8");
+    private final static Logger log = Logger.getLogger(AbstractDockerAdapter.class.getName());
+    private static final File tmpDir;
+
+    static {
+        tmpDir = getTempRoot();
+    }
+
+    protected final Configuration configuration;
+    protected final RegistryLookup lookup;
+
+    private Map<String, File> dirs = new ConcurrentHashMap<>();
+    protected Map<String, String> images = new ConcurrentHashMap<>();
+
+    protected AbstractDockerAdapter(Configuration configuration, RegistryLookup lookup) {
+        this.configuration = configuration;
+        this.lookup = lookup;
+    }
+
+    protected static File getTempRoot() {
+        return AccessController.doPrivileged(new PrivilegedAction<File>() {
+            public File run() {
+                File root = new File(System.getProperty("java.io.tmpdir"));
+                log.info(String.format("Get temp root: %s", root));
+                return root;
+            }
+        });
+    }
+
+    /**
+     * Temp dir is only created for those who need it, e.g. a git checkout; Docker builds don't.
+     */
+    public synchronized File getDir(Archive<?> archive) {
+        File dir = dirs.get(archive.getName());
+        if (dir == null) {
+            dir = new File(tmpDir, "ce_" + UUID.randomUUID().toString());
+            if (dir.mkdirs() == false) {
+                throw new IllegalStateException("Cannot create dir: " + dir);
+            }
+            dirs.put(archive.getName(), dir);
+        }
+        return dir;
+    }
+
+    public void prepare(Archive<?> archive) {
+        // nothing to prepare, see getDir
+    }
+
+    public void reset(Archive<?> archive) {
+        try {
+            if (configuration.performCleanup()) {
+                String imageId = images.get(archive.getName());
+                if (imageId != null) {
+                    cleanupImage(imageId);
+                }
+            }
+        } finally {
+            File dir = dirs.remove(archive.getName());
+            if (dir != null) {
+                delete(dir);
+            }
+        }
+    }
+
+    protected void cleanupImage(String imageId) {
+        try {
+            removeImage(imageId);
+        } catch (Exception e) {
+            log.info(String.format("Error -- removing Docker image [%s] - %s", imageId, e));
+        }
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    private void delete(File target) {
+        for (File file : target.listFiles()) {
+            if (file.isDirectory()) {
+                delete(file);
+            } else {
+                file.delete();
+            }
+        }
+        target.delete();
+    }
+
+    public File exportAsZip(File dir, Archive<?> deployment) {
+        return exportAsZip(dir, deployment, deployment.getName());
+    }
+
+    public File exportAsZip(File dir, Archive<?> deployment, String name) {
+        ZipExporter exporter = deployment.as(ZipExporter.class);
+        File target = new File(dir, name);
+        exporter.exportTo(target);
+        return target;
+    }
+
+    /**
+     * Apply the template handler and resolve the Dockerfile template.
+     */
+    protected String resolveDockerfile(DockerAdapterContext context) throws IOException {
+        final DockerFileTemplateHandler dth = context.getHandler();
+        final Properties properties = context.getProperties();
+
+        // Create Dockerfile
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (InputStream stream = context.getDockerfileTemplate()) {
+            copy(stream, baos);
+        }
+
+        properties.put("deployment.name", context.getDeployment().getName());
+
+        // apply custom DockerFile changes
+        if (dth != null) {
+            dth.apply(baos);
+        }
+
+        final StringResolver resolver = Strings.createStringResolver(properties);
+        String df = resolver.resolve(baos.toString());
+        log.info(String.format("Docker file:\n---\n%s---", df));
+        return df;
+    }
+
+    /**
+     * @return registry host, with port if any
+     */
+    protected static String getRegistryHost(RegistryLookup.RegistryLookupEntry rle) {
+        return (rle.getPort() != null) ? rle.getIp() + ":" + rle.getPort() : rle.getIp();
+    }
+
+    /**
+     * https://access.redhat.com/documentation/en/red-hat-enterprise-linux-atomic-host/7/recommended-practices-for-container-development/chapter-4-image-naming-conventions
+     *
+     * @return repository in the registry, group/prefix+namespace
+     */
+    protected String getRepository(DockerAdapterContext context) {
+        return configuration.getImageGroup() + "/" + context.getImageNamePrefix() + configuration.getNamespace();
+    }
+
+    /**
+     * Concurrent builds all push to the same repository, so each deployment needs its own tag,
+     * else a DC could pull whichever image was pushed last.
+     */
+    protected boolean isContentTag() {
+        return configuration.isContentTag() || configuration.isConcurrentDeployment();
+    }
+
+    /**
+     * Fingerprint of the archive's content, the resolved Dockerfile and the base image.
+     * Archive entries are hashed by path and content, zip timestamps don't matter.
+     * The base image's digest changes the tag when its name is moved to a rebuilt image, null if unknown.
+     */
+    static String contentTag(Archive<?> deployment, String dockerfile, String from, String fromDigest) throws IOException {
+        MessageDigest digest = sha256();
+        digest.update(String.valueOf(from).getBytes(UTF_8));
+        digest.update(String.valueOf(fromDigest).getBytes(UTF_8));
+        digest.update(dockerfile.getBytes(UTF_8));
+        digest(digest, deployment);
+
+        StringBuilder builder = new StringBuilder("ce-");
+        byte[] bytes = digest.digest();
+        for (int i = 0; i < 16; i++) {
+            builder.append(String.format("%02x", bytes[i]));
+        }
+        return builder.toString();
+    }
+
+    private static void digest(MessageDigest digest, Archive<?> archive) throws IOException {
+        digest.update(archive.getName().getBytes(UTF_8));
+        Map<ArchivePath, Node> content = new TreeMap<>(archive.getContent());
+        for (Map.Entry<ArchivePath, Node> entry : content.entrySet()) {
+            digest.update(entry.getKey().get().getBytes(UTF_8));
+            Asset asset = entry.getValue().getAsset();
+            if (asset instanceof ArchiveAsset) {
+                digest(digest, ((ArchiveAsset) asset).getArchive());
+            } else if (asset != null) {
+                try (InputStream stream = asset.openStream()) {
+                    final byte[] buffer = new byte[4096];
+                    int read;
+                    while ((read = stream.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+            }
+        }
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return sha256:hex digest of the bytes
+     */
+    static String sha256(byte[] bytes) {
+        StringBuilder builder = new StringBuilder("sha256:");
+        for (byte b : sha256().digest(bytes)) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+
+    protected static void copy(InputStream input, OutputStream output) throws IOException {
+        final byte[] buffer = new byte[4096];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+        output.flush();
+    }
+}
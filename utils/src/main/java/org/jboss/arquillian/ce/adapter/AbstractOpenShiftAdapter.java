@@ -23,25 +23,49 @@
 
 package org.jboss.arquillian.ce.adapter;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.net.SocketTimeoutException;
+import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
+import org.jboss.arquillian.ce.api.AsyncOpenShiftHandle;
+import org.jboss.arquillian.ce.api.ExecResult;
+import org.jboss.arquillian.ce.api.LogOptions;
+import org.jboss.arquillian.ce.cache.Informer;
+import org.jboss.arquillian.ce.cache.TemplateCache;
 import org.jboss.arquillian.ce.proxy.Proxy;
 import org.jboss.arquillian.ce.resources.OpenShiftResourceHandle;
-import org.jboss.arquillian.ce.utils.Checker;
+import org.jboss.arquillian.ce.resources.ResourceBatch;
+import org.jboss.arquillian.ce.utils.BoundedOutputStream;
 import org.jboss.arquillian.ce.utils.Configuration;
-import org.jboss.arquillian.ce.utils.Containers;
 import org.jboss.arquillian.ce.utils.DeploymentContext;
 import org.jboss.arquillian.ce.utils.Operator;
+import org.jboss.arquillian.ce.utils.ReadyPodsChecker;
 import org.jboss.arquillian.ce.utils.ReflectionUtils;
 import org.jboss.arquillian.container.spi.client.protocol.metadata.ProtocolMetaData;
 import org.jboss.arquillian.core.api.Instance;
@@ -56,11 +80,21 @@ import org.json.simple.parser.ParseException;
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
  */
 public abstract class AbstractOpenShiftAdapter implements OpenShiftAdapter {
+    // what tests create, service accounts, their secrets and role bindings stay
+    private static final String[] SCRUB_KINDS = {
+        "deploymentconfigs", "buildconfigs", "builds", "replicationcontrollers", "pods", "services",
+        "routes", "imagestreams", "templates", "configmaps", "persistentvolumeclaims"
+    };
+    private static final int MAX_LOG_LINE = 16 * 1024;
+    private static final int MAX_EXEC_OUTPUT = 1024 * 1024;
+
     protected final Logger log = Logger.getLogger(getClass().getName());
 
     protected final Configuration configuration;
     private Map<String, List<OpenShiftResourceHandle>> resourcesMap = new ConcurrentHashMap<>();
     private Proxy proxy;
+    private AsyncOpenShiftAdapter asyncHandle;
+    private final List<Informer<?>> informers = new CopyOnWriteArrayList<>();
     private Instance<ProtocolMetaData> pmdInstance;
 
     protected AbstractOpenShiftAdapter(Configuration configuration) {
@@ -102,7 +136,50 @@ public abstract class AbstractOpenShiftAdapter implements OpenShiftAdapter {
         return proxy;
     }
 
-    private void addResourceHandle(String resourcesKey, OpenShiftResourceHandle handle) {
+    public synchronized AsyncOpenShiftHandle getAsyncHandle() {
+        if (asyncHandle == null) {
+            asyncHandle = new AsyncOpenShiftAdapter(this, configuration.getAsyncParallelism());
+        }
+        return asyncHandle;
+    }
+
+    /**
+     * Create namespace resource cache, closed together with this adapter.
+     *
+     * @param kind   the resource kind
+     * @param source the list / watch source
+     * @return new cache
+     */
+    protected <T> Informer<T> createInformer(String kind, Informer.Source<T> source) {
+        String description = String.format("%s in %s", kind, configuration.getNamespace());
+        Informer<T> informer = new Informer<>(description, source, TimeUnit.SECONDS.toMillis(configuration.getPodCacheStaleness()));
+        informers.add(informer);
+        return informer;
+    }
+
+    public void close() throws IOException {
+        for (Informer<?> informer : informers) {
+            informer.close();
+        }
+        informers.clear();
+
+        Proxy current;
+        AsyncOpenShiftAdapter async;
+        synchronized (this) {
+            current = proxy;
+            proxy = null;
+            async = asyncHandle;
+            asyncHandle = null;
+        }
+        if (async != null) {
+            async.close();
+        }
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private synchronized void addResourceHandle(String resourcesKey, OpenShiftResourceHandle handle) {
         List<OpenShiftResourceHandle> list = resourcesMap.get(resourcesKey);
         if (list == null) {
             list = new ArrayList<>();
@@ -111,6 +188,52 @@ public abstract class AbstractOpenShiftAdapter implements OpenShiftAdapter {
         list.add(handle);
     }
 
+    /**
+     * Run tasks concurrently, bounded by resources parallelism.
+     * All tasks are run to completion; successful results are added in tasks order, then the first failure is re-thrown.
+     *
+     * @param tasks   the tasks
+     * @param results the successful results
+     * @throws Exception the first failure
+     */
+    protected <T> void invokeAll(List<Callable<T>> tasks, List<T> results) throws Exception {
+        int parallelism = Math.min(configuration.getResourcesParallelism(), tasks.size());
+        if (parallelism <= 1) {
+            for (Callable<T> task : tasks) {
+                results.add(task.call());
+            }
+            return;
+        }
+
+        Exception failure = null;
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        Throwable cause = e.getCause();
+                        failure = (cause instanceof Exception) ? (Exception) cause : e;
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public InputStream openStream(String url) throws IOException {
+        if (configuration.isTemplateCache()) {
+            return TemplateCache.getInstance(configuration).openStream(url);
+        } else {
+            return new URL(url).openStream();
+        }
+    }
+
     protected abstract OpenShiftResourceHandle createResourceFromStream(InputStream stream) throws IOException;
 
     public Object createResource(String resourcesKey, InputStream stream) throws IOException {
@@ -119,6 +242,34 @@ public abstract class AbstractOpenShiftAdapter implements OpenShiftAdapter {
         return resourceHandle;
     }
 
+    public Object createResources(String resourcesKey, ResourceBatch batch) throws Exception {
+        List<OpenShiftResourceHandle> handles = new ArrayList<>();
+        try {
+            for (List<ResourceBatch.Entry> stage : batch.getStages()) {
+                log.info(String.format("Creating %s OpenShift resource(s): %s", stage.size(), stage));
+                List<Callable<OpenShiftResourceHandle>> tasks = new ArrayList<>();
+                for (final ResourceBatch.Entry entry : stage) {
+                    tasks.add(new Callable<OpenShiftResourceHandle>() {
+                        public OpenShiftResourceHandle call() throws Exception {
+                            if (entry.isRoleBinding()) {
+                                return createRoleBinding(entry.getRoleRefName(), entry.getUserName());
+                            } else {
+                                return createResourceFromStream(entry.openStream());
+                            }
+                        }
+                    });
+                }
+                invokeAll(tasks, handles);
+            }
+        } finally {
+            // whatever got created, deleteResources should undo
+            for (OpenShiftResourceHandle handle : handles) {
+                addResourceHandle(resourcesKey, handle);
+            }
+        }
+        return handles;
+    }
+
     public Object deleteResources(String resourcesKey) {
         List<OpenShiftResourceHandle> list = resourcesMap.remove(resourcesKey);
         if (list != null) {
@@ -129,6 +280,86 @@ public abstract class AbstractOpenShiftAdapter implements OpenShiftAdapter {
         return list;
     }
 
+    protected long getDeleteGracePeriod() {
+        return configuration.isZeroGraceDelete() ? 0 : -1;
+    }
+
+    /**
+     * Delete all resources of given kinds matching labels, one collection delete per kind, kinds concurrently.
+     *
+     * @param labels the labels
+     * @param kinds  the resource plurals, e.g. pods
+     * @return kinds still to be cleaned, e.g. bulk delete is disabled or not supported by the server
+     */
+    protected Set<String> bulkDelete(final Map<String, String> labels, String... kinds) {
+        Set<String> remaining = new HashSet<>(Arrays.asList(kinds));
+        if (configuration.isBulkDelete() == false || labels == null || labels.isEmpty()) {
+            return remaining; // never delete whole namespace
+        }
+
+        final Proxy proxy = getProxy();
+        final long gracePeriod = getDeleteGracePeriod();
+        List<Callable<String>> tasks = new ArrayList<>();
+        for (final String kind : kinds) {
+            tasks.add(new Callable<String>() {
+                public String call() throws Exception {
+                    try {
+                        if (proxy.deleteCollection(kind, labels, gracePeriod)) {
+                            log.info(String.format("Deleted %s %s.", kind, labels));
+                            return kind;
+                        }
+                    } catch (Exception e) {
+                        log.log(Level.WARNING, String.format("Exception while deleting %s %s: %s", kind, labels, e), e);
+                    }
+                    return null;
+                }
+            });
+        }
+        List<String> deleted = new ArrayList<>();
+        try {
+            invokeAll(tasks, deleted);
+        } catch (Exception e) {
+            log.log(Level.WARNING, String.format("Exception while deleting %s %s: %s", remaining, labels, e), e);
+        }
+        remaining.removeAll(deleted);
+        return remaining;
+    }
+
+    public boolean checkProject() {
+        return createProject(configuration.getNamespace());
+    }
+
+    public boolean deleteProject() {
+        return deleteProject(configuration.getNamespace());
+    }
+
+    public void scrubProject() {
+        final Proxy proxy = getProxy();
+        final Map<String, String> all = Collections.emptyMap();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (final String kind : SCRUB_KINDS) {
+            tasks.add(new Callable<Void>() {
+                public Void call() throws Exception {
+                    try {
+                        // pods go right away, so the next lease doesn't see them terminating
+                        long gracePeriod = "pods".equals(kind) ? 0 : getDeleteGracePeriod();
+                        if (proxy.deleteCollection(kind, all, gracePeriod) == false) {
+                            log.warning(String.format("Cannot scrub %s in %s, no collection delete.", kind, configuration.getNamespace()));
+                        }
+                    } catch (Exception e) {
+                        log.log(Level.WARNING, String.format("Exception while scrubbing %s in %s: %s", kind, configuration.getNamespace(), e), e);
+                    }
+                    return null;
+                }
+            });
+        }
+        try {
+            invokeAll(tasks, new ArrayList<Void>());
+        } catch (Exception e) {
+            log.log(Level.WARNING, String.format("Exception while scrubbing %s: %s", configuration.getNamespace(), e), e);
+        }
+    }
+
     protected abstract OpenShiftResourceHandle createRoleBinding(String roleRefName, String userName);
 
     public Object addRoleBinding(String resourcesKey, String roleRefName, String userName) {
@@ -141,7 +372,7 @@ public abstract class AbstractOpenShiftAdapter implements OpenShiftAdapter {
 
     public void waitForReadyPods(String prefix, int replicas) throws Exception {
         final Map<String, String> labels = getLabels(prefix);
-        Containers.delay(configuration.getStartupTimeout(), 4000L, new PodCountChecker(labels, Operator.EQUAL, replicas));
+        getProxy().awaitReadyPods(labels, new PodCountChecker(labels, Operator.EQUAL, replicas), configuration.getStartupTimeout());
     }
 
     public void replacePods(String prefix, int size, final int replicas) throws Exception {
@@ -157,14 +388,13 @@ public abstract class AbstractOpenShiftAdapter implements OpenShiftAdapter {
             size--;
         }
 
-        Containers.delay(configuration.getStartupTimeout(), 4000L, new PodCountChecker(labels, Operator.EQUAL, replicas) {
+        getProxy().awaitReadyPods(labels, new PodCountChecker(labels, Operator.EQUAL, replicas) {
             @Override
-            protected Set<String> getReadyPods() {
-                Set<String> pods = super.getReadyPods();
+            protected Set<String> filter(Set<String> pods) {
                 pods.removeAll(deleted);
                 return pods;
             }
-        });
+        }, configuration.getStartupTimeout());
     }
 
     public Set<String> getReadyPods(String prefix) throws Exception {
@@ -175,8 +405,122 @@ public abstract class AbstractOpenShiftAdapter implements OpenShiftAdapter {
         return getPods(null);
     }
 
+    public List<String> getPods(String prefix) throws Exception {
+        return getProxy().getPodNames(prefix != null ? getLabels(prefix) : null);
+    }
+
+    public String exec(Map<String, String> labels, int waitSeconds, String... input) throws Exception {
+        return exec(labels, waitSeconds, System.in, true, input);
+    }
+
+    public String exec(Map<String, String> labels, int waitSeconds, InputStream stdin, boolean tty, String... input) throws Exception {
+        List<String> pods = getProxy().getPodNames(labels);
+        if (pods.isEmpty()) {
+            throw new IllegalStateException("No such pod: " + labels);
+        }
+        BoundedOutputStream out = new BoundedOutputStream(MAX_EXEC_OUTPUT);
+        getProxy().exec(pods.get(0), null, stdin, tty, out, System.err, waitSeconds, input);
+        return out.toString("UTF-8");
+    }
+
+    public int execInPod(String podName, OutputStream out, OutputStream err, int waitSeconds, String... command) throws Exception {
+        Integer exitCode = getProxy().exec(podName, null, out, err, waitSeconds, command);
+        if (exitCode == null) {
+            throw new TimeoutException(String.format("Command %s in pod %s did not exit within %s seconds.", Arrays.toString(command), podName, waitSeconds));
+        }
+        return exitCode;
+    }
+
+    public ExecResult execInPod(String podName, int waitSeconds, String... command) throws Exception {
+        BoundedOutputStream out = new BoundedOutputStream(MAX_EXEC_OUTPUT);
+        BoundedOutputStream err = new BoundedOutputStream(MAX_EXEC_OUTPUT);
+        Integer exitCode = getProxy().exec(podName, null, out, err, waitSeconds, command);
+        return new ExecResult(podName, exitCode, out.toString("UTF-8"), err.toString("UTF-8"));
+    }
+
+    public List<ExecResult> execInPods(Map<String, String> labels, final int waitSeconds, final String... command) throws Exception {
+        List<Callable<ExecResult>> tasks = new ArrayList<>();
+        for (final String podName : getProxy().getPodNames(labels)) {
+            tasks.add(new Callable<ExecResult>() {
+                public ExecResult call() throws Exception {
+                    return execInPod(podName, waitSeconds, command);
+                }
+            });
+        }
+        List<ExecResult> results = new ArrayList<>();
+        invokeAll(tasks, results);
+        return results;
+    }
+
+    public InputStream streamLog(String podName, LogOptions options) throws Exception {
+        // a followed log can be silent for long, so no read timeout
+        return getProxy().streamLog(podName, options, options.isFollow() ? 0 : -1);
+    }
+
+    public String waitForLogLine(String podName, String regexp, long timeoutSeconds) throws Exception {
+        if (timeoutSeconds <= 0) {
+            // a zero read timeout means none, a silent pod would block forever
+            throw new IllegalArgumentException("Timeout must be positive: " + timeoutSeconds);
+        }
+        final Pattern pattern = Pattern.compile(regexp);
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        // read timeout covers a silent pod, deadline check covers a chatty one
+        LogOptions options = new LogOptions().follow(true);
+        try (Reader reader = new BufferedReader(new InputStreamReader(getProxy().streamLog(podName, options, timeoutSeconds), "UTF-8"))) {
+            StringBuilder line = new StringBuilder();
+            while (readLine(reader, line)) {
+                if (pattern.matcher(line).find()) {
+                    return line.toString();
+                }
+                if (System.nanoTime() - deadline > 0) {
+                    break;
+                }
+            }
+        } catch (SocketTimeoutException ignored) {
+        }
+        throw new Exception(String.format("No log line matching '%s' in pod %s within %s seconds.", regexp, podName, timeoutSeconds));
+    }
+
+    /**
+     * Read next line into buffer, anything past MAX_LOG_LINE chars is dropped.
+     *
+     * @return false on end of stream with nothing read
+     */
+    private static boolean readLine(Reader reader, StringBuilder line) throws IOException {
+        line.setLength(0);
+        int ch;
+        boolean read = false;
+        while ((ch = reader.read()) != -1) {
+            read = true;
+            if (ch == '\n') {
+                return true;
+            }
+            if (ch != '\r' && line.length() < MAX_LOG_LINE) {
+                line.append((char) ch);
+            }
+        }
+        return read;
+    }
+
+    public String getLog(String prefix, Map<String, String> labels) throws Exception {
+        String podName;
+        if (prefix != null) {
+            podName = getProxy().findPodByPrefix(prefix, labels);
+            if (podName == null) {
+                throw new Exception(String.format("No pod found starting with '%s' and labels %s.", prefix, labels));
+            }
+        } else {
+            List<String> pods = getProxy().getPodNames(labels);
+            if (pods.isEmpty()) {
+                throw new Exception("No pod found with labels " + labels);
+            }
+            podName = pods.get(0);
+        }
+        return getLog(podName);
+    }
+
     public void delay(final Map<String, String> labels, final int replicas, final Operator op) throws Exception {
-        Containers.delay(configuration.getStartupTimeout(), 4000L, new PodCountChecker(labels, op, replicas));
+        getProxy().awaitReadyPods(labels, new PodCountChecker(labels, op, replicas), configuration.getStartupTimeout());
     }
 
 
@@ -223,7 +567,7 @@ public abstract class AbstractOpenShiftAdapter implements OpenShiftAdapter {
         return expectedReturnType.cast(response.getValue());
     }
 
-    private class PodCountChecker implements Checker {
+    private class PodCountChecker implements ReadyPodsChecker {
         private final Map<String, String> labels;
         private final Operator op;
         private final int replicas;
@@ -234,8 +578,8 @@ public abstract class AbstractOpenShiftAdapter implements OpenShiftAdapter {
             this.replicas = replicas;
         }
 
-        public boolean check() {
-            Set<String> pods = getReadyPods();
+        public boolean check(Set<String> readyPods) {
+            Set<String> pods = filter(readyPods);
             boolean result = op.op(pods.size(), replicas);
             if (result) {
                 log.info(String.format("Condition satisfied: number of pod(s) matching labels: %s is %s %s (pods: %s)", labels, op, replicas, pods));
@@ -243,8 +587,8 @@ public abstract class AbstractOpenShiftAdapter implements OpenShiftAdapter {
             return result;
         }
 
-        protected Set<String> getReadyPods() {
-            return getProxy().getReadyPods(labels);
+        protected Set<String> filter(Set<String> pods) {
+            return pods;
         }
 
         @Override
@@ -0,0 +1,266 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.arquillian.ce.api.AsyncOpenShiftHandle;
+import org.jboss.arquillian.ce.api.OpenShiftHandle;
+
+/**
+ * Runs OpenShiftHandle operations on a bounded pool of daemon threads.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class AsyncOpenShiftAdapter implements AsyncOpenShiftHandle, Closeable {
+    private static final AtomicInteger counter = new AtomicInteger();
+
+    private static final Callable<Object> NOOP = new Callable<Object>() {
+        public Object call() throws Exception {
+            return null;
+        }
+    };
+
+    private final OpenShiftHandle handle;
+    private final ExecutorService executor;
+
+    public AsyncOpenShiftAdapter(OpenShiftHandle handle, int parallelism) {
+        this.handle = handle;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "CE-Async-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <T> Future<T> submit(Callable<T> callable) {
+        AsyncFuture<T> future = new AsyncFuture<>(callable);
+        executor.execute(future);
+        return future;
+    }
+
+    public Future<Void> waitForReadyPods(final String prefix, final int replicas) {
+        return submit(new Callable<Void>() {
+            public Void call() throws Exception {
+                handle.waitForReadyPods(prefix, replicas);
+                return null;
+            }
+        });
+    }
+
+    public Future<Void> replacePods(final String prefix, final int size, final int replicas) {
+        return submit(new Callable<Void>() {
+            public Void call() throws Exception {
+                handle.replacePods(prefix, size, replicas);
+                return null;
+            }
+        });
+    }
+
+    public Future<Void> scaleDeployment(final String prefix, final int replicas) {
+        return submit(new Callable<Void>() {
+            public Void call() throws Exception {
+                handle.scaleDeployment(prefix, replicas);
+                return null;
+            }
+        });
+    }
+
+    public Future<Void> triggerDeploymentConfigUpdate(final String prefix, final boolean wait) {
+        return submit(new Callable<Void>() {
+            public Void call() throws Exception {
+                handle.triggerDeploymentConfigUpdate(prefix, wait);
+                return null;
+            }
+        });
+    }
+
+    public Future<String> getLog(final String podName) {
+        return submit(new Callable<String>() {
+            public String call() throws Exception {
+                return handle.getLog(podName);
+            }
+        });
+    }
+
+    public Future<String> getLog(final String prefix, final Map<String, String> labels) {
+        return submit(new Callable<String>() {
+            public String call() throws Exception {
+                return handle.getLog(prefix, labels);
+            }
+        });
+    }
+
+    public Future<String> exec(final Map<String, String> labels, final int waitSeconds, final String... input) {
+        return submit(new Callable<String>() {
+            public String call() throws Exception {
+                return handle.exec(labels, waitSeconds, input);
+            }
+        });
+    }
+
+    public Future<Void> allOf(Future<?>... futures) {
+        final List<AsyncFuture<?>> list = toAsync(futures);
+        final AsyncFuture<Void> result = new AsyncFuture<>();
+        final AtomicInteger pending = new AtomicInteger(list.size());
+        if (list.isEmpty()) {
+            result.complete(null);
+        }
+        for (final AsyncFuture<?> future : list) {
+            future.addListener(new Runnable() {
+                public void run() {
+                    Throwable cause = future.getFailure();
+                    if (cause != null) {
+                        if (result.fail(cause)) {
+                            for (AsyncFuture<?> other : list) {
+                                other.cancel(true);
+                            }
+                        }
+                    } else if (pending.decrementAndGet() == 0) {
+                        result.complete(null);
+                    }
+                }
+            });
+        }
+        return result;
+    }
+
+    public Future<Throwable> anyFailed(Future<?>... futures) {
+        final List<AsyncFuture<?>> list = toAsync(futures);
+        final AsyncFuture<Throwable> result = new AsyncFuture<>();
+        final AtomicInteger pending = new AtomicInteger(list.size());
+        if (list.isEmpty()) {
+            result.complete(null);
+        }
+        for (final AsyncFuture<?> future : list) {
+            future.addListener(new Runnable() {
+                public void run() {
+                    Throwable cause = future.getFailure();
+                    if (cause != null) {
+                        result.complete(cause);
+                    } else if (pending.decrementAndGet() == 0) {
+                        result.complete(null);
+                    }
+                }
+            });
+        }
+        return result;
+    }
+
+    private static List<AsyncFuture<?>> toAsync(Future<?>... futures) {
+        List<AsyncFuture<?>> list = new ArrayList<>();
+        for (Future<?> future : futures) {
+            if (future instanceof AsyncFuture == false) {
+                throw new IllegalArgumentException("Future was not created by AsyncOpenShiftHandle: " + future);
+            }
+            list.add((AsyncFuture<?>) future);
+        }
+        return list;
+    }
+
+    /**
+     * FutureTask with completion listeners, also usable as a plain settable future.
+     */
+    private static class AsyncFuture<T> extends FutureTask<T> {
+        private List<Runnable> listeners = new ArrayList<>();
+
+        @SuppressWarnings("unchecked")
+        private AsyncFuture() {
+            super((Callable<T>) NOOP);
+        }
+
+        private AsyncFuture(Callable<T> callable) {
+            super(callable);
+        }
+
+        private synchronized boolean complete(T value) {
+            if (isDone()) {
+                return false;
+            }
+            set(value);
+            return true;
+        }
+
+        private synchronized boolean fail(Throwable cause) {
+            if (isDone()) {
+                return false;
+            }
+            setException(cause);
+            return true;
+        }
+
+        private void addListener(Runnable listener) {
+            synchronized (this) {
+                if (listeners != null) {
+                    listeners.add(listener);
+                    return;
+                }
+            }
+            listener.run();
+        }
+
+        protected void done() {
+            List<Runnable> current;
+            synchronized (this) {
+                current = listeners;
+                listeners = null;
+            }
+            for (Runnable listener : current) {
+                listener.run();
+            }
+        }
+
+        private Throwable getFailure() {
+            if (isCancelled()) {
+                return new CancellationException();
+            }
+            try {
+                get();
+                return null;
+            } catch (ExecutionException e) {
+                return e.getCause();
+            } catch (Exception e) {
+                return e;
+            }
+        }
+    }
+}
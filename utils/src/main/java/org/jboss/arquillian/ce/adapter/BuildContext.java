@@ -0,0 +1,137 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.exporter.ZipExporter;
+
+/**
+ * Docker build context as a tar: the Dockerfile plus the zip'd deployment.
+ * <p/>
+ * Entries are streamed (gzip'd when the Docker daemon is remote) into a temp file, so the context is never held in memory;
+ * the file is deleted on close.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+class BuildContext implements Closeable {
+    private static final Logger log = Logger.getLogger(BuildContext.class.getName());
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final TarArchiveOutputStream tar;
+    private InputStream stream;
+
+    BuildContext(boolean gzip) throws IOException {
+        file = File.createTempFile("ce_context", gzip ? ".tar.gz" : ".tar");
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+        tar = new TarArchiveOutputStream(gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out);
+        tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+        tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+    }
+
+    /**
+     * @return true if the daemon is not on this host, so the context goes over the network
+     */
+    static boolean isRemote(String dockerUrl) {
+        URI uri = URI.create(dockerUrl);
+        if ("unix".equals(uri.getScheme())) {
+            return false;
+        }
+        String host = uri.getHost();
+        return (host != null && "localhost".equals(host) == false && host.startsWith("127.") == false);
+    }
+
+    BuildContext add(String name, byte[] content) throws IOException {
+        TarArchiveEntry entry = new TarArchiveEntry(name);
+        entry.setSize(content.length);
+        entry.setModTime(0); // same content, same context
+        tar.putArchiveEntry(entry);
+        tar.write(content);
+        tar.closeArchiveEntry();
+        return this;
+    }
+
+    /**
+     * The deployment as a zip entry, exported to a temp file first, as a tar entry needs its size up front.
+     */
+    BuildContext add(Archive<?> archive) throws IOException {
+        File zip = File.createTempFile("ce_deployment", ".zip");
+        try {
+            archive.as(ZipExporter.class).exportTo(zip, true);
+            TarArchiveEntry entry = new TarArchiveEntry(archive.getName());
+            entry.setSize(zip.length());
+            entry.setModTime(0);
+            tar.putArchiveEntry(entry);
+            try (InputStream in = new FileInputStream(zip)) {
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    tar.write(buffer, 0, read);
+                }
+            }
+            tar.closeArchiveEntry();
+        } finally {
+            delete(zip);
+        }
+        return this;
+    }
+
+    InputStream toInputStream() throws IOException {
+        tar.close();
+        log.fine(String.format("Build context %s: %s bytes", file.getName(), file.length()));
+        stream = new FileInputStream(file);
+        return stream;
+    }
+
+    public void close() throws IOException {
+        try {
+            tar.close();
+            if (stream != null) {
+                stream.close();
+            }
+        } finally {
+            delete(file);
+        }
+    }
+
+    private static void delete(File file) {
+        if (file.delete() == false && file.exists()) {
+            log.warning(String.format("Cannot delete %s", file));
+        }
+    }
+}
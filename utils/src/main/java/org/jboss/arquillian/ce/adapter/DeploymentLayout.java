@@ -0,0 +1,189 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.asset.ArchiveAsset;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.spec.EnterpriseArchive;
+
+/**
+ * Exploded deployment split into a library part (WEB-INF/lib or EAR lib jars) and the application part,
+ * so the usually big and stable libraries end up in their own, cacheable image layer.
+ * <p/>
+ * Nested archives are zip'd with fixed timestamps, so the same content always gives the same layer.
+ * Paths are relative to the deployment dir. Only containers whose exploded layout we know are split:
+ * EAP / WildFly (standalone/deployments, exploded as name.war plus a .dodeploy marker)
+ * and JWS / Tomcat (webapps, exploded without the .war extension, no marker).
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+class DeploymentLayout {
+    private static final Logger log = Logger.getLogger(DeploymentLayout.class.getName());
+
+    static final String SINGLE = "single";
+    static final String SPLIT = "split";
+
+    private static final long FIXED_TIME = 0; // before 1980, so the same DOS time in any timezone
+
+    private static final String DEPLOYMENTS = "standalone/deployments/";
+    private static final String WEBAPPS = "webapps/";
+
+    private final Map<String, byte[]> libraries = new TreeMap<>();
+    private final Map<String, byte[]> application = new TreeMap<>();
+
+    private DeploymentLayout() {
+    }
+
+    static DeploymentLayout split(Archive<?> deployment, Target target) throws IOException {
+        String name = target.name;
+        String libs = (deployment instanceof EnterpriseArchive) ? "/lib/" : "/WEB-INF/lib/";
+        DeploymentLayout layout = new DeploymentLayout();
+        for (Map.Entry<ArchivePath, Node> entry : new TreeMap<>(deployment.getContent()).entrySet()) {
+            Asset asset = entry.getValue().getAsset();
+            if (asset == null) {
+                continue; // dirs are implied
+            }
+            String path = entry.getKey().get();
+            byte[] content = toBytes(asset);
+            boolean library = path.startsWith(libs) && path.indexOf('/', libs.length()) < 0 && path.endsWith(".jar");
+            (library ? layout.libraries : layout.application).put(name + path, content);
+        }
+        if (target.marker) {
+            layout.application.put(name + ".dodeploy", new byte[0]);
+        }
+        return layout;
+    }
+
+    /**
+     * @return the deployment's ADD / COPY target in the Dockerfile, null if there is none or the container is not known
+     */
+    static Target target(String dockerfile, String deploymentName) {
+        for (String line : dockerfile.split("\n")) {
+            String[] split = line.trim().split("\\s+");
+            if (split.length == 3 && ("ADD".equalsIgnoreCase(split[0]) || "COPY".equalsIgnoreCase(split[0])) && split[1].equals(deploymentName)) {
+                String destination = toDirectory(split[2]);
+                int p = destination.lastIndexOf('/');
+                String dir = destination.substring(0, p + 1);
+                String name = destination.endsWith("/") ? deploymentName : destination.substring(p + 1);
+                if (dir.endsWith(DEPLOYMENTS)) {
+                    return new Target(line, dir, name, true);
+                }
+                if (dir.endsWith(WEBAPPS) && name.endsWith(".war")) {
+                    return new Target(line, dir, name.substring(0, name.length() - ".war".length()), false);
+                }
+                log.info(String.format("Not splitting %s, no known exploded layout for %s", deploymentName, dir));
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Docker only copies into a destination without a trailing slash if that dir exists in the base image,
+     * which we cannot look into; a destination without an extension (deployments always have one) is taken as that dir.
+     */
+    static String toDirectory(String destination) {
+        String last = destination.substring(destination.lastIndexOf('/') + 1);
+        return (destination.endsWith("/") || last.contains(".")) ? destination : destination + "/";
+    }
+
+    Map<String, byte[]> getLibraries() {
+        return libraries;
+    }
+
+    Map<String, byte[]> getApplication() {
+        return application;
+    }
+
+    /**
+     * @return content hash of the library part
+     */
+    String getLibrariesHash() {
+        MessageDigest digest = AbstractDockerAdapter.sha256();
+        for (Map.Entry<String, byte[]> entry : libraries.entrySet()) {
+            digest.update(entry.getKey().getBytes(AbstractDockerAdapter.UTF_8));
+            digest.update(entry.getValue());
+        }
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest.digest()) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+
+    private static byte[] toBytes(Asset asset) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        if (asset instanceof ArchiveAsset) {
+            try (ZipOutputStream zip = new ZipOutputStream(baos)) {
+                zip(zip, ((ArchiveAsset) asset).getArchive());
+            }
+        } else {
+            try (InputStream stream = asset.openStream()) {
+                AbstractDockerAdapter.copy(stream, baos);
+            }
+        }
+        return baos.toByteArray();
+    }
+
+    private static void zip(ZipOutputStream zip, Archive<?> archive) throws IOException {
+        for (Map.Entry<ArchivePath, Node> entry : new TreeMap<>(archive.getContent()).entrySet()) {
+            Asset asset = entry.getValue().getAsset();
+            String path = entry.getKey().get().substring(1);
+            ZipEntry zipEntry = new ZipEntry(asset == null ? path + "/" : path);
+            zipEntry.setTime(FIXED_TIME);
+            zip.putNextEntry(zipEntry);
+            if (asset != null) {
+                zip.write(toBytes(asset));
+            }
+            zip.closeEntry();
+        }
+    }
+
+    static class Target {
+        final String line;
+        final String dir;
+        final String name; // of the exploded deployment dir
+        final boolean marker;
+
+        private Target(String line, String dir, String name, boolean marker) {
+            this.line = line;
+            this.dir = dir;
+            this.name = name;
+            this.marker = marker;
+        }
+    }
+}
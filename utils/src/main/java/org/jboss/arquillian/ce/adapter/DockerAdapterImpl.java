@@ -23,19 +23,8 @@
 
 package org.jboss.arquillian.ce.adapter;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.security.AccessController;
-import java.security.PrivilegedAction;
 import java.util.Map;
-import java.util.Properties;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 import com.github.dockerjava.api.DockerClient;
@@ -50,41 +39,20 @@ import com.github.dockerjava.core.DockerClientConfig;
 import com.github.dockerjava.core.command.BuildImageResultCallback;
 import com.github.dockerjava.core.command.PushImageResultCallback;
 import org.jboss.arquillian.ce.utils.Configuration;
-import org.jboss.arquillian.ce.utils.DockerFileTemplateHandler;
 import org.jboss.arquillian.ce.utils.RegistryLookup;
-import org.jboss.arquillian.ce.utils.StringResolver;
-import org.jboss.arquillian.ce.utils.Strings;
 import org.jboss.arquillian.ce.utils.Timer;
 import org.jboss.shrinkwrap.api.Archive;
-import org.jboss.shrinkwrap.api.exporter.ZipExporter;
 
 /**
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
  */
-public class DockerAdapterImpl implements DockerAdapter {
+public class DockerAdapterImpl extends AbstractDockerAdapter {
     private final static Logger log = Logger.getLogger(DockerAdapterImpl.class.getName());
-    private static final File tmpDir;
 
-    static {
-        tmpDir = getTempRoot();
-    }
-
-    private final Configuration configuration;
-    private final RegistryLookup lookup;
     private final DockerClient dockerClient;
+    private final RegistryClient registryClient;
 
-    private Map<String, File> dirs = new ConcurrentHashMap<>();
-    private Map<String, String> images = new ConcurrentHashMap<>();
-
-    protected static File getTempRoot() {
-        return AccessController.doPrivileged(new PrivilegedAction<File>() {
-            public File run() {
-                File root = new File(System.getProperty("java.io.tmpdir"));
-                log.info(String.format("Get temp root: %s", root));
-                return root;
-            }
-        });
-    }
+    private final ImageCacheStats cacheStats = new ImageCacheStats();
 
     private static DockerClient createDockerClient(Configuration configuration) {
         // Docker-java requires AuthConfig, hence this user/pass stuff
@@ -100,9 +68,9 @@ public class DockerAdapterImpl implements DockerAdapter {
     }
 
     public DockerAdapterImpl(Configuration configuration, RegistryLookup lookup) {
-        this.configuration = configuration;
-        this.lookup = lookup;
+        super(configuration, lookup);
         this.dockerClient = createDockerClient(configuration);
+        this.registryClient = new RegistryClient(configuration);
     }
 
     public void close() throws IOException {
@@ -111,111 +79,37 @@ public class DockerAdapterImpl implements DockerAdapter {
         }
     }
 
-    public File getDir(Archive<?> archive) {
-        File dir = dirs.get(archive.getName());
-        if (dir == null) {
-            throw new IllegalArgumentException(String.format("Missing temp dir for archive %s", archive.getName()));
-        }
-        return dir;
-    }
-
-    public void prepare(Archive<?> archive) {
-        File dir = new File(tmpDir, "ce_" + UUID.randomUUID().toString());
-        if (dir.mkdirs() == false) {
-            throw new IllegalStateException("Cannot create dir: " + dir);
-        }
-        dirs.put(archive.getName(), dir);
-    }
-
-    public void reset(Archive<?> archive) {
+    protected void cleanupImage(String imageId) {
         try {
-            if (configuration.performCleanup()) {
-                String imageId = images.get(archive.getName());
-                if (imageId != null) {
-                    try {
-                        removeImage(imageId);
-                    } catch (NotFoundException ignore) {
-                        // could be already removed (e.g. same name)
-                    } catch (Exception e) {
-                        log.info(String.format("Error -- removing Docker image [%s] - %s",  imageId, e));
-                    }
-                }
-            }
-        } finally {
-            File dir = getDir(archive);
-            delete(dir);
+            removeImage(imageId);
+        } catch (NotFoundException ignore) {
+            // could be already removed (e.g. same name)
+        } catch (Exception e) {
+            log.info(String.format("Error -- removing Docker image [%s] - %s", imageId, e));
         }
     }
 
-    @SuppressWarnings("ResultOfMethodCallIgnored")
-    private void delete(File target) {
-        for (File file : target.listFiles()) {
-            if (file.isDirectory()) {
-                delete(file);
-            } else {
-                file.delete();
-            }
-        }
-        target.delete();
-    }
-
-    public File exportAsZip(File dir, Archive<?> deployment) {
-        return exportAsZip(dir, deployment, deployment.getName());
-    }
-
-    public File exportAsZip(File dir, Archive<?> deployment, String name) {
-        ZipExporter exporter = deployment.as(ZipExporter.class);
-        File target = new File(dir, name);
-        exporter.exportTo(target);
-        return target;
-    }
-
     public String buildAndPushImage(DockerAdapterContext context) throws IOException {
-        final DockerFileTemplateHandler dth = context.getHandler();
         final Archive deployment = context.getDeployment();
-        final Properties properties = context.getProperties();
-
-        // Create Dockerfile
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (InputStream stream = context.getDockerfileTemplate()) {
-            copy(stream, baos);
-        }
-
         final String deploymentName = deployment.getName();
-        properties.put("deployment.name", deploymentName);
 
-        // apply custom DockerFile changes
-        if (dth != null) {
-            dth.apply(baos);
-        }
-
-        final File dir = getDir(deployment);
+        String df = resolveDockerfile(context);
 
-        final StringResolver resolver = Strings.createStringResolver(properties);
-        String df = resolver.resolve(baos.toString());
-        log.info(String.format("Docker file:\n---\n%s---", df));
-        ByteArrayInputStream bais = new ByteArrayInputStream(df.getBytes());
-        try (FileOutputStream fos = new FileOutputStream(new File(dir, "Dockerfile"))) {
-            copy(bais, fos);
+        // the same content results in the same tag, so an image which already exists in the registry is reused
+        String contentTag = null;
+        if (isContentTag()) {
+            String from = context.getProperties().getProperty("from.name");
+            contentTag = contentTag(deployment, df, from, (from != null) ? registryClient.resolveDigest(from) : null);
         }
 
-        // Export test deployment to Docker dir
-        exportAsZip(dir, deployment);
-
         // Grab Docker registry service
         RegistryLookup.RegistryLookupEntry rle = lookup.lookup();
 
-        // https://access.redhat.com/documentation/en/red-hat-enterprise-linux-atomic-host/7/recommended-practices-for-container-development/chapter-4-image-naming-conventions
-        String port = rle.getPort();
-        String group = configuration.getImageGroup();
-        String repo = context.getImageNamePrefix() + configuration.getNamespace();
+        String host = getRegistryHost(rle);
+        registryClient.addTarget(host);
+        String repository = getRepository(context);
         // our Docker image name
-        String imageName;
-        if (port != null) {
-            imageName = String.format("%s:%s/%s/%s", rle.getIp(), port, group, repo);
-        } else {
-            imageName = String.format("%s/%s/%s", rle.getIp(), group, repo);
-        }
+        String imageName = host + "/" + repository;
         log.info(String.format("Docker image name: %s", imageName));
 
         String dockerUrl = configuration.getDockerUrl();
@@ -223,17 +117,50 @@ public class DockerAdapterImpl implements DockerAdapter {
             throw new IllegalArgumentException("Missing Docker url / host!");
         }
 
+        if (contentTag != null && registryClient.manifestExists(host, repository, contentTag)) {
+            cacheStats.hit(contentTag);
+            log.info(String.format("Image %s:%s already in registry, skipping build and push. %s", imageName, contentTag, cacheStats));
+            return imageName + ":" + contentTag;
+        }
+
         final Timer timer = new Timer();
+        final Timer total = new Timer();
+
+        final String imageTag = (contentTag != null) ? contentTag : configuration.getImageTag();
+
+        // Build context streamed to a temp file, deleted once the image is built
+        try (BuildContext buildContext = new BuildContext(BuildContext.isRemote(dockerUrl))) {
+            DeploymentLayout.Target target = DeploymentLayout.SPLIT.equals(configuration.getImageLayout()) ? DeploymentLayout.target(df, deploymentName) : null;
+            if (target != null) {
+                // libraries first, so their layer stays cached when only the application changes
+                DeploymentLayout layout = DeploymentLayout.split(deployment, target);
+                StringBuilder copy = new StringBuilder();
+                if (layout.getLibraries().isEmpty() == false) {
+                    copy.append("COPY libs/ ").append(target.dir).append("\n");
+                    for (Map.Entry<String, byte[]> entry : layout.getLibraries().entrySet()) {
+                        buildContext.add("libs/" + entry.getKey(), entry.getValue());
+                    }
+                }
+                copy.append("COPY app/ ").append(target.dir);
+                for (Map.Entry<String, byte[]> entry : layout.getApplication().entrySet()) {
+                    buildContext.add("app/" + entry.getKey(), entry.getValue());
+                }
+                df = df.replace(target.line, copy.toString());
+                log.info(String.format("Split %s: %s libraries [%s], %s application entries.", deploymentName, layout.getLibraries().size(), layout.getLibrariesHash(), layout.getApplication().size()));
+                buildContext.add("Dockerfile", df.getBytes());
+            } else {
+                buildContext.add("Dockerfile", df.getBytes()).add(deployment);
+            }
 
-        // Build image on your Docker host
-        try (BuildImageCmd buildImageCmd = dockerClient.buildImageCmd(dir)) {
-            timer.reset();
-            String imageId = buildImageCmd.withTag(imageName).exec(new PrintBuildImageResultCallback()).awaitImageId();
-            log.info(String.format("Built image: %s [%s].", imageId, timer));
+            // Build image on your Docker host
+            try (BuildImageCmd buildImageCmd = dockerClient.buildImageCmd(buildContext.toInputStream())) {
+                timer.reset();
+                String tag = (contentTag != null) ? imageName + ":" + contentTag : imageName;
+                String imageId = buildImageCmd.withTag(tag).exec(new PrintBuildImageResultCallback()).awaitImageId();
+                log.info(String.format("Built image: %s [%s].", imageId, timer));
+            }
         }
 
-        final String imageTag = configuration.getImageTag();
-
         // Push image to Docker registry service
         log.info(String.format("Pushing image %s with tag %s ...", imageName, imageTag));
         try (PushImageCmd pushImageCmd = dockerClient.pushImageCmd(imageName)) {
@@ -251,6 +178,11 @@ public class DockerAdapterImpl implements DockerAdapter {
         }
         String result = fullImageName.toString();
 
+        if (contentTag != null) {
+            cacheStats.miss(contentTag, total.elapsed());
+            log.info(cacheStats.toString());
+        }
+
         images.put(deploymentName, result); // remember which images we built
 
         return result;
@@ -263,15 +195,6 @@ public class DockerAdapterImpl implements DockerAdapter {
         log.info(String.format("Docker image %s removed.", imageId));
     }
 
-    private static void copy(InputStream input, OutputStream output) throws IOException {
-        final byte[] buffer = new byte[4096];
-        int read;
-        while ((read = input.read(buffer)) != -1) {
-            output.write(buffer, 0, read);
-        }
-        output.flush();
-    }
-
     private static void printResponse(String prefix, String result) {
         if (result != null) {
             log.info(String.format("%s: %s", prefix, result));
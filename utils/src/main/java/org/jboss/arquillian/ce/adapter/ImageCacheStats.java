@@ -0,0 +1,78 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jboss.arquillian.ce.utils.Timer;
+
+/**
+ * Content tag hits and misses, with the build and push time the hits saved.
+ * <p/>
+ * A hit saves what building its image took, if that was measured in this JVM,
+ * else what the last build took; until something was built the saving is unknown.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+class ImageCacheStats {
+    private final Map<String, Long> costs = new ConcurrentHashMap<>();
+    private int hits;
+    private int misses;
+    private long saved;
+    private int unmeasured; // hits without a measured build of their own
+    private long lastMiss = -1;
+
+    synchronized void hit(String tag) {
+        hits++;
+        Long cost = costs.get(tag);
+        if (cost != null) {
+            saved += cost;
+        } else {
+            unmeasured++;
+        }
+    }
+
+    synchronized void miss(String tag, long millis) {
+        misses++;
+        costs.put(tag, millis);
+        lastMiss = millis;
+    }
+
+    /**
+     * @return saved millis, -1 if unknown
+     */
+    synchronized long getSaved() {
+        if (unmeasured > 0) {
+            return (lastMiss >= 0) ? saved + unmeasured * lastMiss : -1;
+        }
+        return saved;
+    }
+
+    @Override
+    public synchronized String toString() {
+        long millis = getSaved();
+        return String.format("Image cache: %s hits, %s misses, %s saved.", hits, misses, (millis >= 0) ? "~" + Timer.format(millis) : "unknown (nothing built yet)");
+    }
+}
@@ -29,10 +29,12 @@ import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
+import org.jboss.arquillian.ce.api.AsyncOpenShiftHandle;
 import org.jboss.arquillian.ce.api.OpenShiftHandle;
 import org.jboss.arquillian.ce.api.model.OpenShiftResource;
 import org.jboss.arquillian.ce.portfwd.PortForwardContext;
 import org.jboss.arquillian.ce.proxy.Proxy;
+import org.jboss.arquillian.ce.resources.ResourceBatch;
 import org.jboss.arquillian.ce.utils.Operator;
 import org.jboss.arquillian.ce.utils.ParamValue;
 import org.jboss.arquillian.ce.utils.RCContext;
@@ -44,6 +46,11 @@ import org.jboss.arquillian.ce.utils.RegistryLookup;
 public interface OpenShiftAdapter extends Closeable, RegistryLookup, OpenShiftHandle {
     Proxy getProxy();
 
+    /**
+     * @return async view of this adapter, its executor is shutdown on close
+     */
+    AsyncOpenShiftHandle getAsyncHandle();
+
     PortForwardContext createPortForwardContext(Map<String, String> labels, int port);
 
     /**
@@ -53,6 +60,19 @@ public interface OpenShiftAdapter extends Closeable, RegistryLookup, OpenShiftHa
 
     boolean deleteProject();
 
+    /**
+     * @param namespace the project name
+     * @return true if the project was created; false if the project already exists
+     */
+    boolean createProject(String namespace);
+
+    boolean deleteProject(String namespace);
+
+    /**
+     * Wipe what tests left in the current project, so it can be reused.
+     */
+    void scrubProject();
+
     String deployPod(String name, String env, RCContext context) throws Exception;
 
     String deployReplicationController(String name, String env, RCContext context) throws Exception;
@@ -61,8 +81,27 @@ public interface OpenShiftAdapter extends Closeable, RegistryLookup, OpenShiftHa
 
     Object deleteTemplate(String templateKey) throws Exception;
 
+    /**
+     * Open template or resource URL, served from template cache if enabled.
+     *
+     * @param url the url
+     * @return content stream
+     * @throws IOException for any I/O error
+     */
+    InputStream openStream(String url) throws IOException;
+
     Object createResource(String resourcesKey, InputStream stream) throws IOException;
 
+    /**
+     * Create resources in dependency order, independent ones concurrently.
+     *
+     * @param resourcesKey the resources key
+     * @param batch        the resources
+     * @return created resources handles
+     * @throws Exception for any error; resources created so far are still registered under the key
+     */
+    Object createResources(String resourcesKey, ResourceBatch batch) throws Exception;
+
     Object deleteResources(String resourcesKey);
 
     Object addRoleBinding(String resourcesKey, String roleRefName, String userName);
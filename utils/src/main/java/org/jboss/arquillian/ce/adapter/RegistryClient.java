@@ -0,0 +1,426 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.Credentials;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+import org.jboss.arquillian.ce.utils.Configuration;
+import org.jboss.arquillian.ce.utils.OkHttpClientUtils;
+import org.jboss.arquillian.ce.utils.Strings;
+import org.jboss.dmr.ModelNode;
+
+/**
+ * Minimal Docker registry v2 HTTP API client: manifests, blobs, uploads and token auth.
+ * <p/>
+ * Hosts are accessed over https, unless listed as insecure (docker.registry.insecure).
+ * By default that is just the cluster-internal registry we push to (the "internal" entry), which OpenShift serves over plain http;
+ * set docker.registry.insecure to the hosts to use instead, or to __none for https only.
+ * Credentials only go to target registries (the one we push to), any other registry is accessed anonymously.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+class RegistryClient {
+    private static final Logger log = Logger.getLogger(RegistryClient.class.getName());
+
+    static final String MANIFEST_V2 = "application/vnd.docker.distribution.manifest.v2+json";
+    static final String CONFIG_V1 = "application/vnd.docker.container.image.v1+json";
+    static final String LAYER_GZIP = "application/vnd.docker.image.rootfs.diff.tar.gzip";
+
+    static final String DOCKER_HUB = "registry-1.docker.io";
+    static final String INTERNAL = "internal";
+
+    private static final Pattern CHALLENGE_PARAM = Pattern.compile("(\\w+)=\"([^\"]*)\"");
+
+    private final Configuration configuration;
+    private final Set<String> targets = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final Map<String, String> authorizations = new ConcurrentHashMap<>();
+    private volatile OkHttpClient httpClient;
+
+    RegistryClient(Configuration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Mark the lookup-resolved registry we push to, the only host we send credentials to.
+     */
+    void addTarget(String host) {
+        targets.add(host);
+    }
+
+    /**
+     * Manifest HEAD, any error or missing credentials count as not existing.
+     */
+    boolean manifestExists(String host, String repository, String reference) {
+        try {
+            Request.Builder builder = new Request.Builder().head().header("Accept", MANIFEST_V2);
+            Response response = execute(host, repository, "/v2/" + repository + "/manifests/" + reference, builder);
+            try {
+                log.fine(String.format("Registry check %s/%s:%s: %s", host, repository, reference, response.code()));
+                return response.isSuccessful();
+            } finally {
+                response.body().close();
+            }
+        } catch (IOException e) {
+            log.info(String.format("Cannot check registry for image %s/%s:%s: %s", host, repository, reference, e));
+            return false;
+        }
+    }
+
+    /**
+     * What a (base) image name currently points to, e.g. a tag that was moved to a rebuilt image.
+     *
+     * @return the manifest digest, null if it cannot be resolved
+     */
+    String resolveDigest(String image) {
+        ImageReference ref = ImageReference.parse(image);
+        try {
+            Request.Builder builder = new Request.Builder().head().header("Accept", MANIFEST_V2);
+            Response response = execute(ref.host, ref.repository, "/v2/" + ref.repository + "/manifests/" + ref.reference, builder);
+            try {
+                return response.isSuccessful() ? response.header("Docker-Content-Digest") : null;
+            } finally {
+                response.body().close();
+            }
+        } catch (IOException e) {
+            log.info(String.format("Cannot resolve digest of image %s: %s", image, e));
+            return null;
+        }
+    }
+
+    byte[] getManifest(String host, String repository, String reference) throws IOException {
+        Request.Builder builder = new Request.Builder().get().header("Accept", MANIFEST_V2);
+        Response response = execute(host, repository, "/v2/" + repository + "/manifests/" + reference, builder);
+        try {
+            check(response, "get manifest " + repository + ":" + reference);
+            String type = response.header("Content-Type");
+            if (type == null || type.startsWith(MANIFEST_V2) == false) {
+                throw new IOException(String.format("Image %s/%s:%s has manifest %s, only %s is supported.", host, repository, reference, type, MANIFEST_V2));
+            }
+            return response.body().bytes();
+        } finally {
+            response.body().close();
+        }
+    }
+
+    byte[] getBlob(String host, String repository, String digest) throws IOException {
+        Request.Builder builder = new Request.Builder().get();
+        Response response = execute(host, repository, "/v2/" + repository + "/blobs/" + digest, builder);
+        try {
+            check(response, "get blob " + digest);
+            return response.body().bytes();
+        } finally {
+            response.body().close();
+        }
+    }
+
+    boolean blobExists(String host, String repository, String digest) throws IOException {
+        Request.Builder builder = new Request.Builder().head();
+        Response response = execute(host, repository, "/v2/" + repository + "/blobs/" + digest, builder);
+        try {
+            return response.isSuccessful();
+        } finally {
+            response.body().close();
+        }
+    }
+
+    /**
+     * Copy a blob between repositories, mounted if both are on the same registry, else streamed through.
+     */
+    void copyBlob(String fromHost, String fromRepository, final String digest, final long size, String host, String repository) throws IOException {
+        String location = startUpload(host, repository, host.equals(fromHost) ? fromRepository : null, digest);
+        if (location == null) {
+            return; // mounted
+        }
+        Request.Builder builder = new Request.Builder().get();
+        final Response source = execute(fromHost, fromRepository, "/v2/" + fromRepository + "/blobs/" + digest, builder);
+        try {
+            check(source, "get blob " + digest);
+            RequestBody body = new RequestBody() {
+                public MediaType contentType() {
+                    return MediaType.parse("application/octet-stream");
+                }
+
+                public long contentLength() {
+                    return size;
+                }
+
+                public void writeTo(BufferedSink sink) throws IOException {
+                    sink.writeAll(source.body().source());
+                }
+            };
+            finishUpload(host, repository, location, digest, body);
+        } finally {
+            source.body().close();
+        }
+    }
+
+    void pushBlob(String host, String repository, String digest, byte[] bytes) throws IOException {
+        if (blobExists(host, repository, digest)) {
+            return;
+        }
+        String location = startUpload(host, repository, null, digest);
+        if (location != null) {
+            finishUpload(host, repository, location, digest, RequestBody.create(MediaType.parse("application/octet-stream"), bytes));
+        }
+    }
+
+    void putManifest(String host, String repository, String reference, byte[] manifest) throws IOException {
+        Request.Builder builder = new Request.Builder().put(RequestBody.create(MediaType.parse(MANIFEST_V2), manifest));
+        Response response = execute(host, repository, "/v2/" + repository + "/manifests/" + reference, builder);
+        try {
+            check(response, "put manifest " + repository + ":" + reference);
+        } finally {
+            response.body().close();
+        }
+    }
+
+    /**
+     * @return upload location, null if the blob was mounted from the other repository
+     */
+    private String startUpload(String host, String repository, String mountFrom, String digest) throws IOException {
+        String path = "/v2/" + repository + "/blobs/uploads/";
+        if (mountFrom != null) {
+            path += "?mount=" + digest + "&from=" + mountFrom;
+        }
+        Request.Builder builder = new Request.Builder().post(RequestBody.create(null, new byte[0]));
+        Response response = execute(host, repository, path, builder);
+        try {
+            if (response.code() == 201) {
+                return null;
+            }
+            check(response, "start upload " + digest);
+            String location = response.header("Location");
+            if (location == null) {
+                throw new IOException(String.format("No upload location for %s in %s/%s", digest, host, repository));
+            }
+            return location;
+        } finally {
+            response.body().close();
+        }
+    }
+
+    private void finishUpload(String host, String repository, String location, String digest, RequestBody body) throws IOException {
+        HttpUrl url = HttpUrl.parse(baseUrl(host)).resolve(location).newBuilder().addQueryParameter("digest", digest).build();
+        Request.Builder builder = new Request.Builder().url(url).put(body);
+        addAuthorization(builder, host, repository);
+        Response response = getHttpClient().newCall(builder.build()).execute();
+        try {
+            check(response, "upload " + digest);
+        } finally {
+            response.body().close();
+        }
+    }
+
+    private Response execute(String host, String repository, String path, Request.Builder builder) throws IOException {
+        return call(host, repository, baseUrl(host) + path, builder);
+    }
+
+    private Response call(String host, String repository, String url, Request.Builder builder) throws IOException {
+        builder.url(url);
+        addAuthorization(builder, host, repository);
+        Response response = getHttpClient().newCall(builder.build()).execute();
+        if (response.code() != 401) {
+            return response;
+        }
+        String challenge = response.header("WWW-Authenticate");
+        response.body().close();
+        if (challenge == null || authorize(host, repository, challenge) == false) {
+            throw new AuthorizationException(String.format("Not authorized by registry %s for %s", host, repository));
+        }
+        addAuthorization(builder, host, repository);
+        return getHttpClient().newCall(builder.build()).execute();
+    }
+
+    private void addAuthorization(Request.Builder builder, String host, String repository) {
+        String authorization = authorizations.get(host + "/" + repository);
+        if (authorization != null) {
+            builder.header("Authorization", authorization);
+        }
+    }
+
+    /**
+     * Basic or Bearer (token service) challenge, remembered per repository.
+     */
+    private boolean authorize(String host, String repository, String challenge) throws IOException {
+        String credentials = credentials(host);
+        if (challenge.startsWith("Basic")) {
+            if (credentials == null) {
+                return false;
+            }
+            authorizations.put(host + "/" + repository, credentials);
+            return true;
+        }
+
+        Matcher matcher = CHALLENGE_PARAM.matcher(challenge);
+        String realm = null;
+        while (matcher.find()) {
+            if ("realm".equals(matcher.group(1))) {
+                realm = matcher.group(2);
+            }
+        }
+        if (realm == null || HttpUrl.parse(realm) == null) {
+            return false;
+        }
+        HttpUrl.Builder url = HttpUrl.parse(realm).newBuilder();
+        matcher.reset();
+        while (matcher.find()) {
+            if ("realm".equals(matcher.group(1)) == false) {
+                url.addQueryParameter(matcher.group(1), matcher.group(2));
+            }
+        }
+
+        HttpUrl tokenUrl = url.build();
+        Request.Builder builder = new Request.Builder().url(tokenUrl);
+        // no credentials in clear text, unless the token service is the (insecure) registry itself
+        if (credentials != null && (tokenUrl.isHttps() || tokenUrl.host().equals(HttpUrl.parse(baseUrl(host)).host()))) {
+            builder.header("Authorization", credentials);
+        } else {
+            log.fine(String.format("Anonymous token request for %s/%s", host, repository));
+        }
+        Response response = getHttpClient().newCall(builder.build()).execute();
+        try {
+            if (response.isSuccessful() == false) {
+                return false;
+            }
+            ModelNode json = ModelNode.fromJSONString(response.body().string());
+            String token = json.hasDefined("token") ? json.get("token").asString() : json.get("access_token").asString();
+            authorizations.put(host + "/" + repository, "Bearer " + token);
+            return true;
+        } finally {
+            response.body().close();
+        }
+    }
+
+    private String credentials(String host) {
+        if (targets.contains(host) == false) {
+            return null; // e.g. base images from Docker Hub, never leak our credentials there
+        }
+        if (Strings.isNullOrEmpty(configuration.getDockerUsername()) == false) {
+            return Credentials.basic(configuration.getDockerUsername(), configuration.getDockerPassword());
+        } else if (configuration.getToken() != null) {
+            return Credentials.basic("unused", configuration.getToken());
+        }
+        return null;
+    }
+
+    private String baseUrl(String host) {
+        return (isInsecure(host) ? "http" : "https") + "://" + host;
+    }
+
+    private boolean isInsecure(String host) {
+        String insecureRegistries = configuration.getInsecureRegistries();
+        if (insecureRegistries == null) {
+            return false;
+        }
+        for (String insecure : insecureRegistries.split(",")) {
+            insecure = insecure.trim();
+            if (insecure.equals(host) || (INTERNAL.equals(insecure) && targets.contains(host))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void check(Response response, String operation) throws IOException {
+        if (response.isSuccessful() == false) {
+            throw new IOException(String.format("Registry cannot %s: %s %s", operation, response.code(), response.message()));
+        }
+    }
+
+    private OkHttpClient getHttpClient() {
+        OkHttpClient current = httpClient;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (httpClient == null) {
+                OkHttpClient.Builder builder = new OkHttpClient.Builder();
+                OkHttpClientUtils.applyConnectTimeout(builder, configuration.getHttpClientTimeout());
+                OkHttpClientUtils.applyMetrics(builder);
+                httpClient = builder.build();
+            }
+            return httpClient;
+        }
+    }
+
+    private static class AuthorizationException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private AuthorizationException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Image name split into registry host, repository and tag or digest, Docker Hub names included.
+     */
+    static class ImageReference {
+        final String host;
+        final String repository;
+        final String reference;
+
+        private ImageReference(String host, String repository, String reference) {
+            this.host = host;
+            this.repository = repository;
+            this.reference = reference;
+        }
+
+        static ImageReference parse(String image) {
+            String name = image;
+            String reference;
+            int at = name.indexOf('@');
+            int colon = name.lastIndexOf(':');
+            if (at > 0) {
+                reference = name.substring(at + 1);
+                name = name.substring(0, at);
+            } else if (colon > name.lastIndexOf('/')) {
+                reference = name.substring(colon + 1);
+                name = name.substring(0, colon);
+            } else {
+                reference = "latest";
+            }
+            int slash = name.indexOf('/');
+            String first = (slash > 0) ? name.substring(0, slash) : "";
+            if (first.contains(".") || first.contains(":") || "localhost".equals(first)) {
+                return new ImageReference(first, name.substring(slash + 1), reference);
+            }
+            return new ImageReference(DOCKER_HUB, (slash > 0) ? name : "library/" + name, reference);
+        }
+    }
+}
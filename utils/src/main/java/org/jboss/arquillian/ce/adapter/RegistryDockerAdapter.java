@@ -0,0 +1,453 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.jboss.arquillian.ce.utils.Configuration;
+import org.jboss.arquillian.ce.utils.RegistryLookup;
+import org.jboss.arquillian.ce.utils.Timer;
+import org.jboss.dmr.ModelNode;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.exporter.ZipExporter;
+
+/**
+ * Daemonless image builder: the deployment is added as a single layer on top of the base image
+ * (or as library and application layers, with docker.image.layout=split),
+ * which is assembled in-process and pushed through the registry v2 HTTP API.
+ * <p/>
+ * Only FROM, ADD / COPY of the deployment, ENV, LABEL and USER are supported, as nothing can be run.
+ * Base manifests are fetched once; base layers are only copied if the target registry doesn't have them yet.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class RegistryDockerAdapter extends AbstractDockerAdapter {
+    private final static Logger log = Logger.getLogger(RegistryDockerAdapter.class.getName());
+
+    private static final String EPOCH = "1970-01-01T00:00:00Z";
+
+    private final RegistryClient registryClient;
+    private final Map<String, BaseImage> bases = new ConcurrentHashMap<>();
+    private final Set<String> blobs = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    public RegistryDockerAdapter(Configuration configuration, RegistryLookup lookup) {
+        super(configuration, lookup);
+        this.registryClient = new RegistryClient(configuration);
+        log.info("Daemonless Docker image builder.");
+    }
+
+    public void close() throws IOException {
+    }
+
+    public String buildAndPushImage(DockerAdapterContext context) throws IOException {
+        final Archive<?> deployment = context.getDeployment();
+
+        String df = resolveDockerfile(context);
+        Instructions instructions = Instructions.parse(df, deployment.getName());
+
+        RegistryLookup.RegistryLookupEntry rle = lookup.lookup();
+        String host = getRegistryHost(rle);
+        registryClient.addTarget(host);
+        String repository = getRepository(context);
+        String imageName = host + "/" + repository;
+        log.info(String.format("Docker image name: %s", imageName));
+
+        final Timer timer = new Timer();
+
+        BaseImage base = getBaseImage(instructions.from);
+        String tag = isContentTag() ? contentTag(deployment, df, instructions.from, base.digest) : configuration.getImageTag();
+        if (isContentTag() && registryClient.manifestExists(host, repository, tag)) {
+            log.info(String.format("Image %s:%s already in registry, skipping build and push.", imageName, tag));
+            return imageName + ":" + tag;
+        }
+
+        for (ModelNode layer : base.manifest.get("layers").asList()) {
+            ensureBlob(base, host, repository, layer.get("digest").asString(), layer.get("size").asLong());
+        }
+
+        List<Layer> layers = layers(deployment, df, instructions);
+        for (Layer layer : layers) {
+            // an unchanged library layer is already in the registry, pushBlob only checks for it
+            registryClient.pushBlob(host, repository, layer.digest, layer.bytes);
+        }
+
+        byte[] config = config(base.config, layers, instructions);
+        String configDigest = sha256(config);
+        registryClient.pushBlob(host, repository, configDigest, config);
+
+        byte[] manifest = manifest(base.manifest, configDigest, config.length, layers);
+        registryClient.putManifest(host, repository, tag, manifest);
+        log.info(String.format("Pushed image %s with tag %s, layers %s [%s].", imageName, tag, layers, timer));
+
+        String result = imageName + ":" + tag;
+        images.put(deployment.getName(), result); // remember which images we built
+        return result;
+    }
+
+    public void removeImage(String imageId) {
+        // nothing was built locally, and the registry keeps the tag, same as with the Docker daemon
+        log.fine(String.format("No local Docker image to remove: %s", imageId));
+    }
+
+    private BaseImage getBaseImage(String from) throws IOException {
+        BaseImage base = bases.get(from);
+        if (base == null) {
+            base = new BaseImage(from);
+            byte[] manifest = registryClient.getManifest(base.host, base.repository, base.reference);
+            base.digest = sha256(manifest);
+            base.manifest = ModelNode.fromJSONString(new String(manifest, UTF_8));
+            String configDigest = base.manifest.get("config", "digest").asString();
+            base.config = ModelNode.fromJSONString(new String(registryClient.getBlob(base.host, base.repository, configDigest), UTF_8));
+            bases.put(from, base);
+            log.info(String.format("Base image %s: %s layers.", from, base.manifest.get("layers").asList().size()));
+        }
+        return base;
+    }
+
+    private void ensureBlob(BaseImage base, String host, String repository, String digest, long size) throws IOException {
+        String key = host + "/" + repository + "@" + digest;
+        if (blobs.contains(key) == false) {
+            if (registryClient.blobExists(host, repository, digest) == false) {
+                log.info(String.format("Copying base layer %s [%s bytes] to %s/%s ...", digest, size, host, repository));
+                registryClient.copyBlob(base.host, base.repository, digest, size, host, repository);
+            }
+            blobs.add(key);
+        }
+    }
+
+    private List<Layer> layers(Archive<?> deployment, String dockerfile, Instructions instructions) throws IOException {
+        DeploymentLayout.Target target = DeploymentLayout.SPLIT.equals(configuration.getImageLayout()) ? DeploymentLayout.target(dockerfile, deployment.getName()) : null;
+        if (target == null) {
+            ByteArrayOutputStream zip = new ByteArrayOutputStream();
+            deployment.as(ZipExporter.class).exportTo(zip);
+            return Collections.singletonList(Layer.create(Collections.singletonMap(instructions.destination, zip.toByteArray()), null, instructions.add));
+        }
+
+        DeploymentLayout layout = DeploymentLayout.split(deployment, target);
+        String root = target.dir + target.name + "/";
+        List<Layer> layers = new ArrayList<>();
+        if (layout.getLibraries().isEmpty() == false) {
+            layers.add(Layer.create(prefix(target.dir, layout.getLibraries()), root, "COPY libs/ " + target.dir));
+            log.info(String.format("Library layer of %s: %s [%s].", deployment.getName(), layers.get(0).digest, layout.getLibrariesHash()));
+        }
+        layers.add(Layer.create(prefix(target.dir, layout.getApplication()), root, "COPY app/ " + target.dir));
+        return layers;
+    }
+
+    private static Map<String, byte[]> prefix(String dir, Map<String, byte[]> entries) {
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            result.put(dir + entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    private static byte[] config(ModelNode baseConfig, List<Layer> layers, Instructions instructions) {
+        ModelNode config = baseConfig.clone();
+        config.get("created").set(EPOCH);
+
+        ModelNode containerConfig = config.get("config");
+        if (instructions.env.isEmpty() == false) {
+            Map<String, String> env = new LinkedHashMap<>();
+            if (containerConfig.hasDefined("Env")) {
+                for (ModelNode entry : containerConfig.get("Env").asList()) {
+                    String value = entry.asString();
+                    int p = value.indexOf('=');
+                    env.put(p > 0 ? value.substring(0, p) : value, p > 0 ? value.substring(p + 1) : "");
+                }
+            }
+            env.putAll(instructions.env);
+            ModelNode list = new ModelNode().setEmptyList();
+            for (Map.Entry<String, String> entry : env.entrySet()) {
+                list.add(entry.getKey() + "=" + entry.getValue());
+            }
+            containerConfig.get("Env").set(list);
+        }
+        for (Map.Entry<String, String> entry : instructions.labels.entrySet()) {
+            containerConfig.get("Labels", entry.getKey()).set(entry.getValue());
+        }
+        if (instructions.user != null) {
+            containerConfig.get("User").set(instructions.user);
+        }
+
+        for (Layer layer : layers) {
+            config.get("rootfs", "diff_ids").add(layer.diffId);
+        }
+        for (String instruction : instructions.history) {
+            if (instruction.equals(instructions.add)) {
+                for (Layer layer : layers) {
+                    config.get("history").add(history(layer.instruction, false));
+                }
+            } else {
+                config.get("history").add(history(instruction, true));
+            }
+        }
+        return config.toJSONString(true).getBytes(UTF_8);
+    }
+
+    private static ModelNode history(String instruction, boolean empty) {
+        ModelNode history = new ModelNode();
+        history.get("created").set(EPOCH);
+        history.get("created_by").set("/bin/sh -c #(nop) " + instruction);
+        if (empty) {
+            history.get("empty_layer").set(true);
+        }
+        return history;
+    }
+
+    private static byte[] manifest(ModelNode baseManifest, String configDigest, int configSize, List<Layer> layers) {
+        ModelNode manifest = baseManifest.clone();
+        manifest.get("config", "mediaType").set(RegistryClient.CONFIG_V1);
+        manifest.get("config", "size").set(configSize);
+        manifest.get("config", "digest").set(configDigest);
+        for (Layer layer : layers) {
+            ModelNode node = new ModelNode();
+            node.get("mediaType").set(RegistryClient.LAYER_GZIP);
+            node.get("size").set(layer.bytes.length);
+            node.get("digest").set(layer.digest);
+            manifest.get("layers").add(node);
+        }
+        return manifest.toJSONString(true).getBytes(UTF_8);
+    }
+
+    /**
+     * host[:port]/repository[:tag], Docker Hub if there is no registry host.
+     */
+    private static class BaseImage {
+        private final String host;
+        private final String repository;
+        private final String reference;
+        private String digest;
+        private ModelNode manifest;
+        private ModelNode config;
+
+        private BaseImage(String from) {
+            RegistryClient.ImageReference ref = RegistryClient.ImageReference.parse(from);
+            host = ref.host;
+            repository = ref.repository;
+            reference = ref.reference;
+        }
+    }
+
+    /**
+     * Files at absolute paths as a layer, with reproducible ordering and timestamps.
+     * Only directories inside the (exploded) deployment get entries, a parent dir entry would
+     * replace the base image's ownership and mode of that dir, e.g. of the server's deployments dir.
+     */
+    private static class Layer {
+        private final byte[] bytes;
+        private final String digest;
+        private final String diffId;
+        private final String instruction;
+
+        private Layer(byte[] tar, byte[] bytes, String instruction) {
+            this.bytes = bytes;
+            this.digest = sha256(bytes);
+            this.diffId = sha256(tar);
+            this.instruction = instruction;
+        }
+
+        private static Layer create(Map<String, byte[]> files, String root, String instruction) throws IOException {
+            String base = (root != null && root.startsWith("/")) ? root.substring(1) : root;
+            ByteArrayOutputStream tar = new ByteArrayOutputStream();
+            try (TarArchiveOutputStream stream = new TarArchiveOutputStream(tar)) {
+                stream.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+                stream.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+                Set<String> dirs = new HashSet<>();
+                for (Map.Entry<String, byte[]> file : new TreeMap<>(files).entrySet()) {
+                    String path = file.getKey().startsWith("/") ? file.getKey().substring(1) : file.getKey();
+                    for (int p = path.indexOf('/'); p > 0; p = path.indexOf('/', p + 1)) {
+                        String dir = path.substring(0, p + 1);
+                        if (base != null && dir.startsWith(base) && dirs.add(dir)) {
+                            TarArchiveEntry entry = new TarArchiveEntry(dir);
+                            entry.setMode(040755);
+                            entry.setModTime(0);
+                            stream.putArchiveEntry(entry);
+                            stream.closeArchiveEntry();
+                        }
+                    }
+                    byte[] content = file.getValue();
+                    TarArchiveEntry entry = new TarArchiveEntry(path);
+                    entry.setSize(content.length);
+                    entry.setMode(0100644);
+                    entry.setModTime(0);
+                    stream.putArchiveEntry(entry);
+                    stream.write(content);
+                    stream.closeArchiveEntry();
+                }
+            }
+
+            ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+            try (GZIPOutputStream stream = new GZIPOutputStream(gzip)) {
+                stream.write(tar.toByteArray());
+            }
+            return new Layer(tar.toByteArray(), gzip.toByteArray(), instruction);
+        }
+
+        @Override
+        public String toString() {
+            return digest;
+        }
+    }
+
+    /**
+     * The Dockerfile instructions we can apply without running anything.
+     */
+    private static class Instructions {
+        private String from;
+        private String destination;
+        private String add;
+        private Map<String, String> env = new LinkedHashMap<>();
+        private Map<String, String> labels = new LinkedHashMap<>();
+        private String user;
+        private List<String> history = new ArrayList<>();
+
+        private static Instructions parse(String dockerfile, String deploymentName) throws IOException {
+            Instructions instructions = new Instructions();
+            for (String line : dockerfile.split("\n")) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] split = line.split("\\s+", 2);
+                String instruction = split[0].toUpperCase();
+                String args = (split.length > 1) ? split[1].trim() : "";
+                switch (instruction) {
+                    case "FROM":
+                        instructions.from = args;
+                        continue;
+                    case "ADD":
+                    case "COPY":
+                        String[] paths = args.split("\\s+");
+                        if (paths.length != 2 || paths[0].equals(deploymentName) == false) {
+                            throw new IOException(String.format("Only the deployment can be added without a Docker daemon: %s", line));
+                        }
+                        String destination = DeploymentLayout.toDirectory(paths[1]);
+                        instructions.destination = destination.endsWith("/") ? destination + deploymentName : destination;
+                        instructions.add = instruction + " " + args;
+                        break;
+                    case "ENV":
+                        keyValues(args, instructions.env, true);
+                        break;
+                    case "LABEL":
+                        keyValues(args, instructions.labels, false);
+                        break;
+                    case "USER":
+                        instructions.user = args;
+                        break;
+                    default:
+                        throw new IOException(String.format("Instruction %s needs a Docker daemon, use docker.builder=daemon.", instruction));
+                }
+                instructions.history.add(instruction + " " + args);
+            }
+            if (instructions.from == null || instructions.destination == null) {
+                throw new IOException("Dockerfile needs FROM and ADD of the deployment.");
+            }
+            return instructions;
+        }
+
+        /**
+         * key=value pairs, or the legacy "key value" form (ENV only), with quotes and escapes as Docker reads them.
+         */
+        private static void keyValues(String args, Map<String, String> map, boolean legacy) throws IOException {
+            String[] split = args.split("\\s+", 2);
+            if (legacy && split[0].contains("=") == false) {
+                List<String> key = words(split[0], true);
+                List<String> value = words((split.length > 1) ? split[1] : "", false);
+                map.put(key.get(0), value.isEmpty() ? "" : value.get(0));
+                return;
+            }
+            for (String pair : words(args, true)) {
+                int p = pair.indexOf('=');
+                if (p <= 0) {
+                    throw new IOException(String.format("Expected key=value, got '%s' in: %s", pair, args));
+                }
+                map.put(pair.substring(0, p), pair.substring(p + 1));
+            }
+        }
+
+        /**
+         * Words with quotes removed and escapes resolved, split on whitespace outside of quotes if split is true.
+         * Single quotes keep everything literal, in double quotes a backslash only escapes ", \, $ and `.
+         */
+        private static List<String> words(String args, boolean split) throws IOException {
+            List<String> words = new ArrayList<>();
+            StringBuilder word = new StringBuilder();
+            boolean inWord = false;
+            char quote = 0;
+            for (int i = 0; i < args.length(); i++) {
+                char c = args.charAt(i);
+                if (quote == '\'') {
+                    if (c == '\'') {
+                        quote = 0;
+                    } else {
+                        word.append(c);
+                    }
+                } else if (c == '\\' && i + 1 < args.length() && (quote == 0 || "\"\\$`".indexOf(args.charAt(i + 1)) >= 0)) {
+                    word.append(args.charAt(++i));
+                    inWord = true;
+                } else if (quote == '"') {
+                    if (c == '"') {
+                        quote = 0;
+                    } else {
+                        word.append(c);
+                    }
+                } else if (c == '"' || c == '\'') {
+                    quote = c;
+                    inWord = true;
+                } else if (split && Character.isWhitespace(c)) {
+                    if (inWord) {
+                        words.add(word.toString());
+                        word.setLength(0);
+                        inWord = false;
+                    }
+                } else {
+                    word.append(c);
+                    inWord = true;
+                }
+            }
+            if (quote != 0) {
+                throw new IOException(String.format("Unterminated quote in: %s", args));
+            }
+            if (inWord) {
+                words.add(word.toString());
+            }
+            return words;
+        }
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Namespace scoped resource cache.
+ * <p/>
+ * One watch keeps the in-memory store up-to-date, lookups by label selector are indexed.
+ * Resources are kept ordered by name, so the ordering is stable -- and the same as the API's list.
+ * If the watch drops, the store is still used until the staleness bound is hit, then we re-list.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class Informer<T> implements Closeable {
+    private static final Logger log = Logger.getLogger(Informer.class.getName());
+
+    public interface Source<T> {
+        String getName(T resource);
+
+        Map<String, String> getLabels(T resource);
+
+        List<T> list() throws Exception;
+
+        Closeable watch(WatchListener<T> listener) throws Exception;
+    }
+
+    private final String description;
+    private final Source<T> source;
+    private final long staleness;
+
+    private final NavigableMap<String, T> store = new TreeMap<>();
+    private final Map<Map<String, String>, List<T>> index = new HashMap<>();
+    private final List<WatchListener<T>> listeners = new CopyOnWriteArrayList<>();
+    private final Object resyncLock = new Object();
+
+    private Closeable watch;
+    private int generation;
+    private boolean connected;
+    private boolean synced;
+    private long staleSince;
+    private Set<String> resyncEvents;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param description the description, e.g. kind and namespace
+     * @param source      the list / watch source
+     * @param staleness   how long (in millis) we still serve from cache after the watch dropped
+     */
+    public Informer(String description, Source<T> source, long staleness) {
+        this.description = description;
+        this.source = source;
+        this.staleness = staleness;
+    }
+
+    /**
+     * Select resources matching labels.
+     *
+     * @param labels the labels, null or empty means all
+     * @return resources ordered by name
+     */
+    public List<T> select(Map<String, String> labels) {
+        Map<String, String> key = (labels != null) ? labels : Collections.<String, String>emptyMap();
+        ensureFresh();
+        synchronized (this) {
+            return lookup(key);
+        }
+    }
+
+    /**
+     * Get resource by name.
+     *
+     * @param name the name
+     * @return resource or null if no such resource
+     */
+    public T get(String name) {
+        ensureFresh();
+        synchronized (this) {
+            return store.get(name);
+        }
+    }
+
+    /**
+     * Find first resource, by name order, whose name starts with prefix.
+     *
+     * @param prefix the name prefix
+     * @return resource or null if no such resource
+     */
+    public T findFirst(String prefix) {
+        ensureFresh();
+        synchronized (this) {
+            String name = store.ceilingKey(prefix);
+            return (name != null && name.startsWith(prefix)) ? store.get(name) : null;
+        }
+    }
+
+    /**
+     * Drop resource the server no longer has, e.g. its deletion event was missed.
+     *
+     * @param name the name
+     */
+    public void evict(String name) {
+        synchronized (this) {
+            if (store.remove(name) != null) {
+                index.clear();
+            }
+        }
+    }
+
+    /**
+     * Subscribe to events.
+     *
+     * @param listener the listener
+     * @return handle to unsubscribe, or null if there is no live watch
+     */
+    public Closeable subscribe(final WatchListener<T> listener) {
+        resync();
+        listeners.add(listener);
+        synchronized (this) {
+            if (connected == false) {
+                listeners.remove(listener);
+                return null;
+            }
+        }
+        return new Closeable() {
+            public void close() {
+                listeners.remove(listener);
+            }
+        };
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private void ensureFresh() {
+        synchronized (this) {
+            if (isFresh()) {
+                hits.incrementAndGet();
+                return;
+            }
+        }
+        misses.incrementAndGet();
+        resync();
+    }
+
+    private boolean isFresh() {
+        return synced && (connected || (System.nanoTime() - staleSince) <= TimeUnit.MILLISECONDS.toNanos(staleness));
+    }
+
+    private List<T> lookup(Map<String, String> labels) {
+        List<T> result = index.get(labels);
+        if (result == null) {
+            List<T> list = new ArrayList<>();
+            for (T resource : store.values()) {
+                if (matches(source.getLabels(resource), labels)) {
+                    list.add(resource);
+                }
+            }
+            result = Collections.unmodifiableList(list);
+            index.put(new HashMap<>(labels), result);
+        }
+        return result;
+    }
+
+    private static boolean matches(Map<String, String> resourceLabels, Map<String, String> labels) {
+        if (labels.isEmpty()) {
+            return true;
+        }
+        if (resourceLabels == null) {
+            return false;
+        }
+        for (Map.Entry<String, String> entry : labels.entrySet()) {
+            if (entry.getValue().equals(resourceLabels.get(entry.getKey())) == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void resync() {
+        synchronized (resyncLock) {
+            synchronized (this) {
+                if (isFresh() && connected) {
+                    return;
+                }
+                resyncEvents = new HashSet<>();
+            }
+
+            closeWatch();
+            int current;
+            synchronized (this) {
+                current = ++generation;
+                connected = true; // an early close event resets this
+            }
+            try {
+                Closeable handle = source.watch(new Handler(current));
+                synchronized (this) {
+                    watch = handle;
+                }
+            } catch (Exception e) {
+                synchronized (this) {
+                    connected = false;
+                }
+                log.log(Level.WARNING, String.format("Cannot watch %s, serving from list: %s", description, e), e);
+            }
+
+            List<T> items;
+            try {
+                items = source.list();
+            } catch (Exception e) {
+                synchronized (this) {
+                    resyncEvents = null;
+                }
+                throw new IllegalStateException(String.format("Cannot list %s.", description), e);
+            }
+
+            synchronized (this) {
+                // events received during re-list are newer
+                Map<String, T> previous = new HashMap<>(store);
+                store.clear();
+                for (T resource : items) {
+                    String name = source.getName(resource);
+                    if (resyncEvents.contains(name) == false) {
+                        store.put(name, resource);
+                    }
+                }
+                for (String name : resyncEvents) {
+                    T resource = previous.get(name);
+                    if (resource != null && store.containsKey(name) == false) {
+                        store.put(name, resource);
+                    }
+                }
+                index.clear();
+                resyncEvents = null;
+                synced = true;
+                staleSince = System.nanoTime();
+            }
+        }
+    }
+
+    private void onEvent(int gen, T resource, boolean deleted) {
+        String name = source.getName(resource);
+        synchronized (this) {
+            if (gen != generation) {
+                return; // old watch
+            }
+            if (deleted) {
+                store.remove(name);
+            } else {
+                store.put(name, resource);
+            }
+            index.clear();
+            if (resyncEvents != null) {
+                resyncEvents.add(name);
+            }
+        }
+        for (WatchListener<T> listener : listeners) {
+            listener.onEvent(resource, deleted);
+        }
+    }
+
+    private void onClose(int gen, Throwable cause) {
+        synchronized (this) {
+            if (gen != generation || connected == false) {
+                return;
+            }
+            connected = false;
+            staleSince = System.nanoTime();
+        }
+        log.info(String.format("Watch on %s closed: %s", description, cause));
+        for (WatchListener<T> listener : listeners) {
+            listener.onClose(cause);
+        }
+    }
+
+    private void closeWatch() {
+        Closeable handle;
+        synchronized (this) {
+            handle = watch;
+            watch = null;
+            connected = false;
+            generation++;
+        }
+        if (handle != null) {
+            try {
+                handle.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    public void close() {
+        closeWatch();
+        synchronized (this) {
+            store.clear();
+            index.clear();
+            synced = false;
+        }
+        listeners.clear();
+        log.info(String.format("Cache %s closed -- hits: %s, misses: %s", description, hits, misses));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Informer[%s, hits=%s, misses=%s]", description, hits, misses);
+    }
+
+    private class Handler implements WatchListener<T> {
+        private final int generation;
+
+        private Handler(int generation) {
+            this.generation = generation;
+        }
+
+        public void onEvent(T resource, boolean deleted) {
+            Informer.this.onEvent(generation, resource, deleted);
+        }
+
+        public void onClose(Throwable cause) {
+            Informer.this.onClose(generation, cause);
+        }
+    }
+}
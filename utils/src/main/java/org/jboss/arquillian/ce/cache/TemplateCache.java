@@ -0,0 +1,257 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.arquillian.ce.utils.Configuration;
+
+/**
+ * JVM wide cache for template and resource URLs.
+ * <p/>
+ * Content is kept in a small in-memory LRU and on disk, keyed by URL digest.
+ * Cached content is revalidated with ETag / Last-Modified on every use, unless a revalidation interval is set.
+ * In offline mode only cached content is served.
+ * <p/>
+ * Only bytes are cached; parsed templates are modified by processing, so they are not shared.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class TemplateCache {
+    private static final Logger log = Logger.getLogger(TemplateCache.class.getName());
+
+    private static final int MEMORY_ENTRIES = 64;
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "last-modified";
+    private static final String URL_KEY = "url";
+
+    private static TemplateCache cache;
+
+    private final File dir;
+    private final boolean offline;
+    private final long revalidate;
+    private final Map<String, Entry> memory = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MEMORY_ENTRIES;
+        }
+    };
+
+    public static synchronized TemplateCache getInstance(Configuration configuration) {
+        if (cache == null) {
+            cache = new TemplateCache(new File(configuration.getTemplateCacheDir()), configuration.isTemplateCacheOffline(), configuration.getTemplateCacheRevalidate());
+        }
+        return cache;
+    }
+
+    TemplateCache(File dir, boolean offline, long revalidate) {
+        this.dir = dir;
+        this.offline = offline;
+        this.revalidate = TimeUnit.SECONDS.toNanos(revalidate);
+    }
+
+    /**
+     * Open URL, served from cache where possible.
+     * Only http(s) URLs are cached.
+     *
+     * @param url the url
+     * @return content stream
+     * @throws IOException for any I/O error, or if offline and not cached
+     */
+    public InputStream openStream(String url) throws IOException {
+        if (url.startsWith("http") == false) {
+            return new URL(url).openStream();
+        }
+        return new ByteArrayInputStream(get(url).body);
+    }
+
+    private Entry get(String url) throws IOException {
+        String key = digest(url);
+
+        Entry entry;
+        synchronized (memory) {
+            entry = memory.get(key);
+        }
+        if (entry == null) {
+            entry = load(key);
+        }
+
+        if (entry != null && (offline || System.nanoTime() - entry.validated < revalidate)) {
+            return remember(key, entry);
+        }
+        if (entry == null && offline) {
+            throw new IOException(String.format("No cached content for %s, offline.", url));
+        }
+
+        try {
+            return remember(key, fetch(url, key, entry));
+        } catch (IOException e) {
+            if (entry != null) {
+                log.log(Level.WARNING, String.format("Cannot revalidate %s, using cached content: %s", url, e), e);
+                return remember(key, entry);
+            }
+            throw e;
+        }
+    }
+
+    private Entry remember(String key, Entry entry) {
+        synchronized (memory) {
+            memory.put(key, entry);
+        }
+        return entry;
+    }
+
+    private Entry fetch(String url, String key, Entry entry) throws IOException {
+        URLConnection connection = new URL(url).openConnection();
+        if (entry != null && connection instanceof HttpURLConnection) {
+            if (entry.etag != null) {
+                connection.setRequestProperty("If-None-Match", entry.etag);
+            }
+            if (entry.lastModified != null) {
+                connection.setRequestProperty("If-Modified-Since", entry.lastModified);
+            }
+        }
+
+        if (connection instanceof HttpURLConnection && ((HttpURLConnection) connection).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            log.fine(String.format("Not modified: %s", url));
+            return new Entry(entry.body, entry.etag, entry.lastModified);
+        }
+
+        byte[] body;
+        try (InputStream stream = connection.getInputStream()) {
+            body = readFully(stream);
+        }
+        Entry fetched = new Entry(body, connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"));
+        store(url, key, fetched);
+        return fetched;
+    }
+
+    private Entry load(String key) {
+        File body = new File(dir, key + ".body");
+        File metadata = new File(dir, key + ".properties");
+        if (body.exists() == false || metadata.exists() == false) {
+            return null;
+        }
+        try {
+            Properties properties = new Properties();
+            try (InputStream stream = new FileInputStream(metadata)) {
+                properties.load(stream);
+            }
+            try (InputStream stream = new FileInputStream(body)) {
+                Entry entry = new Entry(readFully(stream), properties.getProperty(ETAG), properties.getProperty(LAST_MODIFIED));
+                entry.validated = System.nanoTime() - revalidate; // needs revalidation
+                return entry;
+            }
+        } catch (IOException e) {
+            log.log(Level.WARNING, String.format("Cannot read cached content %s: %s", key, e), e);
+            return null;
+        }
+    }
+
+    private void store(String url, String key, Entry entry) {
+        try {
+            if (dir.exists() == false && dir.mkdirs() == false) {
+                throw new IOException("Cannot create cache dir " + dir);
+            }
+            File body = new File(dir, key + ".body");
+            File tmp = new File(dir, key + ".body.tmp");
+            try (OutputStream stream = new FileOutputStream(tmp)) {
+                stream.write(entry.body);
+            }
+            if (body.exists() && body.delete() == false || tmp.renameTo(body) == false) {
+                throw new IOException("Cannot replace cached content " + body);
+            }
+
+            Properties properties = new Properties();
+            properties.setProperty(URL_KEY, url);
+            if (entry.etag != null) {
+                properties.setProperty(ETAG, entry.etag);
+            }
+            if (entry.lastModified != null) {
+                properties.setProperty(LAST_MODIFIED, entry.lastModified);
+            }
+            try (OutputStream stream = new FileOutputStream(new File(dir, key + ".properties"))) {
+                properties.store(stream, null);
+            }
+        } catch (IOException e) {
+            log.log(Level.WARNING, String.format("Cannot cache %s: %s", url, e), e);
+        }
+    }
+
+    private static byte[] readFully(InputStream stream) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = stream.read(buffer)) != -1) {
+            baos.write(buffer, 0, n);
+        }
+        return baos.toByteArray();
+    }
+
+    private static String digest(String url) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] hash = md.digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder();
+            for (byte b : hash) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Entry {
+        private final byte[] body;
+        private final String etag;
+        private final String lastModified;
+        private long validated = System.nanoTime();
+
+        private Entry(byte[] body, String etag, String lastModified) {
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+}
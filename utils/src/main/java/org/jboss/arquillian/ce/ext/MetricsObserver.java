@@ -0,0 +1,71 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.ext;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.arquillian.ce.metrics.ApiMetrics;
+import org.jboss.arquillian.core.api.annotation.Observes;
+import org.jboss.arquillian.test.spi.event.suite.AfterSuite;
+
+import static org.jboss.arquillian.ce.utils.Strings.getSystemPropertyOrEnvVar;
+
+/**
+ * Dump API metrics after suite.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class MetricsObserver {
+    private static final Logger log = Logger.getLogger(MetricsObserver.class.getName());
+
+    public void dump(@Observes(precedence = -1000) AfterSuite event) {
+        ApiMetrics metrics = ApiMetrics.getInstance();
+        if (metrics.getRequestCount() == 0) {
+            return;
+        }
+
+        String report = metrics.dump();
+        log.info(report);
+
+        String path = getSystemPropertyOrEnvVar("arquillian.metrics.file", "target/ce-api-metrics.txt");
+        File file = new File(path);
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent.exists() == false && parent.mkdirs() == false) {
+            log.warning(String.format("Cannot create metrics dir %s", parent));
+            return;
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(report);
+        } catch (IOException e) {
+            log.log(Level.WARNING, String.format("Cannot write metrics to %s: %s", file, e), e);
+        }
+    }
+}
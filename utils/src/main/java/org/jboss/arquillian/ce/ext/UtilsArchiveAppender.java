@@ -24,6 +24,9 @@
 package org.jboss.arquillian.ce.ext;
 
 import org.jboss.arquillian.ce.api.ConfigurationHandle;
+import org.jboss.arquillian.ce.api.ExecResult;
+import org.jboss.arquillian.ce.api.AsyncOpenShiftHandle;
+import org.jboss.arquillian.ce.api.LogOptions;
 import org.jboss.arquillian.ce.api.OpenShiftHandle;
 import org.jboss.arquillian.ce.api.Tools;
 import org.jboss.arquillian.container.test.spi.RemoteLoadableExtension;
@@ -47,6 +50,9 @@ public class UtilsArchiveAppender implements AuxiliaryArchiveAppender {
             .add(new StringAsset(RemoteConfigurationResourceProvider.toProperties(configurationInstance.get())), RemoteConfigurationResourceProvider.FILE_NAME)
             .addClass(ConfigurationHandle.class)
             .addClass(OpenShiftHandle.class)
+            .addClass(AsyncOpenShiftHandle.class)
+            .addClass(ExecResult.class)
+            .addClass(LogOptions.class)
             .addClass(Tools.class)
             .addClass(UtilsCEExtensionContainer.class)
             .addClass(RemoteConfigurationResourceProvider.class)
@@ -38,6 +38,8 @@ public class UtilsCEExtension implements LoadableExtension {
         builder.service(DeploymentScenarioGenerator.class, ExternalDeploymentScenarioGenerator.class);
         builder.service(ResourceProvider.class, LocalConfigurationResourceProvider.class);
         builder.service(ResourceProvider.class, OpenShiftHandleResourceProvider.class);
+        builder.service(ResourceProvider.class, AsyncOpenShiftHandleResourceProvider.class);
         builder.service(AuxiliaryArchiveAppender.class, UtilsArchiveAppender.class);
+        builder.observer(MetricsObserver.class);
     }
 }
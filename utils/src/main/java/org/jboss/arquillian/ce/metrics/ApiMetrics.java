@@ -0,0 +1,224 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * JVM wide API metrics.
+ * <p/>
+ * Requests are grouped by verb, resource kind and endpoint (kind plus sub-resource, e.g. pods/log),
+ * each with a count, errors, a latency histogram and bytes transferred.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class ApiMetrics implements ApiMetricsMBean {
+    private static final Logger log = Logger.getLogger(ApiMetrics.class.getName());
+
+    public static final String OBJECT_NAME = "org.jboss.arquillian.ce:type=ApiMetrics";
+
+    // histogram upper bounds, in millis; last bucket is everything above
+    private static final long[] BUCKETS = {10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private static final ApiMetrics INSTANCE = new ApiMetrics();
+
+    static {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name) == false) {
+                server.registerMBean(INSTANCE, name);
+            }
+        } catch (Exception e) {
+            log.log(Level.WARNING, String.format("Cannot register %s: %s", OBJECT_NAME, e), e);
+        }
+    }
+
+    private final ConcurrentMap<String, Stats> stats = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Stats> conditions = new ConcurrentHashMap<>();
+
+    public static ApiMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    private ApiMetrics() {
+    }
+
+    /**
+     * Record single request.
+     *
+     * @param verb     the verb, e.g. GET, LIST, WATCH
+     * @param kind     the resource kind, e.g. pods
+     * @param endpoint the endpoint, e.g. pods/proxy
+     * @param nanos    the duration
+     * @param sent     bytes sent, negative if unknown
+     * @param received bytes received, negative if unknown
+     * @param error    was this an error
+     */
+    public void record(String verb, String kind, String endpoint, long nanos, long sent, long received, boolean error) {
+        getStats(stats, String.format("%s %s [%s]", verb, kind, endpoint)).record(nanos, sent, received, error);
+    }
+
+    /**
+     * Record time-to-condition, e.g. pods ready.
+     *
+     * @param condition the condition
+     * @param nanos     time until condition passed or timed out
+     * @param passed    did the condition pass
+     */
+    public void recordCondition(String condition, long nanos, boolean passed) {
+        getStats(conditions, condition).record(nanos, -1, -1, passed == false);
+    }
+
+    private static Stats getStats(ConcurrentMap<String, Stats> map, String key) {
+        Stats s = map.get(key);
+        if (s == null) {
+            Stats previous = map.putIfAbsent(key, s = new Stats());
+            if (previous != null) {
+                s = previous;
+            }
+        }
+        return s;
+    }
+
+    public long getRequestCount() {
+        long count = 0;
+        for (Stats s : stats.values()) {
+            count += s.count.get();
+        }
+        return count;
+    }
+
+    public long getErrorCount() {
+        long count = 0;
+        for (Stats s : stats.values()) {
+            count += s.errors.get();
+        }
+        return count;
+    }
+
+    public long getTotalMillis() {
+        long nanos = 0;
+        for (Stats s : stats.values()) {
+            nanos += s.nanos.get();
+        }
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    public long getBytesSent() {
+        long bytes = 0;
+        for (Stats s : stats.values()) {
+            bytes += s.sent.get();
+        }
+        return bytes;
+    }
+
+    public long getBytesReceived() {
+        long bytes = 0;
+        for (Stats s : stats.values()) {
+            bytes += s.received.get();
+        }
+        return bytes;
+    }
+
+    public String dump() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("API requests: %s, errors: %s, total: %sms, sent: %sb, received: %sb%n",
+            getRequestCount(), getErrorCount(), getTotalMillis(), getBytesSent(), getBytesReceived()));
+        builder.append("histogram buckets (ms): <=");
+        for (long bucket : BUCKETS) {
+            builder.append(bucket).append(" ");
+        }
+        builder.append(String.format(">%s%n", BUCKETS[BUCKETS.length - 1]));
+        for (Map.Entry<String, Stats> entry : new TreeMap<>(stats).entrySet()) {
+            builder.append(entry.getKey()).append(" -- ").append(entry.getValue()).append(String.format("%n"));
+        }
+        if (conditions.isEmpty() == false) {
+            builder.append(String.format("Conditions (errors are timeouts):%n"));
+            for (Map.Entry<String, Stats> entry : new TreeMap<>(conditions).entrySet()) {
+                builder.append(entry.getKey()).append(" -- ").append(entry.getValue()).append(String.format("%n"));
+            }
+        }
+        return builder.toString();
+    }
+
+    public void reset() {
+        stats.clear();
+        conditions.clear();
+    }
+
+    private static class Stats {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+        private final AtomicLong sent = new AtomicLong();
+        private final AtomicLong received = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS.length + 1);
+
+        private void record(long duration, long sentBytes, long receivedBytes, boolean error) {
+            count.incrementAndGet();
+            if (error) {
+                errors.incrementAndGet();
+            }
+            nanos.addAndGet(duration);
+            long current;
+            while (duration > (current = max.get()) && max.compareAndSet(current, duration) == false) {
+                // retry
+            }
+            if (sentBytes > 0) {
+                sent.addAndGet(sentBytes);
+            }
+            if (receivedBytes > 0) {
+                received.addAndGet(receivedBytes);
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(duration);
+            int i = 0;
+            while (i < BUCKETS.length && millis > BUCKETS[i]) {
+                i++;
+            }
+            histogram.incrementAndGet(i);
+        }
+
+        @Override
+        public String toString() {
+            long n = count.get();
+            return String.format("count: %s, errors: %s, avg: %sms, max: %sms, sent: %sb, received: %sb, histogram: %s",
+                n, errors.get(), n > 0 ? TimeUnit.NANOSECONDS.toMillis(nanos.get() / n) : 0, TimeUnit.NANOSECONDS.toMillis(max.get()),
+                sent.get(), received.get(), histogram);
+        }
+    }
+}
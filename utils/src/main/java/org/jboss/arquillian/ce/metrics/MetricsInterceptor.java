@@ -0,0 +1,106 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.metrics;
+
+import java.io.IOException;
+import java.util.List;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Record every API request into {@link ApiMetrics}.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class MetricsInterceptor implements Interceptor {
+    public static final MetricsInterceptor INSTANCE = new MetricsInterceptor();
+
+    private MetricsInterceptor() {
+    }
+
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        RequestBody body = request.body();
+        long sent = (body != null) ? body.contentLength() : 0;
+
+        String[] info = classify(request);
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException | RuntimeException e) {
+            ApiMetrics.getInstance().record(info[0], info[1], info[2], System.nanoTime() - start, sent, -1, true);
+            throw e;
+        }
+        // streamed bodies (watch, log, proxy) are timed until headers
+        ResponseBody responseBody = response.body();
+        long received = (responseBody != null) ? responseBody.contentLength() : -1;
+        ApiMetrics.getInstance().record(info[0], info[1], info[2], System.nanoTime() - start, sent, received, response.isSuccessful() == false);
+        return response;
+    }
+
+    /**
+     * @return verb, kind, endpoint
+     */
+    static String[] classify(Request request) {
+        HttpUrl url = request.url();
+        List<String> segments = url.pathSegments();
+        String verb = request.method();
+
+        int index;
+        if (segments.size() > 0 && ("api".equals(segments.get(0)) || "oapi".equals(segments.get(0)))) {
+            index = 2; // api/v1
+        } else if (segments.size() > 0 && "apis".equals(segments.get(0))) {
+            index = 3; // apis/group/version
+        } else {
+            return new String[]{verb, "other", url.host()};
+        }
+        if (segments.size() > index + 2 && "namespaces".equals(segments.get(index))) {
+            index += 2;
+        }
+        if (segments.size() <= index) {
+            return new String[]{verb, "api", segments.get(0)};
+        }
+
+        String kind = segments.get(index);
+        boolean named = segments.size() > index + 1 && segments.get(index + 1).length() > 0;
+        String endpoint = (segments.size() > index + 2) ? kind + "/" + segments.get(index + 2) : kind;
+
+        if ("GET".equals(verb)) {
+            if ("true".equals(url.queryParameter("watch"))) {
+                verb = "WATCH";
+            } else if (named == false) {
+                verb = "LIST";
+            }
+        } else if ("DELETE".equals(verb) && named == false) {
+            verb = "DELETECOLLECTION";
+        }
+        return new String[]{verb, kind, endpoint};
+    }
+}
@@ -25,128 +25,390 @@ package org.jboss.arquillian.ce.portfwd;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.List;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import okhttp3.Connection;
-import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
+import okhttp3.RequestBody;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.ws.WebSocket;
+import okhttp3.ws.WebSocketCall;
+import okhttp3.ws.WebSocketListener;
+import okio.Buffer;
+import okio.BufferedSource;
+import org.jboss.arquillian.ce.metrics.ApiMetrics;
 
 /**
+ * Forwards a local port to a pod port, over the pods/portforward websocket.
+ * <p/>
+ * A single selector thread accepts local connections and pumps their data,
+ * each local connection gets its own upgraded stream to the API server.
+ * Websocket writes block, so they run on writer threads, one frame in flight per connection.
+ *
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
  */
 public class PortForward {
     private static final Logger log = Logger.getLogger(PortForward.class.getName());
-    private static final String PORT_FWD = "%s/proxy/minions/%s/portForward/%s/%s";
+    private static final String PORT_FWD = "%s/api/v1/namespaces/%s/pods/%s/portforward?ports=%s";
+    private static final String PROTOCOL = "v4.channel.k8s.io";
+
+    private static final int DATA = 0;
+    private static final int ERROR = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // stop reading from the pod once this much is waiting for the local socket
+    private static final long MAX_PENDING = 1024 * 1024;
 
     private final OkHttpClient client;
 
     public PortForward(OkHttpClient client) {
-        this.client = client;
+        // forwarded connections can be idle for long
+        this.client = client.newBuilder().readTimeout(0, TimeUnit.SECONDS).build();
     }
 
-    public synchronized PortForward.Handle run(PortForwardContext context) throws Exception {
-        Request.Builder builder = new Request.Builder();
-        builder.url(String.format(PORT_FWD, context.getKubernetesMaster(), context.getNodeName(), context.getNamespace(), context.getPodName()));
-        // https://github.com/kubernetes/kubernetes/blob/149ca1ec4971c4e5850d61d54d93b3ba315261a2/pkg/api/types.go#L1986
-        builder.addHeader("port", String.valueOf(context.getPort()));
-        Request request = builder.build();
+    public PortForward.Handle run(PortForwardContext context) throws Exception {
+        Engine engine = new Engine(context);
+        engine.start();
+        return engine;
+    }
+
+    public interface Handle extends Closeable {
+        InetAddress getInetAddress();
+
+        int getPort();
+    }
 
-        List<Interceptor> interceptors = client.networkInterceptors();
-        final ConnectionInterceptor interceptor = new ConnectionInterceptor();
-        interceptors.add(interceptor);
+    private static void doClose(Closeable closeable) {
         try {
-            client.newCall(request).execute();
-        } finally {
-            interceptors.remove(interceptor);
-        }
-
-        final ServerSocket server = new ServerSocket(context.getPort(), 0, InetAddress.getLocalHost());
-
-        Runnable runnable = new Runnable() {
-            public void run() {
-                while (server.isClosed() == false) {
-                    try {
-                        final Socket socket = server.accept();
-                        final Socket osSocket = interceptor.getConnection().socket();
-
-                        Runnable writer = new Runnable() {
-                            public void run() {
-                                int x;
-                                // write to OpenShift
-                                try (InputStream input = socket.getInputStream()) {
-                                    while ((x = input.read()) != -1) {
-                                        osSocket.getOutputStream().write(x);
-                                    }
-                                } catch (IOException ignored) {
-                                }
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private class Engine implements Handle, Runnable {
+        private final PortForwardContext context;
+        private final String url;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger counter = new AtomicInteger();
+        private final ExecutorService writers;
+        private Selector selector;
+        private ServerSocketChannel server;
+        private volatile boolean closed;
+
+        private Engine(PortForwardContext context) {
+            this.context = context;
+            this.url = String.format(PORT_FWD, context.getKubernetesMaster(), context.getNamespace(), context.getPodName(), context.getPort());
+            this.writers = Executors.newCachedThreadPool(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, String.format("CE-PortForward-Writer-%s:%s-%s", Engine.this.context.getPodName(), Engine.this.context.getPort(), counter.incrementAndGet()));
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        private void start() throws IOException {
+            selector = Selector.open();
+            server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(InetAddress.getLocalHost(), context.getLocalPort()));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+
+            Thread thread = new Thread(this, String.format("CE-PortForward-%s:%s", context.getPodName(), context.getPort()));
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        public InetAddress getInetAddress() {
+            return server.socket().getInetAddress();
+        }
+
+        public int getPort() {
+            return server.socket().getLocalPort();
+        }
+
+        public void close() throws IOException {
+            closed = true;
+            selector.wakeup();
+        }
+
+        private void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        public void run() {
+            try {
+                while (closed == false) {
+                    selector.select();
+
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (key.isValid() == false) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            Connection connection = (Connection) key.attachment();
+                            if (key.isReadable()) {
+                                connection.onReadable();
                             }
-                        };
-                        new Thread(writer).start();
-
-                        Runnable reader = new Runnable() {
-                            public void run() {
-                                int x;
-                                // read from OpenShift
-                                try (OutputStream output = socket.getOutputStream()) {
-                                    InputStream osInput = osSocket.getInputStream();
-                                    while ((x = osInput.read()) != -1) {
-                                        output.write(x);
-                                    }
-                                } catch (IOException ignored) {
-                                }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.onWritable();
                             }
-                        };
-                        new Thread(reader).start();
-                    } catch (IOException e) {
-                        log.warning("Error: " + e.getMessage());
+                        }
                     }
                 }
+            } catch (IOException e) {
+                log.warning("Port forward error: " + e.getMessage());
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() instanceof Connection) {
+                        ((Connection) key.attachment()).close(null);
+                    }
+                }
+                writers.shutdownNow();
+                doClose(server);
+                doClose(selector);
             }
-        };
+        }
+
+        private void accept() throws IOException {
+            SocketChannel channel = server.accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(this, channel);
+            connection.key = channel.register(selector, 0, connection);
+
+            Request request = new Request.Builder().url(url).header("Sec-WebSocket-Protocol", PROTOCOL).build();
+            WebSocketCall.create(client, request).enqueue(connection);
+        }
+    }
 
-        new Thread(runnable).start();
+    /**
+     * One local connection and its websocket stream, I/O on the local channel only happens on the selector thread.
+     */
+    private static class Connection implements WebSocketListener {
+        private final Engine engine;
+        private final SocketChannel channel;
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+        private final AtomicLong pending = new AtomicLong();
+        private final long start = System.nanoTime();
 
-        return new Handle() {
-            public InetAddress getInetAddress() {
-                return server.getInetAddress();
+        private SelectionKey key;
+        private volatile WebSocket webSocket;
+        private volatile boolean closed;
+        private boolean dataPortRead;
+        private boolean errorPortRead;
+        private final AtomicLong sent = new AtomicLong();
+        private final AtomicLong received = new AtomicLong();
+
+        private Connection(Engine engine, SocketChannel channel) {
+            this.engine = engine;
+            this.channel = channel;
+        }
+
+        // selector thread
+
+        private void onReadable() {
+            try {
+                // leave room for the channel byte, so the buffer is sent as is
+                readBuffer.clear();
+                readBuffer.position(1);
+                int n = channel.read(readBuffer);
+                if (n < 0) {
+                    close(null);
+                } else if (n > 0) {
+                    byte[] bytes = readBuffer.array();
+                    bytes[0] = DATA;
+                    // no more reads, and no reuse of the buffer, until this frame is written
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                    send(bytes, n);
+                }
+            } catch (IOException e) {
+                close(e);
             }
+        }
 
-            public void close() throws IOException {
-                doClose(server);
-                doClose(interceptor.getConnection().socket());
+        private void send(final byte[] bytes, final int n) {
+            try {
+                engine.writers.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            webSocket.sendMessage(RequestBody.create(WebSocket.BINARY, bytes, 0, n + 1));
+                            sent.addAndGet(n);
+                            interest(SelectionKey.OP_READ);
+                        } catch (Exception e) {
+                            closeLater(e);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                close(e); // engine is closing
             }
-        };
-    }
+        }
 
-    public interface Handle extends Closeable {
-        InetAddress getInetAddress();
-    }
+        private void onWritable() {
+            try {
+                ByteBuffer buffer;
+                while ((buffer = outbound.peek()) != null) {
+                    channel.write(buffer);
+                    if (buffer.hasRemaining()) {
+                        return; // socket buffer full, wait for next OP_WRITE
+                    }
+                    outbound.poll();
+                    release(buffer.limit());
+                }
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            } catch (IOException e) {
+                close(e);
+            }
+        }
 
-    private static void doClose(Closeable closeable) {
-        try {
-            closeable.close();
-        } catch (IOException ignored) {
+        private void interest(final int ops) {
+            engine.execute(new Runnable() {
+                public void run() {
+                    if (key.isValid()) {
+                        key.interestOps(key.interestOps() | ops);
+                    }
+                }
+            });
         }
-    }
 
-    private static class ConnectionInterceptor implements Interceptor {
-        private Connection connection;
+        private void close(Throwable error) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            key.cancel();
+            doClose(channel);
+            WebSocket current = webSocket;
+            if (current != null) {
+                try {
+                    current.close(1000, "");
+                } catch (Exception ignored) {
+                }
+            }
+            synchronized (this) {
+                notifyAll();
+            }
+            long nanos = System.nanoTime() - start;
+            ApiMetrics.getInstance().record("PORTFORWARD", "pods", "pods/portforward", nanos, sent.get(), received.get(), error != null);
+            if (log.isLoggable(Level.FINE)) {
+                log.fine(String.format("Port forward connection closed: sent %s, received %s bytes in %s ms", sent.get(), received.get(), TimeUnit.NANOSECONDS.toMillis(nanos)));
+            }
+        }
 
-        public Response intercept(Chain chain) throws IOException {
-            connection = chain.connection();
-            return chain.proceed(chain.request());
+        // websocket reader thread
+
+        public void onOpen(WebSocket webSocket, Response response) {
+            this.webSocket = webSocket;
+            interest(SelectionKey.OP_READ);
+        }
+
+        public void onMessage(ResponseBody message) throws IOException {
+            try {
+                BufferedSource source = message.source();
+                if (source.exhausted()) {
+                    return;
+                }
+                int stream = source.readByte();
+                if (stream == DATA) {
+                    if (dataPortRead == false) {
+                        // first frame per stream carries the port number
+                        source.skip(2);
+                        dataPortRead = true;
+                    }
+                    byte[] bytes = source.readByteArray();
+                    if (bytes.length > 0) {
+                        received.addAndGet(bytes.length);
+                        acquire(bytes.length);
+                        outbound.add(ByteBuffer.wrap(bytes));
+                        interest(SelectionKey.OP_WRITE);
+                    }
+                } else if (stream == ERROR) {
+                    if (errorPortRead == false) {
+                        source.skip(2);
+                        errorPortRead = true;
+                    }
+                    final String error = source.readUtf8();
+                    if (error.length() > 0) {
+                        log.warning("Port forward error: " + error);
+                        closeLater(new IOException(error));
+                    }
+                }
+            } finally {
+                message.close();
+            }
+        }
+
+        public void onPong(Buffer payload) {
+        }
+
+        public void onClose(int code, String reason) {
+            closeLater(null);
+        }
+
+        public void onFailure(IOException e, Response response) {
+            log.warning("Port forward failure: " + e.getMessage());
+            closeLater(e);
+        }
+
+        private void closeLater(final Throwable error) {
+            engine.execute(new Runnable() {
+                public void run() {
+                    close(error);
+                }
+            });
+        }
+
+        private synchronized void acquire(long size) throws IOException {
+            // back pressure, block the websocket reader while the local client is slow
+            while (closed == false && pending.get() > MAX_PENDING) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            pending.addAndGet(size);
         }
 
-        public Connection getConnection() {
-            return connection;
+        private synchronized void release(long size) {
+            pending.addAndGet(-size);
+            notifyAll();
         }
     }
 }
@@ -32,13 +32,22 @@ public class PortForwardContext {
     private final String namespace;
     private final String podName;
     private final int port;
+    private final int localPort;
 
     public PortForwardContext(String kubernetesMaster, String nodeName, String namespace, String podName, int port) {
+        this(kubernetesMaster, nodeName, namespace, podName, port, port);
+    }
+
+    /**
+     * @param localPort the local port, 0 for any free port
+     */
+    public PortForwardContext(String kubernetesMaster, String nodeName, String namespace, String podName, int port, int localPort) {
         this.kubernetesMaster = kubernetesMaster;
         this.nodeName = nodeName;
         this.namespace = namespace;
         this.podName = podName;
         this.port = port;
+        this.localPort = localPort;
     }
 
     public String getKubernetesMaster() {
@@ -60,4 +69,8 @@ public class PortForwardContext {
     public int getPort() {
         return port;
     }
+
+    public int getLocalPort() {
+        return localPort;
+    }
 }
@@ -23,38 +23,74 @@
 
 package org.jboss.arquillian.ce.proxy;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
 import java.net.HttpURLConnection;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
 
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLHandshakeException;
 
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import org.jboss.arquillian.ce.api.LogOptions;
 import org.jboss.arquillian.ce.api.ManagementHandle;
+import org.jboss.arquillian.ce.cache.Informer;
+import org.jboss.arquillian.ce.cache.WatchListener;
+import org.jboss.arquillian.ce.metrics.ApiMetrics;
 import org.jboss.arquillian.ce.portfwd.PortForward;
+import org.jboss.arquillian.ce.utils.Checker;
 import org.jboss.arquillian.ce.utils.Configuration;
+import org.jboss.arquillian.ce.utils.Containers;
 import org.jboss.arquillian.ce.utils.ManagementHandleImpl;
+import org.jboss.arquillian.ce.utils.OkHttpClientUtils;
+import org.jboss.arquillian.ce.utils.ReadyPodsChecker;
 
 /**
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
  */
 public abstract class AbstractProxy<P> implements Proxy {
+    private static final Logger log = Logger.getLogger(AbstractProxy.class.getName());
+
     private static final String PROXY_URL = "%s/api/%s/namespaces/%s/pods/%s:%s/proxy%s";
     private static final String PROXY_URL_WITH_PROTOCOL = "%s/api/%s/namespaces/%s/pods/%s:%s:%s/proxy%s";
+    private static final String RESOURCES_URL = "%s/%s/%s/namespaces/%s/%s";
+
+    private static final MediaType JSON = MediaType.parse("application/json");
+    private static final Set<String> OPENSHIFT_KINDS = new HashSet<>(Arrays.asList(
+        "builds", "buildconfigs", "deploymentconfigs", "imagestreams", "routes", "templates", "rolebindings"
+    ));
 
     private boolean sslContextSet;
     protected final Configuration configuration;
+    // lazily created, read without locking on the invocation path
+    private volatile Informer<P> informer;
+    private volatile List<Transport> transports;
+    private volatile OkHttpClient plainHttpClient;
 
     public AbstractProxy(Configuration configuration) {
         this.configuration = configuration;
@@ -85,12 +121,139 @@ public abstract class AbstractProxy<P> implements Proxy {
         return (parameters != null && parameters.length() > 0) ? url + "?" + parameters : url;
     }
 
-    protected abstract List<P> getPods(Map<String, String> labels);
+    /**
+     * List pods matching labels, directly from the API.
+     *
+     * @param labels the labels, null means all pods in namespace
+     * @return the pods
+     */
+    protected abstract List<P> listPods(Map<String, String> labels);
 
     protected abstract String getName(P pod);
 
+    protected abstract Map<String, String> getLabels(P pod);
+
     protected abstract boolean isReady(P pod);
 
+    protected abstract String getIP(P pod);
+
+    /**
+     * Watch pods matching labels.
+     *
+     * @param labels   the labels, null means all pods in namespace
+     * @param listener the pod events listener
+     * @return handle to close the watch
+     * @throws Exception for any error
+     */
+    protected abstract Closeable watchPods(Map<String, String> labels, WatchListener<P> listener) throws Exception;
+
+    protected Informer<P> getInformer() {
+        Informer<P> current = informer;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (informer == null) {
+                informer = createInformer();
+            }
+            return informer;
+        }
+    }
+
+    private Informer<P> createInformer() {
+        String description = String.format("pods in %s", configuration.getNamespace());
+        long staleness = TimeUnit.SECONDS.toMillis(configuration.getPodCacheStaleness());
+        return new Informer<>(description, new Informer.Source<P>() {
+            public String getName(P pod) {
+                return AbstractProxy.this.getName(pod);
+            }
+
+            public Map<String, String> getLabels(P pod) {
+                return AbstractProxy.this.getLabels(pod);
+            }
+
+            public List<P> list() {
+                return listPods(null);
+            }
+
+            public Closeable watch(WatchListener<P> listener) throws Exception {
+                return watchPods(null, listener);
+            }
+        }, staleness);
+    }
+
+    private P getPod(String podName) {
+        if (configuration.isPodCache()) {
+            return getInformer().get(podName);
+        }
+        for (P pod : listPods(null)) {
+            if (getName(pod).equals(podName)) {
+                return pod;
+            }
+        }
+        return null;
+    }
+
+    String getPodIP(String podName) {
+        P pod = getPod(podName);
+        return (pod != null) ? getIP(pod) : null;
+    }
+
+    Map<String, String> getPodLabels(String podName) {
+        P pod = getPod(podName);
+        return (pod != null) ? getLabels(pod) : null;
+    }
+
+    public List<Transport> getTransports() {
+        List<Transport> current = transports;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (transports == null) {
+                transports = Collections.unmodifiableList(Transports.create(configuration.getTransports(), this));
+            }
+            return transports;
+        }
+    }
+
+    /**
+     * Get pods matching labels, served from the namespace pod cache if enabled.
+     *
+     * @param labels the labels
+     * @return the pods, ordered by name
+     */
+    protected List<P> getPods(Map<String, String> labels) {
+        if (configuration.isPodCache()) {
+            return getInformer().select(labels);
+        } else {
+            return listPods(labels);
+        }
+    }
+
+    /**
+     * Did the request fail before it was sent, so it's safe to retry it over another transport.
+     * Read failures (timeout, reset) may come after the pod already ran the request.
+     */
+    public static boolean isConnectFailure(IOException e) {
+        return e instanceof ConnectException || e instanceof NoRouteToHostException || e instanceof UnknownHostException || e instanceof SSLHandshakeException;
+    }
+
+    protected static boolean matches(Map<String, String> podLabels, Map<String, String> labels) {
+        if (labels == null || labels.isEmpty()) {
+            return true;
+        }
+        if (podLabels == null) {
+            return false;
+        }
+        for (Map.Entry<String, String> entry : labels.entrySet()) {
+            if (entry.getValue().equals(podLabels.get(entry.getKey())) == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public String url(Map<String, String> labels, int index, int port, String path, String parameters) {
         List<P> items = getPods(labels);
         if (index >= items.size()) {
@@ -112,6 +275,215 @@ public abstract class AbstractProxy<P> implements Proxy {
         return names;
     }
 
+    public void awaitReadyPods(final Map<String, String> labels, final ReadyPodsChecker checker, long timeout) throws Exception {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeout);
+
+        ReadyPodsWatch<P> watch = new ReadyPodsWatch<>(this, labels);
+        Closeable handle = null;
+        try {
+            try {
+                if (configuration.isPodCache()) {
+                    handle = getInformer().subscribe(watch);
+                } else {
+                    handle = watchPods(labels, watch);
+                }
+            } catch (Exception e) {
+                log.log(Level.WARNING, String.format("Cannot watch pods %s, polling instead: %s", labels, e), e);
+            }
+            // initial list, so we can return immediately if we're already there
+            watch.init(getPods(labels));
+            if (handle != null) {
+                if (watch.await(checker, deadline)) {
+                    log.info(String.format("Checker [%s] is ready.", checker));
+                    return;
+                }
+                log.warning(String.format("Pods watch %s dropped, polling instead.", labels));
+            } else if (checker.check(watch.getReadyPods())) {
+                log.info(String.format("Checker [%s] is ready.", checker));
+                return;
+            }
+        } finally {
+            if (handle != null) {
+                try {
+                    handle.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        long remaining = TimeUnit.NANOSECONDS.toSeconds(deadline - System.nanoTime());
+        if (remaining <= 0) {
+            throw new IllegalStateException(String.format("Checker [%s] failed to pass.", checker));
+        }
+        Containers.delay("ready pods", remaining, 4000L, new Checker() {
+            public boolean check() {
+                return checker.check(getReadyPods(labels));
+            }
+
+            @Override
+            public String toString() {
+                return checker.toString();
+            }
+        });
+    }
+
+    public void close() {
+        Informer<P> current;
+        List<Transport> currentTransports;
+        synchronized (this) {
+            current = informer;
+            informer = null;
+            currentTransports = transports;
+            transports = null;
+        }
+        if (current != null) {
+            current.close();
+        }
+        if (currentTransports != null) {
+            for (Transport transport : currentTransports) {
+                transport.close();
+            }
+        }
+    }
+
+    String resourcesUrl(String kind) {
+        String api = OPENSHIFT_KINDS.contains(kind) ? "oapi" : "api";
+        return String.format(RESOURCES_URL, configuration.getKubernetesMaster(), api, configuration.getApiVersion(), configuration.getNamespace(), kind);
+    }
+
+    private Response delete(String url, long gracePeriodSeconds) throws IOException {
+        StringBuilder options = new StringBuilder();
+        options.append("{\"kind\":\"DeleteOptions\",\"apiVersion\":\"v1\",\"propagationPolicy\":\"Background\"");
+        if (gracePeriodSeconds >= 0) {
+            options.append(",\"gracePeriodSeconds\":").append(gracePeriodSeconds);
+        }
+        options.append("}");
+
+        Request request = new Request.Builder().url(url).delete(RequestBody.create(JSON, options.toString())).build();
+        return getHttpClient().newCall(request).execute();
+    }
+
+    public boolean deleteCollection(String kind, Map<String, String> labels, long gracePeriodSeconds) throws IOException {
+        StringBuilder selector = new StringBuilder();
+        for (Map.Entry<String, String> entry : labels.entrySet()) {
+            if (selector.length() > 0) {
+                selector.append(",");
+            }
+            selector.append(entry.getKey()).append("=").append(entry.getValue());
+        }
+        String url = resourcesUrl(kind);
+        if (selector.length() > 0) {
+            url += "?labelSelector=" + URLEncoder.encode(selector.toString(), "UTF-8");
+        }
+
+        Response response = delete(url, gracePeriodSeconds);
+        try {
+            int code = response.code();
+            if (code == HttpURLConnection.HTTP_OK) {
+                return true;
+            } else if (code == HttpURLConnection.HTTP_NOT_FOUND || code == HttpURLConnection.HTTP_BAD_METHOD) {
+                return false; // older server, no collection delete
+            } else {
+                throw new IllegalStateException(String.format("Error deleting %s %s. Got %s (%s)", kind, labels, code, response.message()));
+            }
+        } finally {
+            response.body().close();
+        }
+    }
+
+    public boolean delete(String kind, String name, long gracePeriodSeconds) throws IOException {
+        Response response = delete(resourcesUrl(kind) + "/" + name, gracePeriodSeconds);
+        try {
+            int code = response.code();
+            if (code == HttpURLConnection.HTTP_OK) {
+                return true;
+            } else if (code == HttpURLConnection.HTTP_NOT_FOUND) {
+                return false;
+            } else {
+                throw new IllegalStateException(String.format("Error deleting %s [%s]. Got %s (%s)", kind, name, code, response.message()));
+            }
+        } finally {
+            response.body().close();
+        }
+    }
+
+    public InputStream streamLog(String podName, LogOptions options, long readTimeoutSeconds) throws IOException {
+        StringBuilder url = new StringBuilder(resourcesUrl("pods")).append("/").append(podName).append("/log");
+        url.append("?follow=").append(options.isFollow());
+        if (options.getContainer() != null) {
+            url.append("&container=").append(URLEncoder.encode(options.getContainer(), "UTF-8"));
+        }
+        if (options.getTailLines() >= 0) {
+            url.append("&tailLines=").append(options.getTailLines());
+        }
+        if (options.getSinceSeconds() >= 0) {
+            url.append("&sinceSeconds=").append(options.getSinceSeconds());
+        }
+        if (options.getLimitBytes() >= 0) {
+            url.append("&limitBytes=").append(options.getLimitBytes());
+        }
+
+        OkHttpClient httpClient = getHttpClient();
+        if (readTimeoutSeconds >= 0) {
+            // shares the connection pool, only the timeout differs
+            httpClient = httpClient.newBuilder().readTimeout(readTimeoutSeconds, TimeUnit.SECONDS).build();
+        }
+        Request request = new Request.Builder().url(url.toString()).build();
+        Response response = httpClient.newCall(request).execute();
+        if (response.code() != HttpURLConnection.HTTP_OK) {
+            response.body().close();
+            throw new IllegalStateException(String.format("Error reading log of pod %s. Got %s (%s)", podName, response.code(), response.message()));
+        }
+        return response.body().byteStream();
+    }
+
+    public Integer exec(String podName, String container, OutputStream out, OutputStream err, long timeoutSeconds, String... command) throws Exception {
+        return exec(podName, container, null, false, out, err, timeoutSeconds, command);
+    }
+
+    public Integer exec(String podName, String container, InputStream in, boolean tty, OutputStream out, OutputStream err, long timeoutSeconds, String... command) throws Exception {
+        StringBuilder url = new StringBuilder(resourcesUrl("pods")).append("/").append(podName).append("/exec?stdout=true");
+        // a TTY merges stderr into stdout
+        url.append("&stderr=").append(tty == false);
+        if (in != null) {
+            url.append("&stdin=true");
+        }
+        if (tty) {
+            url.append("&tty=true");
+        }
+        for (String arg : command) {
+            url.append("&command=").append(URLEncoder.encode(arg, "UTF-8"));
+        }
+        if (container != null) {
+            url.append("&container=").append(URLEncoder.encode(container, "UTF-8"));
+        }
+        // the command may be quiet for long, completion is bound by the timeout instead
+        OkHttpClient httpClient = getHttpClient().newBuilder().readTimeout(0, TimeUnit.SECONDS).build();
+        return new PodExec(podName, in, out, err).run(httpClient, url.toString(), timeoutSeconds);
+    }
+
+    public String findPodByPrefix(String prefix, Map<String, String> labels) {
+        if (labels == null && configuration.isPodCache()) {
+            P pod = getInformer().findFirst(prefix);
+            return (pod != null) ? getName(pod) : null;
+        }
+        for (P pod : getPods(labels)) {
+            String name = getName(pod);
+            if (name.startsWith(prefix)) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    public List<String> getPodNames(Map<String, String> labels) {
+        List<String> names = new ArrayList<>();
+        for (P pod : getPods(labels)) {
+            names.add(getName(pod));
+        }
+        return names;
+    }
+
     public String findPod(Map<String, String> labels, int index) {
         List<P> items = getPods(labels);
         if (index >= items.size()) {
@@ -123,13 +495,39 @@ public abstract class AbstractProxy<P> implements Proxy {
 
     protected abstract OkHttpClient getHttpClient();
 
+    /**
+     * Only API server requests get the authenticated client, the token must not leak to pods or routes.
+     */
+    private OkHttpClient getHttpClient(String url) {
+        if (url.startsWith(configuration.getKubernetesMaster())) {
+            return getHttpClient();
+        }
+        OkHttpClient current = plainHttpClient;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (plainHttpClient == null) {
+                OkHttpClient.Builder builder = new OkHttpClient.Builder();
+                OkHttpClientUtils.applyConnectTimeout(builder, configuration.getHttpClientTimeout());
+                OkHttpClientUtils.applyTrustCerts(builder, configuration.isTrustCerts());
+                OkHttpClientUtils.applyMetrics(builder);
+                plainHttpClient = builder.build();
+            }
+            return plainHttpClient;
+        }
+    }
+
     public <T> T post(String url, Class<T> returnType, Object requestObject) throws Exception {
-        final OkHttpClient httpClient = getHttpClient();
+        final OkHttpClient httpClient = getHttpClient(url);
 
         Request.Builder builder = new Request.Builder();
         builder.url(url);
+        // set explicitly, so the body is not transparently inflated and we see the wire size
+        builder.header("Accept-Encoding", "gzip");
 
         if (requestObject != null) {
+            long start = System.nanoTime();
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
             try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
                 oos.writeObject(requestObject);
@@ -137,6 +535,7 @@ public abstract class AbstractProxy<P> implements Proxy {
             } catch (Exception e) {
                 throw new RuntimeException("Error sending request Object, " + requestObject, e);
             }
+            ApiMetrics.getInstance().record("ENCODE", "identity", requestObject.getClass().getSimpleName(), System.nanoTime() - start, baos.size(), -1, false);
             RequestBody body = RequestBody.create(MediaType.parse("application/octet-stream"), baos.toByteArray());
             builder.post(body);
         }
@@ -147,10 +546,15 @@ public abstract class AbstractProxy<P> implements Proxy {
         int responseCode = response.code();
 
         if (responseCode == HttpURLConnection.HTTP_OK) {
+            byte[] bytes = response.body().bytes();
+            boolean gzip = "gzip".equalsIgnoreCase(response.header("Content-Encoding"));
+            long start = System.nanoTime();
             Object o;
-            try (ObjectInputStream ois = new ObjectInputStream(response.body().byteStream())) {
+            InputStream stream = new ByteArrayInputStream(bytes);
+            try (ObjectInputStream ois = new ObjectInputStream(gzip ? new GZIPInputStream(stream) : stream)) {
                 o = ois.readObject();
             }
+            ApiMetrics.getInstance().record("DECODE", gzip ? "gzip" : "identity", returnType.getSimpleName(), System.nanoTime() - start, -1, bytes.length, false);
 
             if (returnType.isInstance(o) == false) {
                 throw new IllegalStateException("Error reading results, expected a " + returnType.getName() + " but got " + o);
@@ -167,7 +571,7 @@ public abstract class AbstractProxy<P> implements Proxy {
     }
 
     public InputStream post(String url, String encoding, byte[] bytes) throws IOException {
-        final OkHttpClient httpClient = getHttpClient();
+        final OkHttpClient httpClient = getHttpClient(url);
 
         Request.Builder builder = new Request.Builder();
         builder.url(url);
@@ -184,13 +588,26 @@ public abstract class AbstractProxy<P> implements Proxy {
     }
 
     public InputStream post(String podName, int port, String path) throws Exception {
-        String url = url(podName, port, path, null);
-        return getInputStream(url);
+        Exception failure = null;
+        for (Transport transport : getTransports()) {
+            String url = transport.url(podName, port, path, null);
+            if (url != null) {
+                try {
+                    return getInputStream(url);
+                } catch (IOException e) {
+                    if (isConnectFailure(e) == false) {
+                        throw e; // the request may have reached the pod
+                    }
+                    log.fine(String.format("Transport %s failed for pod %s, trying next: %s", transport.getName(), podName, e));
+                    failure = e;
+                }
+            }
+        }
+        throw (failure != null) ? failure : new IllegalStateException("No transport can reach pod " + podName);
     }
 
-    public synchronized InputStream post(Map<String, String> labels, int index, int port, String path) throws Exception {
-        String url = url(labels, index, port, path, null);
-        return getInputStream(url);
+    public InputStream post(Map<String, String> labels, int index, int port, String path) throws Exception {
+        return post(findPod(labels, index), port, path);
     }
 
     private InputStream getInputStream(String url) throws IOException {
@@ -0,0 +1,263 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.proxy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.ws.WebSocket;
+import okhttp3.ws.WebSocketCall;
+import okhttp3.ws.WebSocketListener;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.Okio;
+import org.jboss.dmr.ModelNode;
+
+/**
+ * Single exec over the channel.k8s.io websocket protocols.
+ * <p/>
+ * Every binary frame starts with a channel byte: 0 stdin, 1 stdout, 2 stderr, 3 status / error.
+ * With v4.channel.k8s.io the status frame is a Status object sent once the process exits, carrying the exit code.
+ * Older servers only speak channel.k8s.io: channel 3 carries an error message, and the process is done when the socket closes.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+class PodExec implements WebSocketListener {
+    private static final Logger log = Logger.getLogger(PodExec.class.getName());
+
+    static final String PROTOCOL = "v4.channel.k8s.io";
+    static final String LEGACY_PROTOCOL = "channel.k8s.io";
+
+    private static final int STDIN = 0;
+    private static final int STDOUT = 1;
+    private static final int STDERR = 2;
+    private static final int STATUS = 3;
+
+    // e.g. "command terminated with non-zero exit code: Error executing in Docker Container: 2"
+    private static final Pattern LEGACY_EXIT_CODE = Pattern.compile("exit code.*?(\\d+)\\s*$");
+
+    private final String podName;
+    private final InputStream in;
+    private final OutputStream out;
+    private final OutputStream err;
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    private volatile WebSocket webSocket;
+    private volatile boolean legacy;
+    private volatile String error;
+    private volatile Integer exitCode;
+    private volatile Exception failure;
+
+    PodExec(String podName, InputStream in, OutputStream out, OutputStream err) {
+        this.podName = podName;
+        this.in = in;
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * @return exit code, or null on timeout
+     */
+    Integer run(OkHttpClient client, String url, long timeoutSeconds) throws Exception {
+        Request request = new Request.Builder().url(url).header("Sec-WebSocket-Protocol", PROTOCOL + ", " + LEGACY_PROTOCOL).build();
+        WebSocketCall call = WebSocketCall.create(client, request);
+        call.enqueue(this);
+        try {
+            if (done.await(timeoutSeconds, TimeUnit.SECONDS) == false) {
+                return null;
+            }
+        } finally {
+            closeQuietly();
+            call.cancel();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return exitCode;
+    }
+
+    public void onOpen(WebSocket webSocket, Response response) {
+        this.webSocket = webSocket;
+        this.legacy = LEGACY_PROTOCOL.equals(response.header("Sec-WebSocket-Protocol"));
+        if (in != null) {
+            Thread pump = new Thread(new Runnable() {
+                public void run() {
+                    pumpInput();
+                }
+            }, "CE-Exec-Stdin-" + podName);
+            pump.setDaemon(true);
+            pump.start();
+        }
+    }
+
+    /**
+     * Forward stdin as it becomes available; never block in read, so nothing is consumed once the command is done.
+     */
+    private void pumpInput() {
+        byte[] buffer = new byte[8192];
+        try {
+            while (done.getCount() > 0) {
+                int available = in.available();
+                if (available <= 0) {
+                    done.await(50, TimeUnit.MILLISECONDS);
+                    continue;
+                }
+                int n = in.read(buffer, 0, Math.min(available, buffer.length));
+                if (n < 0) {
+                    return;
+                }
+                Buffer frame = new Buffer().writeByte(STDIN).write(buffer, 0, n);
+                synchronized (this) {
+                    if (done.getCount() == 0) {
+                        return;
+                    }
+                    webSocket.sendMessage(RequestBody.create(WebSocket.BINARY, frame.readByteArray()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | IllegalStateException e) {
+            log.log(Level.FINE, String.format("Stopped forwarding stdin to pod %s: %s", podName, e), e);
+        }
+    }
+
+    public void onFailure(IOException e, Response response) {
+        if (done.getCount() == 0) {
+            return; // the server may drop the connection right after the status
+        }
+        String msg = (response != null) ? String.format("Exec in pod %s failed. Got %s (%s)", podName, response.code(), response.message()) : "Exec in pod " + podName + " failed.";
+        failure = new IllegalStateException(msg, e);
+        done.countDown();
+    }
+
+    public void onMessage(ResponseBody message) throws IOException {
+        try {
+            BufferedSource source = message.source();
+            if (source.exhausted()) {
+                return;
+            }
+            int channel = source.readByte();
+            switch (channel) {
+                case STDOUT:
+                    source.readAll(Okio.sink(out));
+                    break;
+                case STDERR:
+                    source.readAll(Okio.sink(err));
+                    break;
+                case STATUS:
+                    if (legacy) {
+                        onError(source.readUtf8());
+                    } else {
+                        onStatus(source.readUtf8());
+                    }
+                    break;
+                default:
+                    log.fine(String.format("Ignoring exec channel %s from pod %s", channel, podName));
+            }
+        } finally {
+            message.close();
+        }
+    }
+
+    private void onError(String text) {
+        if (text.trim().isEmpty() == false) {
+            error = (error != null) ? error + text : text;
+        }
+    }
+
+    private void onStatus(String json) {
+        if (json.trim().isEmpty()) {
+            return;
+        }
+        try {
+            ModelNode status = ModelNode.fromJSONString(json);
+            if ("Success".equals(status.get("status").asString())) {
+                exitCode = 0;
+            } else {
+                ModelNode details = status.get("details");
+                if (details.hasDefined("causes")) {
+                    for (ModelNode cause : details.get("causes").asList()) {
+                        if ("ExitCode".equals(cause.get("reason").asString())) {
+                            exitCode = Integer.parseInt(cause.get("message").asString());
+                        }
+                    }
+                }
+                if (exitCode == null) {
+                    failure = new IllegalStateException(String.format("Exec in pod %s failed: %s", podName, status.get("message").asString()));
+                }
+            }
+        } catch (RuntimeException e) {
+            failure = new IllegalStateException("Cannot parse exec status: " + json, e);
+        }
+        done.countDown();
+    }
+
+    public void onPong(Buffer payload) {
+    }
+
+    public void onClose(int code, String reason) {
+        if (legacy && exitCode == null && failure == null) {
+            // no status channel, the socket closes when the process exits
+            if (error == null) {
+                exitCode = 0;
+            } else {
+                Matcher matcher = LEGACY_EXIT_CODE.matcher(error.trim());
+                if (matcher.find()) {
+                    exitCode = Integer.parseInt(matcher.group(1));
+                } else {
+                    failure = new IllegalStateException(String.format("Exec in pod %s failed: %s", podName, error));
+                }
+            }
+        }
+        if (exitCode == null && failure == null) {
+            failure = new IllegalStateException(String.format("Exec in pod %s closed without status: %s %s", podName, code, reason));
+        }
+        done.countDown();
+    }
+
+    private void closeQuietly() {
+        WebSocket current = webSocket;
+        if (current != null) {
+            synchronized (this) {
+                try {
+                    current.close(1000, "");
+                } catch (Exception e) {
+                    log.log(Level.FINEST, "Ignoring close error.", e);
+                }
+            }
+        }
+    }
+}
@@ -23,19 +23,25 @@
 
 package org.jboss.arquillian.ce.proxy;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import javax.net.ssl.SSLContext;
 
+import org.jboss.arquillian.ce.api.LogOptions;
 import org.jboss.arquillian.ce.api.ManagementHandle;
 import org.jboss.arquillian.ce.portfwd.PortForward;
+import org.jboss.arquillian.ce.utils.ReadyPodsChecker;
 
 /**
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
  */
-public interface Proxy {
+public interface Proxy extends Closeable {
     ManagementHandle createManagementHandle(Map<String, String> labels);
 
     SSLContext getSSLContext();
@@ -50,8 +56,23 @@ public interface Proxy {
 
     String url(Map<String, String> labels, int index, int port, String path, String parameters);
 
+    /**
+     * @return configured invocation transports, in order of preference
+     */
+    List<Transport> getTransports();
+
     Set<String> getReadyPods(Map<String, String> labels);
 
+    /**
+     * Wait until ready pods matching labels pass the checker.
+     *
+     * @param labels  the labels
+     * @param checker the ready pods checker
+     * @param timeout the timeout in seconds
+     * @throws Exception for any error
+     */
+    void awaitReadyPods(Map<String, String> labels, ReadyPodsChecker checker, long timeout) throws Exception;
+
     <T> T post(String url, Class<T> returnType, Object requestObject) throws Exception;
 
     InputStream post(String url, String encoding, byte[] bytes) throws Exception;
@@ -63,4 +84,87 @@ public interface Proxy {
     int status(String url);
 
     String findPod(Map<String, String> labels, int index);
+
+    /**
+     * Find first pod, by name order, whose name starts with prefix.
+     *
+     * @param prefix the name prefix
+     * @param labels the labels, null means any pod
+     * @return pod name or null if no such pod
+     */
+    String findPodByPrefix(String prefix, Map<String, String> labels);
+
+    /**
+     * @param labels the labels, null means all pods
+     * @return pod names, ordered by name
+     */
+    List<String> getPodNames(Map<String, String> labels);
+
+    /**
+     * Delete all resources of a kind matching labels, with a single request and background propagation.
+     *
+     * @param kind               the resource plural, e.g. pods
+     * @param labels             the labels, empty means all resources of the kind
+     * @param gracePeriodSeconds the grace period, negative for server default
+     * @return true if deleted, false if the server does not support collection delete
+     * @throws IOException for any I/O error
+     */
+    boolean deleteCollection(String kind, Map<String, String> labels, long gracePeriodSeconds) throws IOException;
+
+    /**
+     * Delete resource by name, with background propagation.
+     *
+     * @param kind               the resource plural, e.g. pods
+     * @param name               the resource name
+     * @param gracePeriodSeconds the grace period, negative for server default
+     * @return true if deleted, false if there was no such resource
+     * @throws IOException for any I/O error
+     */
+    boolean delete(String kind, String name, long gracePeriodSeconds) throws IOException;
+
+    /**
+     * Stream pod log straight from the API server.
+     *
+     * @param podName            the pod name
+     * @param options            the log options
+     * @param readTimeoutSeconds the read timeout, 0 for none, negative for client default
+     * @return log stream, the caller must close it
+     * @throws IOException for any I/O error
+     */
+    InputStream streamLog(String podName, LogOptions options, long readTimeoutSeconds) throws IOException;
+
+    /**
+     * Run command in pod, stdout and stderr are streamed as they arrive.
+     *
+     * @param podName        the pod name
+     * @param container      the container, null for the pod's only container
+     * @param out            stdout sink
+     * @param err            stderr sink
+     * @param timeoutSeconds how long to wait for the command to exit
+     * @param command        the command and its arguments
+     * @return exit code, or null if the command did not exit in time
+     * @throws Exception for any error
+     */
+    Integer exec(String podName, String container, OutputStream out, OutputStream err, long timeoutSeconds, String... command) throws Exception;
+
+    /**
+     * Run command in pod, with stdin and optionally a TTY.
+     *
+     * @param podName        the pod name
+     * @param container      the container, null for the pod's only container
+     * @param in             stdin source, forwarded as data becomes available; null for none
+     * @param tty            allocate a TTY, stderr is then merged into stdout
+     * @param out            stdout sink
+     * @param err            stderr sink
+     * @param timeoutSeconds how long to wait for the command to exit
+     * @param command        the command and its arguments
+     * @return exit code, or null if the command did not exit in time
+     * @throws Exception for any error
+     */
+    Integer exec(String podName, String container, InputStream in, boolean tty, OutputStream out, OutputStream err, long timeoutSeconds, String... command) throws Exception;
+
+    /**
+     * Release the pod cache and its watch.
+     */
+    void close();
 }
@@ -0,0 +1,112 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.proxy;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.arquillian.ce.cache.WatchListener;
+import org.jboss.arquillian.ce.utils.ReadyPodsChecker;
+
+/**
+ * Track pods readiness from watch events.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+class ReadyPodsWatch<P> implements WatchListener<P> {
+    private final AbstractProxy<P> proxy;
+    private final Map<String, String> labels;
+    private final Map<String, Boolean> pods = new HashMap<>();
+    private final Set<String> seen = new HashSet<>();
+    private boolean closed;
+
+    ReadyPodsWatch(AbstractProxy<P> proxy, Map<String, String> labels) {
+        this.proxy = proxy;
+        this.labels = labels;
+    }
+
+    /**
+     * Apply initial list; events we already received are newer.
+     */
+    synchronized void init(List<P> items) {
+        for (P pod : items) {
+            String name = proxy.getName(pod);
+            if (seen.contains(name) == false) {
+                pods.put(name, proxy.isReady(pod));
+            }
+        }
+        notifyAll();
+    }
+
+    public synchronized void onEvent(P pod, boolean deleted) {
+        String name = proxy.getName(pod);
+        seen.add(name);
+        // shared watch can deliver any pod; one that no longer matches is gone for us
+        if (deleted || AbstractProxy.matches(proxy.getLabels(pod), labels) == false) {
+            pods.remove(name);
+        } else {
+            pods.put(name, proxy.isReady(pod));
+        }
+        notifyAll();
+    }
+
+    public synchronized void onClose(Throwable cause) {
+        closed = true;
+        notifyAll();
+    }
+
+    synchronized Set<String> getReadyPods() {
+        Set<String> names = new TreeSet<>();
+        for (Map.Entry<String, Boolean> entry : pods.entrySet()) {
+            if (entry.getValue()) {
+                names.add(entry.getKey());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @return true if checker passed, false if the watch was closed before that
+     */
+    synchronized boolean await(ReadyPodsChecker checker, long deadline) throws InterruptedException {
+        while (true) {
+            if (checker.check(getReadyPods())) {
+                return true;
+            }
+            if (closed) {
+                return false;
+            }
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                throw new IllegalStateException(String.format("Checker [%s] failed to pass.", checker));
+            }
+            wait(remaining);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.proxy;
+
+import java.io.Closeable;
+
+/**
+ * How test invocations reach a pod.
+ * <p/>
+ * Selected with arquillian.transports, a comma separated list tried in order.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public interface Transport extends Closeable {
+    /**
+     * Through the API server pod proxy, always available.
+     */
+    String API_PROXY = "proxy";
+    /**
+     * Through a local port forwarded to the pod.
+     */
+    String PORT_FORWARD = "portforward";
+    /**
+     * Through an OpenShift route, only for pods which are the single endpoint of a routed service.
+     */
+    String ROUTE = "route";
+    /**
+     * Straight to the pod IP, only when running inside the cluster network.
+     */
+    String POD_IP = "podip";
+
+    String getName();
+
+    /**
+     * @param podName    the pod name
+     * @param port       the pod port
+     * @param path       the path
+     * @param parameters the query, may be null
+     * @return url, or null if the pod cannot be reached this way
+     * @throws Exception for any error
+     */
+    String url(String podName, int port, String path, String parameters) throws Exception;
+
+    void close();
+}
@@ -0,0 +1,259 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.proxy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import okhttp3.Request;
+import okhttp3.Response;
+import org.jboss.arquillian.ce.portfwd.PortForward;
+import org.jboss.arquillian.ce.portfwd.PortForwardContext;
+import org.jboss.dmr.ModelNode;
+
+/**
+ * Transport implementations.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+final class Transports {
+    private static final Logger log = Logger.getLogger(Transports.class.getName());
+
+    private Transports() {
+    }
+
+    static List<Transport> create(String names, AbstractProxy<?> proxy) {
+        List<Transport> transports = new ArrayList<>();
+        for (String name : names.split(",")) {
+            name = name.trim();
+            if (Transport.API_PROXY.equals(name)) {
+                transports.add(new ApiProxyTransport(proxy));
+            } else if (Transport.PORT_FORWARD.equals(name)) {
+                transports.add(new PortForwardTransport(proxy));
+            } else if (Transport.ROUTE.equals(name)) {
+                transports.add(new RouteTransport(proxy));
+            } else if (Transport.POD_IP.equals(name)) {
+                transports.add(new PodIPTransport(proxy));
+            } else if (name.length() > 0) {
+                throw new IllegalArgumentException("Unknown transport: " + name);
+            }
+        }
+        if (transports.isEmpty()) {
+            transports.add(new ApiProxyTransport(proxy));
+        }
+        return transports;
+    }
+
+    private static boolean defined(ModelNode node, String... path) {
+        for (String name : path) {
+            if (node.hasDefined(name) == false) {
+                return false;
+            }
+            node = node.get(name);
+        }
+        return true;
+    }
+
+    private static String url(String base, String path, String parameters) {
+        String url = base + path;
+        return (parameters != null && parameters.length() > 0) ? url + "?" + parameters : url;
+    }
+
+    private static class ApiProxyTransport implements Transport {
+        private final AbstractProxy<?> proxy;
+
+        private ApiProxyTransport(AbstractProxy<?> proxy) {
+            this.proxy = proxy;
+        }
+
+        public String getName() {
+            return API_PROXY;
+        }
+
+        public String url(String podName, int port, String path, String parameters) {
+            return proxy.url(podName, port, path, parameters);
+        }
+
+        public void close() {
+        }
+    }
+
+    private static class PodIPTransport implements Transport {
+        private final AbstractProxy<?> proxy;
+
+        private PodIPTransport(AbstractProxy<?> proxy) {
+            this.proxy = proxy;
+        }
+
+        public String getName() {
+            return POD_IP;
+        }
+
+        public String url(String podName, int port, String path, String parameters) {
+            String ip = proxy.getPodIP(podName);
+            return (ip != null) ? Transports.url(String.format("http://%s:%s", ip, port), path, parameters) : null;
+        }
+
+        public void close() {
+        }
+    }
+
+    private static class PortForwardTransport implements Transport {
+        private final AbstractProxy<?> proxy;
+        private final Map<String, PortForward.Handle> handles = new HashMap<>();
+
+        private PortForwardTransport(AbstractProxy<?> proxy) {
+            this.proxy = proxy;
+        }
+
+        public String getName() {
+            return PORT_FORWARD;
+        }
+
+        public String url(String podName, int port, String path, String parameters) throws Exception {
+            PortForward.Handle handle;
+            synchronized (handles) {
+                String key = podName + ":" + port;
+                handle = handles.get(key);
+                if (handle == null) {
+                    // ephemeral local port, several pods can forward the same port
+                    PortForwardContext context = new PortForwardContext(proxy.configuration.getKubernetesMaster(), null, proxy.configuration.getNamespace(), podName, port, 0);
+                    handle = proxy.createPortForward().run(context);
+                    handles.put(key, handle);
+                }
+            }
+            return Transports.url(String.format("http://%s:%s", handle.getInetAddress().getHostAddress(), handle.getPort()), path, parameters);
+        }
+
+        public void close() {
+            synchronized (handles) {
+                for (PortForward.Handle handle : handles.values()) {
+                    try {
+                        handle.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+                handles.clear();
+            }
+        }
+    }
+
+    /**
+     * The router balances over all service endpoints, so a route is only used for a pod that is its service's single endpoint.
+     * Found routes are cached, but the endpoint count is checked on every call, as the service can scale.
+     */
+    private static class RouteTransport implements Transport {
+        private final AbstractProxy<?> proxy;
+        private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+        private RouteTransport(AbstractProxy<?> proxy) {
+            this.proxy = proxy;
+        }
+
+        public String getName() {
+            return ROUTE;
+        }
+
+        public String url(String podName, int port, String path, String parameters) throws Exception {
+            String key = podName + ":" + port;
+            Route route = routes.get(key);
+            if (route == null || proxy.getPods(route.selector).size() != 1) {
+                // misses are not cached, a route can be created later, or the service scaled back
+                route = findRoute(podName, port);
+                if (route == null) {
+                    routes.remove(key);
+                    return null;
+                }
+                routes.put(key, route);
+            }
+            return Transports.url(route.base, path, parameters);
+        }
+
+        private Route findRoute(String podName, int port) throws IOException {
+            Map<String, String> podLabels = proxy.getPodLabels(podName);
+            if (podLabels == null) {
+                return null;
+            }
+            ModelNode list = get(proxy.resourcesUrl("routes"));
+            if (list.hasDefined("items") == false) {
+                return null;
+            }
+            for (ModelNode route : list.get("items").asList()) {
+                ModelNode spec = route.get("spec");
+                if (spec.hasDefined("host") == false || "Service".equals(spec.get("to", "kind").asString()) == false) {
+                    continue;
+                }
+                if (defined(spec, "port", "targetPort") && spec.get("port", "targetPort").asString().equals(String.valueOf(port)) == false) {
+                    continue;
+                }
+                ModelNode service = get(proxy.resourcesUrl("services") + "/" + spec.get("to", "name").asString());
+                if (defined(service, "spec", "selector") == false) {
+                    continue;
+                }
+                Map<String, String> selector = new HashMap<>();
+                for (String label : service.get("spec", "selector").keys()) {
+                    selector.put(label, service.get("spec", "selector", label).asString());
+                }
+                if (AbstractProxy.matches(podLabels, selector) && proxy.getPods(selector).size() == 1) {
+                    String scheme = spec.hasDefined("tls") ? "https" : "http";
+                    log.fine(String.format("Using route %s for pod %s", route.get("metadata", "name").asString(), podName));
+                    return new Route(scheme + "://" + spec.get("host").asString(), selector);
+                }
+            }
+            return null;
+        }
+
+        private ModelNode get(String url) throws IOException {
+            Request request = new Request.Builder().url(url).build();
+            Response response = proxy.getHttpClient().newCall(request).execute();
+            try {
+                if (response.isSuccessful() == false) {
+                    return new ModelNode();
+                }
+                return ModelNode.fromJSONString(response.body().string());
+            } finally {
+                response.body().close();
+            }
+        }
+
+        public void close() {
+            routes.clear();
+        }
+    }
+
+    private static class Route {
+        private final String base;
+        private final Map<String, String> selector;
+
+        private Route(String base, Map<String, String> selector) {
+            this.base = base;
+            this.selector = selector;
+        }
+    }
+}
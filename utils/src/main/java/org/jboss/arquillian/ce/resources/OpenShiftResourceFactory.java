@@ -26,7 +26,6 @@ package org.jboss.arquillian.ce.resources;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.lang.annotation.Annotation;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
@@ -65,6 +64,7 @@ public class OpenShiftResourceFactory {
     public static void createResources(String resourcesKey, OpenShiftAdapter adapter, Archive<?> archive, Class<?> testClass, Properties properties) {
         try {
             final StringResolver resolver = Strings.createStringResolver(properties);
+            final ResourceBatch batch = new ResourceBatch();
 
             List<OpenShiftResource> openShiftResources = new ArrayList<>();
             OSR_FINDER.findAnnotations(openShiftResources, testClass);
@@ -73,7 +73,7 @@ public class OpenShiftResourceFactory {
 
                 InputStream stream;
                 if (file.startsWith(URL_PREFIX)) {
-                    stream = new URL(file).openStream();
+                    stream = adapter.openStream(file);
                 } else if (file.startsWith(CLASSPATH_PREFIX)) {
                     String resourceName = file.substring(CLASSPATH_PREFIX.length());
                     stream = testClass.getClassLoader().getResourceAsStream(resourceName);
@@ -91,8 +91,8 @@ public class OpenShiftResourceFactory {
                     stream = new ByteArrayInputStream(file.getBytes());
                 }
 
-                log.info(String.format("Creating new OpenShift resource: %s", file));
-                adapter.createResource(resourcesKey, stream);
+                log.info(String.format("Adding new OpenShift resource: %s", file));
+                batch.addResource(file, stream);
             }
 
             List<RoleBinding> roleBindings = new ArrayList<>();
@@ -101,7 +101,7 @@ public class OpenShiftResourceFactory {
                 String roleRefName = resolver.resolve(rb.roleRefName());
                 String userName = resolver.resolve(rb.userName());
                 log.info(String.format("Adding new role binding: %s / %s", roleRefName, userName));
-                adapter.addRoleBinding(resourcesKey, roleRefName, userName);
+                batch.addRoleBinding(roleRefName, userName);
             }
 
             List<AddRoleToServiceAccount> arsaBindings = new ArrayList<>();
@@ -111,7 +111,11 @@ public class OpenShiftResourceFactory {
                 String saPattern = String.format("system:serviceaccount:${kubernetes.namespace}:%s", arsa.serviceAccount());
                 String serviceAccount = resolver.resolve(saPattern);
                 log.info(String.format("Adding role %s to service account %s", role, serviceAccount));
-                adapter.addRoleBinding(resourcesKey, role, serviceAccount);
+                batch.addRoleBinding(role, serviceAccount);
+            }
+
+            if (batch.isEmpty() == false) {
+                adapter.createResources(resourcesKey, batch);
             }
         } catch (Exception e) {
             throw new IllegalStateException(e);
@@ -0,0 +1,249 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.resources;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jboss.dmr.ModelNode;
+
+/**
+ * Resources to be created together.
+ * <p/>
+ * Creation is split into stages -- resources others depend on (service accounts, secrets, config maps, image streams, ...)
+ * come first, then the rest, then role bindings. Entries within a stage are independent and can be created concurrently.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class ResourceBatch {
+    // a YAML mapping key and its value, e.g. kind: Secret
+    private static final Pattern YAML_KEY = Pattern.compile("^(\\s*)(-\\s+)?[\"']?([\\w.-]+)[\"']?\\s*:\\s*[\"']?([^\"'#]*)[\"']?\\s*(#.*)?$");
+    private static final Set<String> LIST_KINDS = new HashSet<>(Arrays.asList("List", "Template"));
+    private static final Set<String> BASE_KINDS = new HashSet<>(Arrays.asList(
+        "ServiceAccount", "Secret", "ConfigMap", "ImageStream", "PersistentVolumeClaim", "LimitRange", "ResourceQuota"
+    ));
+
+    private static final int BASE = 0;
+    private static final int DEFAULT = 1;
+    private static final int ROLE_BINDING = 2;
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * Add resource, the stream is read and closed.
+     *
+     * @param description the resource description, e.g. its location
+     * @param stream      the resource stream
+     * @throws IOException for any I/O error
+     */
+    public void addResource(String description, InputStream stream) throws IOException {
+        byte[] bytes;
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = stream.read(buffer)) != -1) {
+                baos.write(buffer, 0, n);
+            }
+            bytes = baos.toByteArray();
+        } finally {
+            stream.close();
+        }
+        entries.add(new Entry(description, bytes, null, null, rank(bytes)));
+    }
+
+    public void addRoleBinding(String roleRefName, String userName) {
+        entries.add(new Entry(String.format("%s / %s", roleRefName, userName), null, roleRefName, userName, ROLE_BINDING));
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return non-empty stages, in creation order
+     */
+    public List<List<Entry>> getStages() {
+        List<List<Entry>> stages = new ArrayList<>();
+        for (int rank = BASE; rank <= ROLE_BINDING; rank++) {
+            List<Entry> stage = new ArrayList<>();
+            for (Entry entry : entries) {
+                if (entry.rank == rank) {
+                    stage.add(entry);
+                }
+            }
+            if (stage.isEmpty() == false) {
+                stages.add(stage);
+            }
+        }
+        return stages;
+    }
+
+    // only base kinds, also in a list, can go first
+    static int rank(byte[] bytes) {
+        List<String> kinds;
+        try {
+            kinds = kinds(new String(bytes, StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            return DEFAULT; // let the server tell what's wrong
+        }
+        for (String kind : kinds) {
+            if (kind == null || BASE_KINDS.contains(kind) == false) {
+                return DEFAULT;
+            }
+        }
+        return kinds.isEmpty() ? DEFAULT : BASE;
+    }
+
+    /**
+     * Top-level kinds of the resource, list and template items included; null for an item without a kind.
+     */
+    static List<String> kinds(String content) {
+        List<String> kinds = new ArrayList<>();
+        String trimmed = content.trim();
+        if (trimmed.startsWith("{")) {
+            addKinds(ModelNode.fromJSONString(trimmed), kinds);
+        } else {
+            addYamlKinds(content, kinds);
+        }
+        return kinds;
+    }
+
+    private static void addKinds(ModelNode node, List<String> kinds) {
+        String kind = node.hasDefined("kind") ? node.get("kind").asString() : null;
+        if (kind != null && LIST_KINDS.contains(kind)) {
+            String items = "Template".equals(kind) ? "objects" : "items";
+            if (node.hasDefined(items)) {
+                for (ModelNode item : node.get(items).asList()) {
+                    addKinds(item, kinds);
+                }
+            }
+        } else {
+            kinds.add(kind);
+        }
+    }
+
+    /**
+     * Only looks at the document's top-level keys, and the top-level keys of its list / template items.
+     */
+    private static void addYamlKinds(String content, List<String> kinds) {
+        String kind = null;
+        boolean inItems = false;
+        int dashIndent = -1;
+        int itemIndent = -1;
+        List<String> itemKinds = new ArrayList<>();
+        for (String line : content.split("\\r?\\n")) {
+            if (line.trim().isEmpty() || line.trim().startsWith("#") || line.startsWith("---")) {
+                continue;
+            }
+            Matcher matcher = YAML_KEY.matcher(line);
+            int indent = line.length() - line.replaceAll("^\\s+", "").length();
+            if (indent == 0 && line.startsWith("-") == false) {
+                inItems = false;
+                if (matcher.matches()) {
+                    String key = matcher.group(3);
+                    if ("kind".equals(key)) {
+                        kind = matcher.group(4).trim();
+                    } else if ("items".equals(key) || "objects".equals(key)) {
+                        inItems = true;
+                    }
+                }
+                continue;
+            }
+            if (inItems == false) {
+                continue;
+            }
+            if (line.trim().startsWith("-")) {
+                if (dashIndent >= 0 && indent != dashIndent) {
+                    continue; // nested sequence
+                }
+                // new item, its keys start right after the dash
+                dashIndent = indent;
+                itemIndent = indent + line.substring(indent + 1).length() - line.substring(indent + 1).replaceAll("^\\s+", "").length() + 1;
+                itemKinds.add(null);
+            } else if (indent != itemIndent) {
+                continue; // nested
+            }
+            if (matcher.matches() && "kind".equals(matcher.group(3)) && itemKinds.isEmpty() == false) {
+                itemKinds.set(itemKinds.size() - 1, matcher.group(4).trim());
+            }
+        }
+        if (kind != null && LIST_KINDS.contains(kind)) {
+            kinds.addAll(itemKinds);
+        } else {
+            kinds.add(kind);
+        }
+    }
+
+    public static class Entry {
+        private final String description;
+        private final byte[] bytes;
+        private final String roleRefName;
+        private final String userName;
+        private final int rank;
+
+        private Entry(String description, byte[] bytes, String roleRefName, String userName, int rank) {
+            this.description = description;
+            this.bytes = bytes;
+            this.roleRefName = roleRefName;
+            this.userName = userName;
+            this.rank = rank;
+        }
+
+        public boolean isRoleBinding() {
+            return rank == ROLE_BINDING;
+        }
+
+        public InputStream openStream() {
+            return new ByteArrayInputStream(bytes);
+        }
+
+        public String getRoleRefName() {
+            return roleRefName;
+        }
+
+        public String getUserName() {
+            return userName;
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+}
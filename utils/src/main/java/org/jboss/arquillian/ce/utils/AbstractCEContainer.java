@@ -29,6 +29,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 
 import org.jboss.arquillian.ce.adapter.DockerAdapter;
@@ -36,6 +37,7 @@ import org.jboss.arquillian.ce.adapter.DockerAdapterContext;
 import org.jboss.arquillian.ce.adapter.DockerAdapterImpl;
 import org.jboss.arquillian.ce.adapter.OpenShiftAdapter;
 import org.jboss.arquillian.ce.adapter.OpenShiftAdapterFactory;
+import org.jboss.arquillian.ce.adapter.RegistryDockerAdapter;
 import org.jboss.arquillian.ce.api.ConfigurationHandle;
 import org.jboss.arquillian.ce.api.MountSecret;
 import org.jboss.arquillian.ce.proxy.Proxy;
@@ -45,6 +47,10 @@ import org.jboss.arquillian.ce.runinpod.RunInPodUtils;
 import org.jboss.arquillian.container.spi.client.container.DeployableContainer;
 import org.jboss.arquillian.container.spi.client.container.DeploymentException;
 import org.jboss.arquillian.container.spi.client.container.LifecycleException;
+import org.jboss.arquillian.container.spi.client.deployment.Deployment;
+import org.jboss.arquillian.container.spi.client.deployment.DeploymentDescription;
+import org.jboss.arquillian.container.spi.client.deployment.DeploymentScenario;
+import org.jboss.arquillian.container.spi.client.deployment.DeploymentTargetDescription;
 import org.jboss.arquillian.container.spi.client.protocol.ProtocolDescription;
 import org.jboss.arquillian.container.spi.client.protocol.metadata.HTTPContext;
 import org.jboss.arquillian.container.spi.client.protocol.metadata.ProtocolMetaData;
@@ -93,16 +99,22 @@ public abstract class AbstractCEContainer<T extends Configuration> implements De
     @Inject
     private Instance<ProtocolRegistry> protocolRegistry;
 
+    @Inject
+    private Instance<DeploymentScenario> deploymentScenario;
+
     protected T configuration;
     protected OpenShiftAdapter client;
     protected DockerAdapter dockerAdapter;
     protected Proxy proxy;
     protected boolean shouldRemoveProject;
+    protected String leasedNamespace;
 
     protected RunInPodUtils runInPodUtils;
     protected RunInPodContainer runInPodContainer;
     protected final ParallelHandler parallelHandler;
 
+    private ConcurrentDeployment concurrentDeployment;
+
     public AbstractCEContainer() {
         this(new ParallelHandler());
     }
@@ -141,6 +153,14 @@ public abstract class AbstractCEContainer<T extends Configuration> implements De
     }
 
     public void start() throws LifecycleException {
+        if (configuration.isExplicitNS() == false) {
+            NamespacePool pool = NamespacePool.getPool(configuration);
+            if (pool != null) {
+                leasedNamespace = pool.lease();
+                configuration.setNamespace(leasedNamespace);
+            }
+        }
+
         client = OpenShiftAdapterFactory.getOpenShiftAdapter(configuration);
         if (openShiftAdapterProducer != null) {
             openShiftAdapterProducer.set(client);
@@ -154,22 +174,45 @@ public abstract class AbstractCEContainer<T extends Configuration> implements De
         } else {
             lookup = client;
         }
-        dockerAdapter = new DockerAdapterImpl(configuration, lookup);
+        if ("registry".equalsIgnoreCase(configuration.getDockerBuilder())) {
+            dockerAdapter = new RegistryDockerAdapter(configuration, lookup);
+        } else {
+            dockerAdapter = new DockerAdapterImpl(configuration, lookup);
+        }
 
         String namespace = configuration.getNamespace();
         log.info("Using Kubernetes namespace / project: " + namespace);
 
-        shouldRemoveProject = client.checkProject(); // create project, if it doesn't exist yet
+        if (leasedNamespace == null) {
+            shouldRemoveProject = client.checkProject(); // create project, if it doesn't exist yet
+        }
     }
 
     public void stop() throws LifecycleException {
         try {
+            closeConcurrentDeployment();
             if (runInPodContainer != null) {
                 runInPodContainer.stop();
             }
         } finally {
             try {
-                if (shouldRemoveProject && configuration.performCleanup()) {
+                if (leasedNamespace != null) {
+                    NamespacePool pool = NamespacePool.getPool(configuration);
+                    try {
+                        if (configuration.performCleanup()) {
+                            try {
+                                client.scrubProject();
+                            } finally {
+                                pool.release(leasedNamespace);
+                            }
+                        } else {
+                            pool.retain(leasedNamespace); // keep it for inspection, and out of the shutdown hook
+                        }
+                    } finally {
+                        configuration.setNamespace(null); // lease again on next start
+                        leasedNamespace = null;
+                    }
+                } else if (shouldRemoveProject && configuration.performCleanup()) {
                     client.deleteProject();
                 }
             } finally {
@@ -319,7 +362,24 @@ public abstract class AbstractCEContainer<T extends Configuration> implements De
         return getClass().getClassLoader().getResourceAsStream(configuration.getTemplateName());
     }
 
-    protected String buildImage(Archive<?> archive, String parent, String dir) throws IOException {
+    protected String buildImage(Archive<?> archive, final String parent, final String dir) throws IOException {
+        ConcurrentDeployment cd = getConcurrentDeployment(archive);
+        if (cd == null) {
+            return doBuildImage(archive, parent, dir, isSPI() ? "spi-" : "");
+        }
+
+        // same container, so same parent and dir for all
+        for (final Archive<?> startup : cd.getArchives()) {
+            cd.submit(startup.getName(), new Callable<String>() {
+                public String call() throws Exception {
+                    return doBuildImage(startup, parent, dir, ""); // never SPI, see getConcurrentDeployment
+                }
+            });
+        }
+        return cd.getImage(archive.getName());
+    }
+
+    private String doBuildImage(Archive<?> archive, String parent, String dir, String imageNamePrefix) throws IOException {
         Properties properties = configuration.getProperties();
 
         String from = Strings.toValue(configuration.getFromParent(), parent);
@@ -331,7 +391,7 @@ public abstract class AbstractCEContainer<T extends Configuration> implements De
 
         InputStream dockerfileTemplate = getDockerTemplate();
 
-        DockerAdapterContext context = new DockerAdapterContext(this, dockerfileTemplate, archive, properties, isSPI() ? "spi-" : "");
+        DockerAdapterContext context = new DockerAdapterContext(this, dockerfileTemplate, archive, properties, imageNamePrefix);
         return dockerAdapter.buildAndPushImage(context);
     }
 
@@ -369,23 +429,101 @@ public abstract class AbstractCEContainer<T extends Configuration> implements De
             parallelHandler.resumeOnMain();
         }
 
-        client.delay(labels, replicas, Operator.GREATER_THAN_OR_EQUAL);
+        ConcurrentDeployment cd = getConcurrentDeployment(archive);
+        if (cd == null) {
+            client.delay(labels, replicas, Operator.GREATER_THAN_OR_EQUAL);
+        } else {
+            Map<String, ConcurrentDeployment.Readiness> ready = cd.deployed(archive.getName(), labels, replicas);
+            if (ready == null) {
+                log.info(String.format("Readiness of %s deferred until all deployments are created.", archive.getName()));
+            } else {
+                // pods of all deployments are starting already, so this takes about as long as the slowest one
+                for (Map.Entry<String, ConcurrentDeployment.Readiness> entry : ready.entrySet()) {
+                    ConcurrentDeployment.Readiness readiness = entry.getValue();
+                    try {
+                        client.delay(readiness.labels, readiness.replicas, Operator.GREATER_THAN_OR_EQUAL);
+                    } catch (Exception e) {
+                        throw new DeploymentException(String.format("Deployment %s is not ready.", entry.getKey()), e);
+                    }
+                }
+            }
+        }
 
         return getProtocolMetaData(archive, labels);
     }
 
+    /**
+     * @return concurrent deployment of the current test class, null if disabled or not applicable
+     */
+    private synchronized ConcurrentDeployment getConcurrentDeployment(Archive<?> archive) {
+        if (configuration.isConcurrentDeployment() == false || isSPI() || deploymentScenario == null || deploymentScenario.get() == null) {
+            return null;
+        }
+        Class<?> testClass = tc.get().getJavaClass();
+        if (concurrentDeployment == null || concurrentDeployment.getTestClass() != testClass) {
+            closeConcurrentDeployment();
+            List<Archive<?>> archives = ConcurrentDeployment.startupArchives(deploymentScenario.get(), archive);
+            if (archives == null || archives.size() < 2) {
+                return null;
+            }
+            concurrentDeployment = new ConcurrentDeployment(testClass, archives, configuration.getDeploymentParallelism());
+        }
+        return concurrentDeployment;
+    }
+
+    private synchronized void closeConcurrentDeployment() {
+        if (concurrentDeployment != null) {
+            List<String> unused = concurrentDeployment.close();
+            concurrentDeployment = null;
+            if (configuration.performCleanup()) {
+                for (String image : unused) {
+                    try {
+                        dockerAdapter.removeImage(image);
+                    } catch (Exception e) {
+                        log.info(String.format("Error -- removing unused Docker image [%s] - %s", image, e));
+                    }
+                }
+            }
+        }
+    }
+
     protected ProtocolMetaData getProtocolMetaData(Archive<?> archive, final Map<String, String> labels) throws Exception {
         HTTPContext context = new HTTPContext("<DUMMY>", 80); // we don't use the host, as we use proxy
         addServlets(context, archive);
 
         ProtocolMetaData pmd = new ProtocolMetaData();
         // we need original configuration instance; due to generated values
-        pmd.addContext(new DeploymentContext(archive, labels, proxy));
+        DeploymentContext deploymentContext = new DeploymentContext(archive, labels, proxy);
+        applyDeploymentTarget(deploymentContext, archive);
+        pmd.addContext(deploymentContext);
         pmd.addContext(context);
         pmd.addContext(proxy.createManagementHandle(labels));
         return pmd;
     }
 
+    /**
+     * Which test methods target this deployment, so the protocol doesn't pre-dispatch other deployments' methods.
+     */
+    private void applyDeploymentTarget(DeploymentContext deploymentContext, Archive<?> archive) {
+        DeploymentScenario scenario = (deploymentScenario != null) ? deploymentScenario.get() : null;
+        if (scenario == null) {
+            return;
+        }
+        for (Deployment deployment : scenario.deployments()) {
+            DeploymentDescription description = deployment.getDescription();
+            if (description.getTestableArchive() == archive || description.getArchive() == archive) {
+                deploymentContext.setDeploymentName(description.getName());
+                try {
+                    Deployment defaultDeployment = scenario.deployment(DeploymentTargetDescription.DEFAULT);
+                    deploymentContext.setDefaultDeployment(defaultDeployment != null && defaultDeployment.getDescription() == description);
+                } catch (RuntimeException e) {
+                    deploymentContext.setDefaultDeployment(false); // no single default deployment
+                }
+                return;
+            }
+        }
+    }
+
     protected void addServlets(HTTPContext context, Archive<?> archive) throws Exception {
         if (archive instanceof WebArchive) {
             handleWebArchive(context, WebArchive.class.cast(archive), false);
@@ -0,0 +1,69 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Keeps only the first limit bytes, the rest is counted and dropped.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class BoundedOutputStream extends ByteArrayOutputStream {
+    private final int limit;
+    private long dropped;
+
+    public BoundedOutputStream(int limit) {
+        super(Math.min(limit, 1024));
+        this.limit = limit;
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        if (count < limit) {
+            super.write(b);
+        } else {
+            dropped++;
+        }
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        int n = Math.min(len, limit - count);
+        if (n > 0) {
+            super.write(b, off, n);
+        }
+        dropped += (len - Math.max(n, 0));
+    }
+
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    public synchronized String toString(String charsetName) throws UnsupportedEncodingException {
+        String string = super.toString(charsetName);
+        return dropped > 0 ? string + String.format("%n... [%s bytes truncated]", dropped) : string;
+    }
+}
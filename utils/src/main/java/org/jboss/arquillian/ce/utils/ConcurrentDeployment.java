@@ -0,0 +1,186 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.jboss.arquillian.container.spi.client.deployment.Deployment;
+import org.jboss.arquillian.container.spi.client.deployment.DeploymentDescription;
+import org.jboss.arquillian.container.spi.client.deployment.DeploymentScenario;
+import org.jboss.shrinkwrap.api.Archive;
+
+/**
+ * Concurrent deployment of a test class' startup deployments, which target the same container.
+ * <p/>
+ * Arquillian still deploys them one by one; the first one starts all image builds on a bounded executor,
+ * each deploy then only waits for its own image. Readiness is deferred until the last one is deployed.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+class ConcurrentDeployment {
+    private static final Logger log = Logger.getLogger(ConcurrentDeployment.class.getName());
+
+    private final Class<?> testClass;
+    private final List<Archive<?>> archives;
+    private final ExecutorService executor;
+
+    private final Map<String, Future<String>> images = new LinkedHashMap<>();
+    private final Set<String> consumed = new HashSet<>();
+    private final Map<String, Readiness> pending = new LinkedHashMap<>();
+
+    ConcurrentDeployment(Class<?> testClass, List<Archive<?>> archives, int parallelism) {
+        this.testClass = testClass;
+        this.archives = archives;
+        final AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, archives.size())), new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "CE-ConcurrentDeployment-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        log.info(String.format("Concurrent deployment of %s archives for %s.", archives.size(), testClass.getName()));
+    }
+
+    /**
+     * @return archives deployed to the same container as the given one, including itself; null if not in the scenario
+     */
+    static List<Archive<?>> startupArchives(DeploymentScenario scenario, Archive<?> archive) {
+        for (Deployment deployment : scenario.deployments()) {
+            DeploymentDescription description = deployment.getDescription();
+            if (description.getTestableArchive() == archive || description.getArchive() == archive) {
+                List<Archive<?>> archives = new ArrayList<>();
+                for (Deployment startup : scenario.startupDeploymentsFor(description.getTarget())) {
+                    DeploymentDescription sd = startup.getDescription();
+                    archives.add(sd.testable() && sd.getTestableArchive() != null ? sd.getTestableArchive() : sd.getArchive());
+                }
+                return archives.contains(archive) ? archives : null;
+            }
+        }
+        return null;
+    }
+
+    Class<?> getTestClass() {
+        return testClass;
+    }
+
+    List<Archive<?>> getArchives() {
+        return archives;
+    }
+
+    synchronized void submit(String name, Callable<String> build) {
+        if (images.containsKey(name) == false) {
+            images.put(name, executor.submit(build));
+        }
+    }
+
+    /**
+     * Wait for the archive's image.
+     */
+    String getImage(String name) throws IOException {
+        Future<String> future;
+        synchronized (this) {
+            future = images.get(name);
+            consumed.add(name);
+        }
+        if (future == null) {
+            throw new IllegalStateException(String.format("No image build for %s", name));
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(String.format("Interrupted building image for %s", name), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(String.format("Cannot build image for %s", name), cause);
+        }
+    }
+
+    /**
+     * Record the deployment's readiness criteria.
+     *
+     * @return all the readiness checks to await, if this was the last deployment; else null
+     */
+    synchronized Map<String, Readiness> deployed(String name, Map<String, String> labels, int replicas) {
+        pending.put(name, new Readiness(labels, replicas));
+        for (Archive<?> archive : archives) {
+            if (pending.containsKey(archive.getName()) == false) {
+                return null;
+            }
+        }
+        Map<String, Readiness> result = new LinkedHashMap<>(pending);
+        pending.clear();
+        return result;
+    }
+
+    /**
+     * Stop pending builds; images built but never deployed are handed back, so they can be removed.
+     */
+    synchronized List<String> close() {
+        executor.shutdownNow();
+        List<String> unused = new ArrayList<>();
+        for (Map.Entry<String, Future<String>> entry : images.entrySet()) {
+            Future<String> future = entry.getValue();
+            if (consumed.contains(entry.getKey()) == false && future.isDone() && future.isCancelled() == false) {
+                try {
+                    unused.add(future.get());
+                } catch (Exception ignore) {
+                    // failed build, nothing to remove
+                }
+            }
+        }
+        images.clear();
+        consumed.clear();
+        pending.clear();
+        return unused;
+    }
+
+    static class Readiness {
+        final Map<String, String> labels;
+        final int replicas;
+
+        private Readiness(Map<String, String> labels, int replicas) {
+            this.labels = labels;
+            this.replicas = replicas;
+        }
+    }
+}
@@ -27,6 +27,7 @@ import static org.jboss.arquillian.ce.utils.Strings.getSystemPropertyOrEnvVar;
 import static org.jboss.arquillian.ce.utils.Strings.isNotNullOrEmpty;
 import static org.jboss.arquillian.ce.utils.Strings.isNullOrEmpty;
 
+import java.io.File;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.List;
@@ -76,6 +77,10 @@ public abstract class Configuration implements ContainerConfiguration, Configura
 
     private String imageGroup = getSystemPropertyOrEnvVar("docker.test.image", "cetestimage");
     private String imageTag = getSystemPropertyOrEnvVar("docker.test.tag", "latest");
+    private boolean contentTag = Boolean.parseBoolean(getSystemPropertyOrEnvVar("docker.test.content.tag"));
+    private String dockerBuilder = getSystemPropertyOrEnvVar("docker.builder", "daemon");
+    private String imageLayout = getSystemPropertyOrEnvVar("docker.image.layout", "single");
+    private String insecureRegistries = getSystemPropertyOrEnvVar("docker.registry.insecure", "internal");
     private String imagePullPolicy = getSystemPropertyOrEnvVar("docker.test.pull.policy", "Always");
 
     private String dockerUsername = getSystemPropertyOrEnvVar("docker.username", "");
@@ -88,6 +93,29 @@ public abstract class Configuration implements ContainerConfiguration, Configura
 
     private boolean ignoreCleanup = Boolean.parseBoolean(getSystemPropertyOrEnvVar("kubernetes.ignore.cleanup"));
 
+    private boolean podCache = Boolean.parseBoolean(getSystemPropertyOrEnvVar("kubernetes.pod.cache", "true"));
+    private int asyncParallelism = Integer.parseInt(getSystemPropertyOrEnvVar("arquillian.async.parallelism", "8"));
+
+    private boolean concurrentDeployment = Boolean.parseBoolean(getSystemPropertyOrEnvVar("arquillian.deployment.concurrent"));
+    private int deploymentParallelism = Integer.parseInt(getSystemPropertyOrEnvVar("arquillian.deployment.parallelism", "4"));
+    private String transports = getSystemPropertyOrEnvVar("arquillian.transports", "proxy");
+
+    private boolean bulkDelete = Boolean.parseBoolean(getSystemPropertyOrEnvVar("kubernetes.delete.bulk", "true"));
+    private boolean zeroGraceDelete = Boolean.parseBoolean(getSystemPropertyOrEnvVar("kubernetes.delete.zero.grace"));
+
+    private int namespacePoolSize = Integer.parseInt(getSystemPropertyOrEnvVar("kubernetes.namespace.pool.size", "0"));
+    private String namespacePoolPolicy = getSystemPropertyOrEnvVar("kubernetes.namespace.pool.policy", NamespacePool.REUSE);
+
+    private boolean templateCache = Boolean.parseBoolean(getSystemPropertyOrEnvVar("arquillian.template.cache", "false")); // opt-in
+    private String templateCacheDir = getSystemPropertyOrEnvVar("arquillian.template.cache.dir", new File(System.getProperty("java.io.tmpdir"), "arquillian-ce-cache").getPath());
+    private boolean templateCacheOffline = Boolean.parseBoolean(getSystemPropertyOrEnvVar("arquillian.template.cache.offline"));
+    private long templateCacheRevalidate = Integer.parseInt(getSystemPropertyOrEnvVar("arquillian.template.cache.revalidate", "0")); // seconds, 0 revalidates every use
+
+    private boolean resourceCache = Boolean.parseBoolean(getSystemPropertyOrEnvVar("kubernetes.resource.cache", "true"));
+    private int resourcesParallelism = Integer.parseInt(getSystemPropertyOrEnvVar("kubernetes.resources.parallelism", "8"));
+
+    private long podCacheStaleness = Integer.parseInt(getSystemPropertyOrEnvVar("kubernetes.pod.cache.staleness", "5")); // 5sec after watch drop
+
     protected String generateNS() {
         StringBuilder builder = new StringBuilder();
         if (getNamespacePrefix() != null) {
@@ -338,6 +366,48 @@ public abstract class Configuration implements ContainerConfiguration, Configura
         this.imageTag = imageTag;
     }
 
+    public boolean isContentTag() {
+        return contentTag;
+    }
+
+    public void setContentTag(boolean contentTag) {
+        this.contentTag = contentTag;
+    }
+
+    /**
+     * @return daemon (Docker build and push), or registry (daemonless, see RegistryDockerAdapter)
+     */
+    public String getDockerBuilder() {
+        return dockerBuilder;
+    }
+
+    public void setDockerBuilder(String dockerBuilder) {
+        this.dockerBuilder = dockerBuilder;
+    }
+
+    /**
+     * @return single (deployment as one layer), or split (libraries and application in separate layers)
+     */
+    public String getImageLayout() {
+        return imageLayout;
+    }
+
+    public void setImageLayout(String imageLayout) {
+        this.imageLayout = imageLayout;
+    }
+
+    /**
+     * @return comma separated registry hosts (host[:port]) talked to over plain http,
+     * "internal" is the cluster's registry we push to, null for none
+     */
+    public String getInsecureRegistries() {
+        return insecureRegistries;
+    }
+
+    public void setInsecureRegistries(String insecureRegistries) {
+        this.insecureRegistries = insecureRegistries;
+    }
+
     public String getImagePullPolicy() {
         return imagePullPolicy;
     }
@@ -402,6 +472,144 @@ public abstract class Configuration implements ContainerConfiguration, Configura
         this.ignoreCleanup = ignoreCleanup;
     }
 
+    public boolean isPodCache() {
+        return podCache;
+    }
+
+    public void setPodCache(boolean podCache) {
+        this.podCache = podCache;
+    }
+
+    public boolean isResourceCache() {
+        return resourceCache;
+    }
+
+    public void setResourceCache(boolean resourceCache) {
+        this.resourceCache = resourceCache;
+    }
+
+    public int getResourcesParallelism() {
+        return resourcesParallelism;
+    }
+
+    public void setResourcesParallelism(int resourcesParallelism) {
+        this.resourcesParallelism = resourcesParallelism;
+    }
+
+    public long getPodCacheStaleness() {
+        return podCacheStaleness;
+    }
+
+    public void setPodCacheStaleness(long podCacheStaleness) {
+        this.podCacheStaleness = podCacheStaleness;
+    }
+
+    public int getAsyncParallelism() {
+        return asyncParallelism;
+    }
+
+    public void setAsyncParallelism(int asyncParallelism) {
+        this.asyncParallelism = asyncParallelism;
+    }
+
+    public boolean isConcurrentDeployment() {
+        return concurrentDeployment;
+    }
+
+    public void setConcurrentDeployment(boolean concurrentDeployment) {
+        this.concurrentDeployment = concurrentDeployment;
+    }
+
+    public int getDeploymentParallelism() {
+        return deploymentParallelism;
+    }
+
+    public void setDeploymentParallelism(int deploymentParallelism) {
+        this.deploymentParallelism = deploymentParallelism;
+    }
+
+    /**
+     * @return comma separated transports to invoke pods with, in order of preference
+     */
+    public String getTransports() {
+        return transports;
+    }
+
+    public void setTransports(String transports) {
+        this.transports = transports;
+    }
+
+    public boolean isBulkDelete() {
+        return bulkDelete;
+    }
+
+    public void setBulkDelete(boolean bulkDelete) {
+        this.bulkDelete = bulkDelete;
+    }
+
+    public boolean isZeroGraceDelete() {
+        return zeroGraceDelete;
+    }
+
+    public void setZeroGraceDelete(boolean zeroGraceDelete) {
+        this.zeroGraceDelete = zeroGraceDelete;
+    }
+
+    public int getNamespacePoolSize() {
+        return namespacePoolSize;
+    }
+
+    public void setNamespacePoolSize(int namespacePoolSize) {
+        this.namespacePoolSize = namespacePoolSize;
+    }
+
+    public String getNamespacePoolPolicy() {
+        return namespacePoolPolicy;
+    }
+
+    public void setNamespacePoolPolicy(String namespacePoolPolicy) {
+        this.namespacePoolPolicy = namespacePoolPolicy;
+    }
+
+    /**
+     * @return true if namespace was configured, not generated
+     */
+    public boolean isExplicitNS() {
+        return namespace != null && generatedNS == false;
+    }
+
+    public boolean isTemplateCache() {
+        return templateCache;
+    }
+
+    public void setTemplateCache(boolean templateCache) {
+        this.templateCache = templateCache;
+    }
+
+    public String getTemplateCacheDir() {
+        return templateCacheDir;
+    }
+
+    public void setTemplateCacheDir(String templateCacheDir) {
+        this.templateCacheDir = templateCacheDir;
+    }
+
+    public boolean isTemplateCacheOffline() {
+        return templateCacheOffline;
+    }
+
+    public void setTemplateCacheOffline(boolean templateCacheOffline) {
+        this.templateCacheOffline = templateCacheOffline;
+    }
+
+    public long getTemplateCacheRevalidate() {
+        return templateCacheRevalidate;
+    }
+
+    public void setTemplateCacheRevalidate(long templateCacheRevalidate) {
+        this.templateCacheRevalidate = templateCacheRevalidate;
+    }
+
     public boolean performCleanup() {
         return (isIgnoreCleanup() == false); // dup negative ;-)
     }
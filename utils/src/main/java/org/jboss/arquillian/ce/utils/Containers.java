@@ -28,14 +28,21 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
+import org.jboss.arquillian.ce.metrics.ApiMetrics;
+
 /**
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
  */
 public class Containers {
     private static final Logger log = Logger.getLogger(Containers.class.getName());
 
+    private static final long INITIAL_CHECK_PERIOD = 100L; // millis
+    private static final double JITTER = 0.2;
+
     private final static String[] CONTAINER_CLASSES = {
         "org.jboss.arquillian.ce.wildfly.WildFlyCEContainer",
         "org.jboss.arquillian.ce.template.TemplateCEContainer",
@@ -54,22 +61,49 @@ public class Containers {
         return false;
     }
 
+    /**
+     * Check right away, then back off -- starting fast, doubling with jitter, up to check period.
+     *
+     * @param startupTimeout the timeout in seconds
+     * @param checkPeriod    the max check period in millis
+     * @param checker        the checker
+     * @throws Exception for any error
+     */
     public static void delay(long startupTimeout, long checkPeriod, Checker checker) throws Exception {
-        log.info(String.format("Applying checker [%s], timeout: %ss, check period: %sms", checker, startupTimeout, checkPeriod));
+        delay("delay", startupTimeout, checkPeriod, checker);
+    }
 
-        long timeout = startupTimeout * 1000;
-        while (timeout > 0) {
-            Thread.sleep(checkPeriod);
+    /**
+     * Check right away, then back off -- starting fast, doubling with jitter, up to check period.
+     *
+     * @param condition      the stable condition name, used as metrics key
+     * @param startupTimeout the timeout in seconds
+     * @param checkPeriod    the max check period in millis
+     * @param checker        the checker
+     * @throws Exception for any error
+     */
+    public static void delay(String condition, long startupTimeout, long checkPeriod, Checker checker) throws Exception {
+        log.info(String.format("Applying checker [%s], timeout: %ss, check period: %sms", checker, startupTimeout, checkPeriod));
 
+        final long start = System.nanoTime();
+        final long deadline = start + TimeUnit.SECONDS.toNanos(startupTimeout);
+        long backoff = Math.min(INITIAL_CHECK_PERIOD, checkPeriod);
+        while (true) {
             if (checker.check()) {
+                ApiMetrics.getInstance().recordCondition(condition, System.nanoTime() - start, true);
                 log.info(String.format("Checker [%s] is ready.", checker));
-                break;
+                return;
             }
 
-            timeout -= checkPeriod;
-        }
-        if (timeout <= 0) {
-            throw new IllegalStateException(String.format("Checker [%s] failed to pass.", checker));
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                ApiMetrics.getInstance().recordCondition(condition, System.nanoTime() - start, false);
+                throw new IllegalStateException(String.format("Checker [%s] failed to pass.", checker));
+            }
+
+            long jitter = (long) (backoff * JITTER * (2 * ThreadLocalRandom.current().nextDouble() - 1));
+            Thread.sleep(Math.max(1, Math.min(backoff + jitter, remaining)));
+            backoff = Math.min(backoff * 2, checkPeriod);
         }
     }
 
@@ -111,6 +145,6 @@ public class Containers {
             }
         };
 
-        delay(startupTimeout, checkPeriod, c);
+        delay("archive deploy", startupTimeout, checkPeriod, c);
     }
 }
@@ -25,6 +25,8 @@ package org.jboss.arquillian.ce.utils;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.jboss.arquillian.ce.proxy.Proxy;
 import org.jboss.arquillian.container.spi.client.protocol.metadata.ProtocolMetaData;
@@ -39,6 +41,10 @@ public class DeploymentContext {
     private final Archive<?> archive;
     private Map<String, String> labels;
     private Proxy proxy;
+    private String deploymentName; // @Deployment name, null if unknown
+    private boolean defaultDeployment = true;
+    // per deployment state of the client side protocol, executors are created per test method
+    private final ConcurrentMap<Class<?>, Object> attachments = new ConcurrentHashMap<>();
 
     public DeploymentContext(Archive<?> archive, Map<String, String> labels, Proxy proxy) {
         this.archive = archive;
@@ -65,4 +71,42 @@ public class DeploymentContext {
     public Proxy getProxy() {
         return proxy;
     }
+
+    /**
+     * @return the Arquillian deployment name, as used by @OperateOnDeployment, null if unknown
+     */
+    public String getDeploymentName() {
+        return deploymentName;
+    }
+
+    public void setDeploymentName(String deploymentName) {
+        this.deploymentName = deploymentName;
+    }
+
+    /**
+     * @return true if test methods without @OperateOnDeployment run against this deployment
+     */
+    public boolean isDefaultDeployment() {
+        return defaultDeployment;
+    }
+
+    public void setDefaultDeployment(boolean defaultDeployment) {
+        this.defaultDeployment = defaultDeployment;
+    }
+
+    public <T> T getAttachment(Class<T> type) {
+        return type.cast(attachments.get(type));
+    }
+
+    public <T> void putAttachment(Class<T> type, T value) {
+        attachments.put(type, value);
+    }
+
+    /**
+     * @return the existing attachment if there is one, else the value
+     */
+    public <T> T putAttachmentIfAbsent(Class<T> type, T value) {
+        Object previous = attachments.putIfAbsent(type, value);
+        return (previous != null) ? type.cast(previous) : value;
+    }
 }
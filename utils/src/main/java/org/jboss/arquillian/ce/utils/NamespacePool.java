@@ -0,0 +1,192 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.utils;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.arquillian.ce.adapter.OpenShiftAdapter;
+import org.jboss.arquillian.ce.adapter.OpenShiftAdapterFactory;
+
+/**
+ * JVM wide pool of pre-created namespaces.
+ * <p/>
+ * Namespaces are created up front in the background, leased on container start and,
+ * once scrubbed by the lessee, either put back (reuse) or deleted and replaced (delete).
+ * Whatever the pool created is deleted on JVM shutdown, except namespaces retained by their lessee.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class NamespacePool {
+    private static final Logger log = Logger.getLogger(NamespacePool.class.getName());
+
+    public static final String REUSE = "reuse";
+    public static final String DELETE = "delete";
+
+    private static NamespacePool pool;
+
+    private final Configuration configuration;
+    private final OpenShiftAdapter adapter;
+    private final LinkedBlockingQueue<String> idle = new LinkedBlockingQueue<>();
+    private final Set<String> owned = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final ExecutorService executor;
+
+    /**
+     * Get the pool, the first configuration creates it.
+     *
+     * @param configuration the configuration
+     * @return pool or null if pooling is disabled
+     */
+    public static synchronized NamespacePool getPool(Configuration configuration) {
+        if (pool == null && configuration.getNamespacePoolSize() > 0) {
+            final NamespacePool current = new NamespacePool(configuration, OpenShiftAdapterFactory.getOpenShiftAdapter(configuration));
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                @Override
+                public void run() {
+                    current.shutdown();
+                }
+            });
+            pool = current;
+        }
+        return pool;
+    }
+
+    NamespacePool(Configuration configuration, OpenShiftAdapter adapter) {
+        this.configuration = configuration;
+        this.adapter = adapter;
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "CE-NamespacePool");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        for (int i = 0; i < configuration.getNamespacePoolSize(); i++) {
+            replenish();
+        }
+    }
+
+    private String create() {
+        String namespace = configuration.generateNS();
+        adapter.createProject(namespace);
+        owned.add(namespace);
+        log.info(String.format("Created pooled namespace %s.", namespace));
+        return namespace;
+    }
+
+    private void replenish() {
+        executor.submit(new Runnable() {
+            public void run() {
+                try {
+                    idle.offer(create());
+                } catch (Throwable t) {
+                    log.log(Level.WARNING, String.format("Cannot create pooled namespace: %s", t), t);
+                }
+            }
+        });
+    }
+
+    /**
+     * Lease namespace; if none is ready, one is created right away.
+     *
+     * @return the namespace
+     */
+    public String lease() {
+        String namespace = idle.poll();
+        if (namespace == null) {
+            namespace = create();
+        }
+        log.info(String.format("Leased namespace %s, idle: %s", namespace, idle.size()));
+        return namespace;
+    }
+
+    /**
+     * Release namespace, already scrubbed by the lessee.
+     *
+     * @param namespace the namespace
+     */
+    public void release(final String namespace) {
+        if (DELETE.equalsIgnoreCase(configuration.getNamespacePoolPolicy())) {
+            executor.submit(new Runnable() {
+                public void run() {
+                    delete(namespace);
+                }
+            });
+            replenish();
+        } else {
+            idle.offer(namespace);
+        }
+        log.info(String.format("Released namespace %s [%s].", namespace, configuration.getNamespacePoolPolicy()));
+    }
+
+    /**
+     * Retain namespace, e.g. cleanup is disabled and the lessee's resources are kept for inspection.
+     * The namespace leaves the pool and is not deleted on shutdown; a new one takes its place.
+     *
+     * @param namespace the namespace
+     */
+    public void retain(String namespace) {
+        owned.remove(namespace);
+        replenish();
+        log.info(String.format("Retained namespace %s, it will not be deleted.", namespace));
+    }
+
+    int getIdleCount() {
+        return idle.size();
+    }
+
+    private void delete(String namespace) {
+        try {
+            adapter.deleteProject(namespace);
+            owned.remove(namespace);
+        } catch (Throwable t) {
+            log.log(Level.WARNING, String.format("Cannot delete pooled namespace %s: %s", namespace, t), t);
+        }
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+        try {
+            if (configuration.performCleanup()) {
+                for (String namespace : owned) {
+                    delete(namespace);
+                }
+            }
+        } finally {
+            try {
+                adapter.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -39,9 +39,17 @@ public class Timer {
         start = System.currentTimeMillis();
     }
 
+    public long elapsed() {
+        return System.currentTimeMillis() - start;
+    }
+
     @Override
     public String toString() {
-        long time = (System.currentTimeMillis() - start) / 1000L;
+        return format(elapsed());
+    }
+
+    public static String format(long millis) {
+        long time = millis / 1000L;
         long min = time / 60L;
         long sec = time - (60L * min);
         return String.format("%smin %ss", min, sec);
@@ -0,0 +1,51 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class AbstractDockerAdapterTest {
+    private static final String DOCKERFILE = "FROM base/eap:1.0\nADD test.war /opt/eap/standalone/deployments/\n";
+
+    private static WebArchive createDeployment() {
+        return ShrinkWrap.create(WebArchive.class, "test.war").addAsWebResource(new StringAsset("hello"), "index.html");
+    }
+
+    @Test
+    public void testContentTagFollowsBaseDigest() throws Exception {
+        String tag = AbstractDockerAdapter.contentTag(createDeployment(), DOCKERFILE, "base/eap:1.0", "sha256:aaa");
+        assertEquals(tag, AbstractDockerAdapter.contentTag(createDeployment(), DOCKERFILE, "base/eap:1.0", "sha256:aaa"));
+        // same base name, moved to a rebuilt image
+        assertFalse(tag.equals(AbstractDockerAdapter.contentTag(createDeployment(), DOCKERFILE, "base/eap:1.0", "sha256:bbb")));
+    }
+}
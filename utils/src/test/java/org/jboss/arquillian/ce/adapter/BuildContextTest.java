@@ -0,0 +1,114 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class BuildContextTest {
+
+    private static Set<String> tempFiles() {
+        String[] names = new File(System.getProperty("java.io.tmpdir")).list(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.startsWith("ce_context") || name.startsWith("ce_deployment");
+            }
+        });
+        return new HashSet<>(Arrays.asList(names));
+    }
+
+    private static Map<String, Long> readTar(InputStream stream) throws IOException {
+        Map<String, Long> entries = new LinkedHashMap<>();
+        TarArchiveInputStream tar = new TarArchiveInputStream(stream);
+        TarArchiveEntry entry;
+        while ((entry = tar.getNextTarEntry()) != null) {
+            entries.put(entry.getName(), entry.getSize());
+            if (entry.getName().endsWith(".war")) {
+                ZipInputStream zip = new ZipInputStream(tar);
+                Set<String> names = new HashSet<>();
+                ZipEntry zipEntry;
+                while ((zipEntry = zip.getNextEntry()) != null) {
+                    names.add(zipEntry.getName());
+                }
+                assertTrue(names.toString(), names.contains("index.html"));
+            }
+        }
+        return entries;
+    }
+
+    private static void testContext(boolean gzip) throws Exception {
+        Set<String> before = tempFiles();
+        WebArchive war = ShrinkWrap.create(WebArchive.class, "test.war").addAsWebResource(new StringAsset("hello"), "index.html");
+        try (BuildContext context = new BuildContext(gzip)) {
+            context.add("Dockerfile", "FROM base\n".getBytes()).add(war);
+            InputStream stream = context.toInputStream();
+            Map<String, Long> entries = readTar(gzip ? new GZIPInputStream(stream) : stream);
+            assertEquals(Arrays.asList("Dockerfile", "test.war"), Arrays.asList(entries.keySet().toArray()));
+            assertEquals(10L, (long) entries.get("Dockerfile"));
+            assertTrue(entries.get("test.war") > 0);
+            assertFalse(before.containsAll(tempFiles()));
+        }
+        assertTrue(before.containsAll(tempFiles()));
+    }
+
+    @Test
+    public void testPlainContext() throws Exception {
+        testContext(false);
+    }
+
+    @Test
+    public void testGzipContext() throws Exception {
+        testContext(true);
+    }
+
+    @Test
+    public void testRemote() {
+        assertFalse(BuildContext.isRemote("unix:///var/run/docker.sock"));
+        assertFalse(BuildContext.isRemote("tcp://127.0.0.1:2375"));
+        assertTrue(BuildContext.isRemote("tcp://docker.example.com:2376"));
+    }
+}
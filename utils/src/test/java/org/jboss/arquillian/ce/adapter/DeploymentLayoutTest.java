@@ -0,0 +1,109 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class DeploymentLayoutTest {
+
+    private static WebArchive createDeployment() {
+        JavaArchive lib = ShrinkWrap.create(JavaArchive.class, "lib.jar").addAsResource(new StringAsset("lib"), "lib.properties");
+        return ShrinkWrap.create(WebArchive.class, "test.war")
+            .addAsWebResource(new StringAsset("hello"), "index.html")
+            .addAsLibrary(lib);
+    }
+
+    @Test
+    public void testEapTarget() {
+        DeploymentLayout.Target target = DeploymentLayout.target("FROM eap\nADD test.war /opt/eap/standalone/deployments/\n", "test.war");
+        assertEquals("ADD test.war /opt/eap/standalone/deployments/", target.line);
+        assertEquals("/opt/eap/standalone/deployments/", target.dir);
+        assertEquals("test.war", target.name);
+        assertTrue(target.marker);
+
+        // no trailing slash, still the dir
+        target = DeploymentLayout.target("FROM eap\nCOPY test.war /opt/eap/standalone/deployments\n", "test.war");
+        assertEquals("/opt/eap/standalone/deployments/", target.dir);
+        assertEquals("test.war", target.name);
+
+        target = DeploymentLayout.target("FROM eap\nADD test.war /opt/eap/standalone/deployments/app.war\n", "test.war");
+        assertEquals("app.war", target.name);
+    }
+
+    @Test
+    public void testTomcatTarget() {
+        DeploymentLayout.Target target = DeploymentLayout.target("FROM jws\nADD test.war /opt/webserver/webapps/\n", "test.war");
+        assertEquals("/opt/webserver/webapps/", target.dir);
+        assertEquals("test", target.name);
+        assertFalse(target.marker);
+
+        target = DeploymentLayout.target("FROM jws\nADD test.war /opt/webserver/webapps/ROOT.war\n", "test.war");
+        assertEquals("ROOT", target.name);
+    }
+
+    @Test
+    public void testUnknownTarget() {
+        assertNull(DeploymentLayout.target("FROM other\nADD test.war /opt/app/\n", "test.war"));
+        assertNull(DeploymentLayout.target("FROM jws\nADD test.ear /opt/webserver/webapps/\n", "test.ear"));
+        assertNull(DeploymentLayout.target("FROM eap\nADD other.war /opt/eap/standalone/deployments/\n", "test.war"));
+    }
+
+    @Test
+    public void testEapSplit() throws Exception {
+        DeploymentLayout.Target target = DeploymentLayout.target("ADD test.war /opt/eap/standalone/deployments/", "test.war");
+        DeploymentLayout layout = DeploymentLayout.split(createDeployment(), target);
+        assertEquals(1, layout.getLibraries().size());
+        assertTrue(layout.getLibraries().containsKey("test.war/WEB-INF/lib/lib.jar"));
+        assertTrue(layout.getApplication().containsKey("test.war/index.html"));
+        assertEquals(0, layout.getApplication().get("test.war.dodeploy").length);
+    }
+
+    @Test
+    public void testTomcatSplit() throws Exception {
+        DeploymentLayout.Target target = DeploymentLayout.target("ADD test.war /opt/webserver/webapps/", "test.war");
+        DeploymentLayout layout = DeploymentLayout.split(createDeployment(), target);
+        assertTrue(layout.getLibraries().containsKey("test/WEB-INF/lib/lib.jar"));
+        assertEquals(1, layout.getApplication().size());
+        assertTrue(layout.getApplication().containsKey("test/index.html"));
+    }
+
+    @Test
+    public void testSameContentSameLibrariesHash() throws Exception {
+        DeploymentLayout.Target target = DeploymentLayout.target("ADD test.war /opt/eap/standalone/deployments/", "test.war");
+        String hash = DeploymentLayout.split(createDeployment(), target).getLibrariesHash();
+        assertEquals(hash, DeploymentLayout.split(createDeployment(), target).getLibrariesHash());
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class ImageCacheStatsTest {
+
+    @Test
+    public void testHitsPricedByTheirOwnBuild() {
+        ImageCacheStats stats = new ImageCacheStats();
+        stats.miss("ce-a", 60000);
+        stats.miss("ce-b", 1000);
+        stats.hit("ce-a");
+        stats.hit("ce-a");
+        assertEquals(120000, stats.getSaved());
+    }
+
+    @Test
+    public void testAllHitsUnknownUntilSomethingIsBuilt() {
+        ImageCacheStats stats = new ImageCacheStats();
+        stats.hit("ce-a");
+        stats.hit("ce-b");
+        assertEquals(-1, stats.getSaved());
+        assertTrue(stats.toString(), stats.toString().contains("2 hits, 0 misses, unknown"));
+
+        // hits without a build of their own are priced by the last build
+        stats.miss("ce-c", 30000);
+        assertEquals(60000, stats.getSaved());
+        stats.hit("ce-c");
+        assertEquals(90000, stats.getSaved());
+        assertTrue(stats.toString(), stats.toString().contains("3 hits, 1 misses, ~1min 30s saved"));
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.jboss.arquillian.ce.spi.WebSPIConfiguration;
+import org.jboss.arquillian.ce.utils.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class RegistryClientTest {
+    private static final String DIGEST = "sha256:0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    private ServerSocket server;
+    private String host;
+    // scheme of each request, a TLS handshake is turned down straight away
+    private final List<String> schemes = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        host = "127.0.0.1:" + server.getLocalPort();
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                while (server.isClosed() == false) {
+                    try (Socket socket = server.accept()) {
+                        handle(socket);
+                    } catch (IOException ignore) {
+                    }
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void handle(Socket socket) throws IOException {
+        InputStream in = socket.getInputStream();
+        int first = in.read();
+        if (first == 0x16) {
+            schemes.add("https");
+            return;
+        }
+        schemes.add("http");
+        StringBuilder request = new StringBuilder().append((char) first);
+        while (request.indexOf("\r\n\r\n") < 0) {
+            int b = in.read();
+            if (b < 0) {
+                return;
+            }
+            request.append((char) b);
+        }
+        String path = request.toString().split(" ")[1];
+        String status = path.equals("/v2/base/eap/manifests/1.0") ? "200 OK" : "404 Not Found";
+        OutputStream out = socket.getOutputStream();
+        out.write(String.format("HTTP/1.1 %s\r\nDocker-Content-Digest: %s\r\nContent-Length: 0\r\nConnection: close\r\n\r\n", status, DIGEST).getBytes("UTF-8"));
+        out.flush();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void testInternalRegistryOverHttpByDefault() {
+        Configuration configuration = new WebSPIConfiguration();
+        assertEquals(RegistryClient.INTERNAL, configuration.getInsecureRegistries());
+        RegistryClient client = new RegistryClient(configuration);
+        // not the registry we push to, so https
+        assertFalse(client.manifestExists(host, "base/eap", "1.0"));
+        assertEquals("https", schemes.get(0));
+        client.addTarget(host);
+        assertTrue(client.manifestExists(host, "base/eap", "1.0"));
+        assertFalse(client.manifestExists(host, "base/eap", "2.0"));
+        assertEquals("http", schemes.get(schemes.size() - 1));
+    }
+
+    @Test
+    public void testExplicitInsecureRegistries() {
+        Configuration configuration = new WebSPIConfiguration();
+        configuration.setInsecureRegistries("registry.example.com, " + host);
+        assertEquals(DIGEST, new RegistryClient(configuration).resolveDigest(host + "/base/eap:1.0"));
+        assertNull(new RegistryClient(configuration).resolveDigest(host + "/base/eap:2.0"));
+
+        configuration.setInsecureRegistries(null);
+        RegistryClient secure = new RegistryClient(configuration);
+        secure.addTarget(host);
+        assertNull(secure.resolveDigest(host + "/base/eap:1.0"));
+        assertEquals("https", schemes.get(schemes.size() - 1));
+    }
+
+    @Test
+    public void testImageReference() {
+        RegistryClient.ImageReference ref = RegistryClient.ImageReference.parse("registry.example.com:5000/jboss/eap@sha256:abc");
+        assertEquals("registry.example.com:5000", ref.host);
+        assertEquals("jboss/eap", ref.repository);
+        assertEquals("sha256:abc", ref.reference);
+
+        ref = RegistryClient.ImageReference.parse("centos");
+        assertEquals(RegistryClient.DOCKER_HUB, ref.host);
+        assertEquals("library/centos", ref.repository);
+        assertEquals("latest", ref.reference);
+
+        ref = RegistryClient.ImageReference.parse("jboss/wildfly:10.1.0.Final");
+        assertEquals(RegistryClient.DOCKER_HUB, ref.host);
+        assertEquals("jboss/wildfly", ref.repository);
+        assertEquals("10.1.0.Final", ref.reference);
+    }
+}
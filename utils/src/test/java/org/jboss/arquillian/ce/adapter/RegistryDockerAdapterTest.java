@@ -0,0 +1,221 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.jboss.arquillian.ce.spi.WebSPIConfiguration;
+import org.jboss.arquillian.ce.utils.Configuration;
+import org.jboss.arquillian.ce.utils.RegistryLookup;
+import org.jboss.dmr.ModelNode;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class RegistryDockerAdapterTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String REPOSITORY = "cetestimage/app-test";
+
+    private TestRegistry registry;
+    private Configuration configuration;
+    private String baseLayer;
+
+    @Before
+    public void setUp() throws Exception {
+        registry = new TestRegistry();
+
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream stream = new TarArchiveOutputStream(new GZIPOutputStream(tar))) {
+            byte[] content = "base".getBytes(UTF_8);
+            TarArchiveEntry entry = new TarArchiveEntry("opt/eap/README");
+            entry.setSize(content.length);
+            stream.putArchiveEntry(entry);
+            stream.write(content);
+            stream.closeArchiveEntry();
+        }
+        baseLayer = registry.putBlob("base/eap", tar.toByteArray());
+
+        ModelNode config = new ModelNode();
+        config.get("architecture").set("amd64");
+        config.get("config", "Env").add("PATH=/usr/bin");
+        config.get("rootfs", "type").set("layers");
+        config.get("rootfs", "diff_ids").add("sha256:unused");
+        byte[] configBytes = config.toJSONString(true).getBytes(UTF_8);
+        String configDigest = registry.putBlob("base/eap", configBytes);
+
+        ModelNode manifest = new ModelNode();
+        manifest.get("schemaVersion").set(2);
+        manifest.get("mediaType").set(RegistryClient.MANIFEST_V2);
+        manifest.get("config", "mediaType").set(RegistryClient.CONFIG_V1);
+        manifest.get("config", "size").set(configBytes.length);
+        manifest.get("config", "digest").set(configDigest);
+        ModelNode layer = manifest.get("layers").add();
+        layer.get("mediaType").set(RegistryClient.LAYER_GZIP);
+        layer.get("size").set(tar.size());
+        layer.get("digest").set(baseLayer);
+        registry.putManifest("base/eap", "1.0", manifest.toJSONString(true).getBytes(UTF_8));
+
+        configuration = new WebSPIConfiguration();
+        configuration.setNamespace("test");
+    }
+
+    @After
+    public void tearDown() {
+        registry.close();
+    }
+
+    private String push(String dockerfile) throws IOException {
+        RegistryDockerAdapter adapter = new RegistryDockerAdapter(configuration, new RegistryLookup() {
+            public RegistryLookupEntry lookup() {
+                String[] host = registry.getHost().split(":");
+                return new RegistryLookupEntry(host[0], host[1]);
+            }
+        });
+        WebArchive war = ShrinkWrap.create(WebArchive.class, "test.war").addAsWebResource(new StringAsset("hello"), "index.html");
+        String df = dockerfile.replace("BASE", registry.getHost() + "/base/eap:1.0");
+        DockerAdapterContext context = new DockerAdapterContext(null, new ByteArrayInputStream(df.getBytes(UTF_8)), war, new Properties(), "app-");
+        return adapter.buildAndPushImage(context);
+    }
+
+    private ModelNode json(byte[] bytes) {
+        return ModelNode.fromJSONString(new String(bytes, UTF_8));
+    }
+
+    private static List<String> entries(byte[] layer) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (TarArchiveInputStream tar = new TarArchiveInputStream(new GZIPInputStream(new ByteArrayInputStream(layer)))) {
+            TarArchiveEntry entry;
+            while ((entry = tar.getNextTarEntry()) != null) {
+                names.add(entry.getName());
+            }
+        }
+        return names;
+    }
+
+    private static List<String> strings(ModelNode list) {
+        List<String> strings = new ArrayList<>();
+        for (ModelNode node : list.asList()) {
+            strings.add(node.asString());
+        }
+        return strings;
+    }
+
+    @Test
+    public void testPush() throws Exception {
+        String image = push("FROM BASE\n" +
+            "ENV GREETING=\"hello world\" OPTS='-Dfoo=\"bar baz\"' ESCAPED=a\\ b\n" +
+            "ENV LEGACY some \"quoted\" value\n" +
+            "LABEL \"com.example.name\"=\"my app\"\n" +
+            "ADD test.war /opt/eap/standalone/deployments\n");
+        assertEquals(registry.getHost() + "/" + REPOSITORY + ":latest", image);
+
+        ModelNode manifest = json(registry.manifests.get(REPOSITORY + ":latest"));
+        List<ModelNode> layers = manifest.get("layers").asList();
+        assertEquals(2, layers.size());
+        // base layer mounted, not copied through the client
+        assertEquals(baseLayer, layers.get(0).get("digest").asString());
+        assertTrue(registry.mounts.contains(REPOSITORY + "@" + baseLayer));
+
+        // a destination without an extension is the dir, not the file's new name
+        byte[] layer = registry.blobs.get(layers.get(1).get("digest").asString());
+        assertEquals(layers.get(1).get("size").asInt(), layer.length);
+        assertTrue(entries(layer).toString(), entries(layer).contains("opt/eap/standalone/deployments/test.war"));
+
+        ModelNode config = json(registry.blobs.get(manifest.get("config", "digest").asString()));
+        List<String> env = strings(config.get("config", "Env"));
+        assertTrue(env.toString(), env.contains("PATH=/usr/bin"));
+        assertTrue(env.toString(), env.contains("GREETING=hello world"));
+        assertTrue(env.toString(), env.contains("OPTS=-Dfoo=\"bar baz\""));
+        assertTrue(env.toString(), env.contains("ESCAPED=a b"));
+        assertTrue(env.toString(), env.contains("LEGACY=some quoted value"));
+        assertEquals("my app", config.get("config", "Labels", "com.example.name").asString());
+        assertEquals(2, config.get("rootfs", "diff_ids").asList().size());
+    }
+
+    @Test
+    public void testExplicitFileName() throws Exception {
+        push("FROM BASE\nCOPY test.war /opt/webserver/webapps/ROOT.war\n");
+        ModelNode manifest = json(registry.manifests.get(REPOSITORY + ":latest"));
+        byte[] layer = registry.blobs.get(manifest.get("layers").asList().get(1).get("digest").asString());
+        assertEquals(1, entries(layer).size());
+        assertEquals("opt/webserver/webapps/ROOT.war", entries(layer).get(0));
+    }
+
+    @Test
+    public void testSplitForTomcat() throws Exception {
+        configuration.setImageLayout(DeploymentLayout.SPLIT);
+        push("FROM BASE\nADD test.war /opt/webserver/webapps/\n");
+        ModelNode manifest = json(registry.manifests.get(REPOSITORY + ":latest"));
+        List<ModelNode> layers = manifest.get("layers").asList();
+        assertEquals(2, layers.size()); // no libraries, so base and application
+        List<String> entries = entries(registry.blobs.get(layers.get(1).get("digest").asString()));
+        assertTrue(entries.toString(), entries.contains("opt/webserver/webapps/test/index.html"));
+        for (String entry : entries) {
+            assertTrue(entry, entry.startsWith("opt/webserver/webapps/test/"));
+        }
+    }
+
+    @Test
+    public void testContentTagReused() throws Exception {
+        configuration.setContentTag(true);
+        String dockerfile = "FROM BASE\nADD test.war /opt/eap/standalone/deployments/\n";
+        String image = push(dockerfile);
+        assertTrue(image, image.contains(":ce-"));
+        assertEquals(1, registry.pushes.get());
+
+        assertEquals(image, push(dockerfile));
+        assertEquals(1, registry.pushes.get());
+    }
+
+    @Test
+    public void testUnterminatedQuote() throws Exception {
+        try {
+            push("FROM BASE\nENV A=\"b\nADD test.war /opt/eap/standalone/deployments/\n");
+            fail("Expected unterminated quote");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("Unterminated"));
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Plain http registry with the v2 API subset of registry:2 the builders use:
+ * manifests by tag or digest, blobs linked per repository, monolithic uploads and cross repository mounts.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+class TestRegistry implements Closeable {
+    private final HttpServer server;
+    final Map<String, byte[]> blobs = new ConcurrentHashMap<>();
+    final Map<String, byte[]> manifests = new ConcurrentHashMap<>(); // repository:reference
+    final Set<String> links = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>()); // repository@digest
+    final Set<String> mounts = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    final AtomicInteger pushes = new AtomicInteger(); // manifest PUTs
+    private final Set<String> uploads = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    TestRegistry() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v2/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    TestRegistry.this.handle(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+    }
+
+    String getHost() {
+        return "127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    String putBlob(String repository, byte[] bytes) {
+        String digest = AbstractDockerAdapter.sha256(bytes);
+        blobs.put(digest, bytes);
+        links.add(repository + "@" + digest);
+        return digest;
+    }
+
+    void putManifest(String repository, String reference, byte[] manifest) {
+        manifests.put(repository + ":" + reference, manifest);
+        manifests.put(repository + ":" + AbstractDockerAdapter.sha256(manifest), manifest);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        URI uri = exchange.getRequestURI();
+        String path = uri.getPath().substring("/v2/".length());
+        String method = exchange.getRequestMethod();
+        int p;
+        if ((p = path.indexOf("/blobs/uploads/")) > 0) {
+            String repository = path.substring(0, p);
+            String upload = path.substring(p + "/blobs/uploads/".length());
+            Map<String, String> query = query(uri);
+            if ("POST".equals(method)) {
+                String digest = query.get("mount");
+                if (digest != null && links.contains(query.get("from") + "@" + digest)) {
+                    links.add(repository + "@" + digest);
+                    mounts.add(repository + "@" + digest);
+                    send(exchange, 201, null, null);
+                    return;
+                }
+                String id = UUID.randomUUID().toString();
+                uploads.add(id);
+                exchange.getResponseHeaders().set("Location", "/v2/" + repository + "/blobs/uploads/" + id);
+                send(exchange, 202, null, null);
+            } else if ("PUT".equals(method) && uploads.remove(upload)) {
+                byte[] bytes = read(exchange.getRequestBody());
+                if (AbstractDockerAdapter.sha256(bytes).equals(query.get("digest")) == false) {
+                    send(exchange, 400, null, null); // DIGEST_INVALID
+                    return;
+                }
+                putBlob(repository, bytes);
+                send(exchange, 201, null, null);
+            } else {
+                send(exchange, 404, null, null);
+            }
+        } else if ((p = path.indexOf("/blobs/")) > 0) {
+            String key = path.substring(0, p) + "@" + path.substring(p + "/blobs/".length());
+            String digest = path.substring(p + "/blobs/".length());
+            send(exchange, links.contains(key) ? 200 : 404, links.contains(key) ? blobs.get(digest) : null, "application/octet-stream");
+        } else if ((p = path.indexOf("/manifests/")) > 0) {
+            String key = path.substring(0, p) + ":" + path.substring(p + "/manifests/".length());
+            if ("PUT".equals(method)) {
+                pushes.incrementAndGet();
+                putManifest(path.substring(0, p), path.substring(p + "/manifests/".length()), read(exchange.getRequestBody()));
+                send(exchange, 201, null, null);
+                return;
+            }
+            byte[] manifest = manifests.get(key);
+            if (manifest != null) {
+                exchange.getResponseHeaders().set("Docker-Content-Digest", AbstractDockerAdapter.sha256(manifest));
+            }
+            send(exchange, (manifest != null) ? 200 : 404, manifest, RegistryClient.MANIFEST_V2);
+        } else {
+            send(exchange, 404, null, null);
+        }
+    }
+
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> query = new ConcurrentHashMap<>();
+        if (uri.getQuery() != null) {
+            for (String pair : uri.getQuery().split("&")) {
+                int p = pair.indexOf('=');
+                query.put(pair.substring(0, p), pair.substring(p + 1));
+            }
+        }
+        return query;
+    }
+
+    private static byte[] read(InputStream stream) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        AbstractDockerAdapter.copy(stream, baos);
+        return baos.toByteArray();
+    }
+
+    private static void send(HttpExchange exchange, int code, byte[] body, String type) throws IOException {
+        if (type != null && body != null) {
+            exchange.getResponseHeaders().set("Content-Type", type);
+        }
+        boolean head = "HEAD".equals(exchange.getRequestMethod());
+        if (body == null || head) {
+            if (body != null) {
+                exchange.getResponseHeaders().set("Content-Length", String.valueOf(body.length));
+            }
+            exchange.sendResponseHeaders(code, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class InformerTest {
+    private final List<String> server = new ArrayList<>(Arrays.asList("app-1", "db-1"));
+    private WatchListener<String> watcher;
+
+    private Informer<String> createInformer() {
+        return new Informer<>("test", new Informer.Source<String>() {
+            public String getName(String resource) {
+                return resource;
+            }
+
+            public Map<String, String> getLabels(String resource) {
+                return Collections.emptyMap();
+            }
+
+            public List<String> list() {
+                return new ArrayList<>(server);
+            }
+
+            public Closeable watch(WatchListener<String> listener) {
+                watcher = listener;
+                return new Closeable() {
+                    public void close() {
+                    }
+                };
+            }
+        }, 1000);
+    }
+
+    @Test
+    public void testDeletedEventEvicts() throws Exception {
+        Informer<String> informer = createInformer();
+        try {
+            assertEquals("app-1", informer.findFirst("app"));
+
+            server.remove("app-1");
+            watcher.onEvent("app-1", true);
+            assertNull(informer.findFirst("app"));
+            assertEquals(Collections.singletonList("db-1"), informer.select(null));
+            assertEquals(1, informer.getMisses()); // only the initial list
+        } finally {
+            informer.close();
+        }
+    }
+
+    @Test
+    public void testEvict() throws Exception {
+        Informer<String> informer = createInformer();
+        try {
+            assertEquals(Arrays.asList("app-1", "db-1"), informer.select(null));
+
+            // deletion event missed, the caller found out from the server
+            server.remove("app-1");
+            informer.evict("app-1");
+            assertNull(informer.get("app-1"));
+            assertEquals(Collections.singletonList("db-1"), informer.select(null));
+        } finally {
+            informer.close();
+        }
+    }
+}
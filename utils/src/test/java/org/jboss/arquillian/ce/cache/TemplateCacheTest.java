@@ -0,0 +1,150 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class TemplateCacheTest {
+    private HttpServer server;
+    private File dir;
+    private volatile String content = "v1";
+    private final AtomicInteger downloads = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        dir = File.createTempFile("template-cache", "");
+        if (dir.delete() == false || dir.mkdirs() == false) {
+            throw new IOException("Cannot create " + dir);
+        }
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/template.json", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                String etag = "\"" + content + "\"";
+                if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    notModified.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                } else {
+                    downloads.incrementAndGet();
+                    byte[] body = content.getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("ETag", etag);
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        dir.delete();
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/template.json";
+    }
+
+    private static String read(InputStream stream) throws IOException {
+        try (InputStream is = stream) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            byte[] buffer = new byte[256];
+            int n;
+            while ((n = is.read(buffer)) != -1) {
+                baos.write(buffer, 0, n);
+            }
+            return new String(baos.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void testRevalidatedOnEveryUse() throws Exception {
+        TemplateCache cache = new TemplateCache(dir, false, 0);
+        assertEquals("v1", read(cache.openStream(url())));
+        assertEquals("v1", read(cache.openStream(url())));
+        assertEquals(1, downloads.get());
+        assertEquals(1, notModified.get());
+
+        content = "v2";
+        assertEquals("v2", read(cache.openStream(url())));
+        assertEquals(2, downloads.get());
+    }
+
+    @Test
+    public void testDiskCopyRevalidated() throws Exception {
+        assertEquals("v1", read(new TemplateCache(dir, false, 300).openStream(url())));
+
+        // a new JVM does not trust the disk copy without asking
+        content = "v2";
+        assertEquals("v2", read(new TemplateCache(dir, false, 300).openStream(url())));
+        assertEquals(2, downloads.get());
+    }
+
+    @Test
+    public void testOffline() throws Exception {
+        try {
+            new TemplateCache(dir, true, 0).openStream(url());
+            fail("Nothing cached yet");
+        } catch (IOException expected) {
+        }
+
+        assertEquals("v1", read(new TemplateCache(dir, false, 0).openStream(url())));
+        content = "v2";
+        assertEquals("v1", read(new TemplateCache(dir, true, 0).openStream(url())));
+        assertEquals(1, downloads.get());
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jboss.arquillian.ce.spi.WebSPIConfiguration;
+import org.jboss.arquillian.ce.utils.Configuration;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class AbstractProxyTest {
+    private static final int THREADS = 16;
+
+    /**
+     * Call task from many threads at once.
+     *
+     * @return results, one per thread
+     */
+    static <T> List<T> race(final Callable<T> task) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(new Callable<T>() {
+                    public T call() throws Exception {
+                        start.await();
+                        return task.call();
+                    }
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static TestProxy createProxy() {
+        Configuration configuration = new WebSPIConfiguration();
+        configuration.setKubernetesMaster("http://127.0.0.1:1");
+        configuration.setNamespace("test");
+        configuration.setTransports("podip,proxy");
+        return new TestProxy(configuration);
+    }
+
+    @Test
+    public void testTransportsCreatedOnce() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            final TestProxy proxy = createProxy();
+            try {
+                List<List<Transport>> results = race(new Callable<List<Transport>>() {
+                    public List<Transport> call() {
+                        return proxy.getTransports();
+                    }
+                });
+                for (List<Transport> transports : results) {
+                    assertSame(results.get(0), transports);
+                }
+                assertEquals(2, results.get(0).size());
+            } finally {
+                proxy.close();
+            }
+        }
+    }
+
+    @Test
+    public void testInformerCreatedOnce() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            final TestProxy proxy = createProxy();
+            try {
+                List<Object> results = race(new Callable<Object>() {
+                    public Object call() {
+                        return proxy.getInformer();
+                    }
+                });
+                for (Object informer : results) {
+                    assertSame(results.get(0), informer);
+                }
+            } finally {
+                proxy.close();
+            }
+        }
+    }
+}
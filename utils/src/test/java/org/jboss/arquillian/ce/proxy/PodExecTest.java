@@ -0,0 +1,245 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okio.ByteString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs PodExec against a minimal websocket server, which plays the API server's part.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class PodExecTest {
+    private static final String GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private ServerSocket server;
+    private volatile String offered;
+    private volatile Exception serverFailure;
+
+    private interface Script {
+        void run(Connection connection) throws Exception;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    private Integer exec(final String protocol, final Script script, InputStream in, OutputStream out, OutputStream err) throws Exception {
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                try (Socket socket = server.accept()) {
+                    Connection connection = new Connection(socket);
+                    offered = connection.handshake(protocol);
+                    script.run(connection);
+                } catch (Exception e) {
+                    serverFailure = e;
+                }
+            }
+        });
+        thread.start();
+
+        OkHttpClient client = new OkHttpClient.Builder().readTimeout(0, TimeUnit.SECONDS).build();
+        String url = "http://127.0.0.1:" + server.getLocalPort() + "/api/v1/namespaces/test/pods/pod/exec";
+        Integer exitCode = new PodExec("pod", in, out, err).run(client, url, 10);
+        thread.join(10000);
+        if (serverFailure != null) {
+            throw serverFailure;
+        }
+        return exitCode;
+    }
+
+    @Test
+    public void testStatusChannel() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        Integer exitCode = exec(PodExec.PROTOCOL, new Script() {
+            public void run(Connection connection) throws Exception {
+                connection.send(1, "hello");
+                connection.send(2, "oops");
+                connection.send(3, "{\"status\":\"Failure\",\"details\":{\"causes\":[{\"reason\":\"ExitCode\",\"message\":\"3\"}]}}");
+            }
+        }, null, out, err);
+
+        assertEquals(Integer.valueOf(3), exitCode);
+        assertEquals("hello", out.toString("UTF-8"));
+        assertEquals("oops", err.toString("UTF-8"));
+        assertEquals(PodExec.PROTOCOL + ", " + PodExec.LEGACY_PROTOCOL, offered);
+    }
+
+    @Test
+    public void testLegacyProtocol() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Integer exitCode = exec(PodExec.LEGACY_PROTOCOL, new Script() {
+            public void run(Connection connection) throws Exception {
+                connection.send(1, "hi");
+                connection.close();
+            }
+        }, null, out, new ByteArrayOutputStream());
+
+        assertEquals(Integer.valueOf(0), exitCode);
+        assertEquals("hi", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void testLegacyExitCode() throws Exception {
+        Integer exitCode = exec(PodExec.LEGACY_PROTOCOL, new Script() {
+            public void run(Connection connection) throws Exception {
+                connection.send(3, "command terminated with non-zero exit code: Error executing in Docker Container: 2");
+                connection.close();
+            }
+        }, null, new ByteArrayOutputStream(), new ByteArrayOutputStream());
+
+        assertEquals(Integer.valueOf(2), exitCode);
+    }
+
+    @Test
+    public void testStdin() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream in = new ByteArrayInputStream("ping".getBytes(StandardCharsets.UTF_8));
+        Integer exitCode = exec(PodExec.PROTOCOL, new Script() {
+            public void run(Connection connection) throws Exception {
+                byte[] frame = connection.receive();
+                assertEquals(0, frame[0]); // stdin channel
+                connection.send(1, new String(frame, 1, frame.length - 1, StandardCharsets.UTF_8));
+                connection.send(3, "{\"status\":\"Success\"}");
+            }
+        }, in, out, new ByteArrayOutputStream());
+
+        assertEquals(Integer.valueOf(0), exitCode);
+        assertEquals("ping", out.toString("UTF-8"));
+    }
+
+    private static class Connection {
+        private final DataInputStream in;
+        private final OutputStream out;
+
+        private Connection(Socket socket) throws IOException {
+            this.in = new DataInputStream(socket.getInputStream());
+            this.out = socket.getOutputStream();
+        }
+
+        /**
+         * @return offered subprotocols
+         */
+        private String handshake(String protocol) throws IOException {
+            Map<String, String> headers = new HashMap<>();
+            String line;
+            while ((line = readLine()).isEmpty() == false) {
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+                }
+            }
+            String accept = ByteString.encodeUtf8(headers.get("sec-websocket-key") + GUID).sha1().base64();
+            String response = "HTTP/1.1 101 Switching Protocols\r\n" +
+                "Upgrade: websocket\r\n" +
+                "Connection: Upgrade\r\n" +
+                "Sec-WebSocket-Accept: " + accept + "\r\n" +
+                "Sec-WebSocket-Protocol: " + protocol + "\r\n\r\n";
+            out.write(response.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            return headers.get("sec-websocket-protocol");
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder builder = new StringBuilder();
+            int c;
+            while ((c = in.read()) != '\n') {
+                if (c < 0) {
+                    throw new IOException("Connection closed.");
+                }
+                if (c != '\r') {
+                    builder.append((char) c);
+                }
+            }
+            return builder.toString();
+        }
+
+        private void send(int channel, String text) throws IOException {
+            byte[] data = text.getBytes(StandardCharsets.UTF_8);
+            byte[] payload = new byte[data.length + 1];
+            payload[0] = (byte) channel;
+            System.arraycopy(data, 0, payload, 1, data.length);
+            frame(0x82, payload);
+        }
+
+        private void close() throws IOException {
+            frame(0x88, new byte[]{0x03, (byte) 0xE8}); // 1000
+        }
+
+        private void frame(int opcode, byte[] payload) throws IOException {
+            assertTrue(payload.length < 126);
+            out.write(opcode);
+            out.write(payload.length);
+            out.write(payload);
+            out.flush();
+        }
+
+        /**
+         * @return payload of the next client (masked) frame
+         */
+        private byte[] receive() throws IOException {
+            in.readUnsignedByte(); // fin + opcode
+            int length = in.readUnsignedByte() & 0x7F;
+            if (length == 126) {
+                length = in.readUnsignedShort();
+            }
+            byte[] mask = new byte[4];
+            in.readFully(mask);
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            for (int i = 0; i < length; i++) {
+                payload[i] ^= mask[i % 4];
+            }
+            return payload;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.proxy;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.net.ssl.SSLContext;
+
+import okhttp3.OkHttpClient;
+import org.jboss.arquillian.ce.cache.WatchListener;
+import org.jboss.arquillian.ce.utils.Configuration;
+
+/**
+ * Proxy over an in-memory pod list, API calls go to the configured master.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+class TestProxy extends AbstractProxy<TestProxy.Pod> {
+    final List<Pod> pods = new ArrayList<>();
+    private volatile OkHttpClient httpClient;
+
+    TestProxy(Configuration configuration) {
+        super(configuration);
+    }
+
+    TestProxy addPod(String name, String ip, Map<String, String> labels) {
+        pods.add(new Pod(name, ip, labels));
+        return this;
+    }
+
+    public SSLContext getSSLContext() {
+        return null;
+    }
+
+    protected OkHttpClient getHttpClient() {
+        OkHttpClient current = httpClient;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (httpClient == null) {
+                httpClient = new OkHttpClient();
+            }
+            return httpClient;
+        }
+    }
+
+    protected List<Pod> listPods(Map<String, String> labels) {
+        List<Pod> result = new ArrayList<>();
+        for (Pod pod : pods) {
+            if (matches(pod.labels, labels)) {
+                result.add(pod);
+            }
+        }
+        return result;
+    }
+
+    protected Closeable watchPods(Map<String, String> labels, WatchListener<Pod> listener) {
+        return new Closeable() {
+            public void close() {
+            }
+        };
+    }
+
+    protected String getName(Pod pod) {
+        return pod.name;
+    }
+
+    protected Map<String, String> getLabels(Pod pod) {
+        return pod.labels;
+    }
+
+    protected boolean isReady(Pod pod) {
+        return true;
+    }
+
+    protected String getIP(Pod pod) {
+        return pod.ip;
+    }
+
+    static class Pod {
+        private final String name;
+        private final String ip;
+        private final Map<String, String> labels;
+
+        private Pod(String name, String ip, Map<String, String> labels) {
+            this.name = name;
+            this.ip = ip;
+            this.labels = (labels != null) ? labels : new HashMap<String, String>();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.jboss.arquillian.ce.spi.WebSPIConfiguration;
+import org.jboss.arquillian.ce.utils.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class TransportsTest {
+    private HttpServer master;
+    private HttpServer pod;
+    private final AtomicInteger proxied = new AtomicInteger();
+    private final AtomicInteger direct = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        master = server("via proxy", proxied);
+        pod = server("via pod", direct);
+    }
+
+    @After
+    public void tearDown() {
+        master.stop(0);
+        pod.stop(0);
+    }
+
+    private static HttpServer server(final String body, final AtomicInteger hits) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                hits.incrementAndGet();
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private TestProxy createProxy(String transports) {
+        Configuration configuration = new WebSPIConfiguration();
+        configuration.setKubernetesMaster("http://127.0.0.1:" + master.getAddress().getPort());
+        configuration.setNamespace("test");
+        configuration.setTransports(transports);
+        return new TestProxy(configuration).addPod("pod-1", "127.0.0.1", null);
+    }
+
+    private static String read(InputStream stream) {
+        try (Scanner scanner = new Scanner(stream, "UTF-8")) {
+            return scanner.useDelimiter("\\A").next();
+        }
+    }
+
+    @Test
+    public void testTransportOrder() throws Exception {
+        TestProxy proxy = createProxy("podip,proxy");
+        try {
+            assertEquals("via pod", read(proxy.post("pod-1", pod.getAddress().getPort(), "/test")));
+            assertEquals(0, proxied.get());
+        } finally {
+            proxy.close();
+        }
+
+        proxy = createProxy("proxy,podip");
+        try {
+            assertEquals("via proxy", read(proxy.post("pod-1", pod.getAddress().getPort(), "/test")));
+            assertEquals(1, direct.get());
+        } finally {
+            proxy.close();
+        }
+    }
+
+    @Test
+    public void testFallbackOnConnectFailure() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"))) {
+            closedPort = socket.getLocalPort();
+        }
+
+        TestProxy proxy = createProxy("podip,proxy");
+        try {
+            assertEquals("via proxy", read(proxy.post("pod-1", closedPort, "/test")));
+            assertEquals(1, proxied.get());
+        } finally {
+            proxy.close();
+        }
+    }
+
+    @Test
+    public void testNoFallbackOnceSent() throws Exception {
+        // accepts and hangs up, as if the pod died while running the request
+        final ServerSocket hangUp = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                while (hangUp.isClosed() == false) {
+                    try (Socket socket = hangUp.accept()) {
+                        //noinspection ResultOfMethodCallIgnored
+                        socket.getInputStream().read();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+
+        TestProxy proxy = createProxy("podip,proxy");
+        try {
+            proxy.post("pod-1", hangUp.getLocalPort(), "/test");
+            fail("Request reached the pod, it must not be re-sent");
+        } catch (IOException e) {
+            assertFalse(AbstractProxy.isConnectFailure(e));
+            assertEquals(0, proxied.get());
+        } finally {
+            proxy.close();
+            hangUp.close();
+        }
+    }
+
+    @Test
+    public void testNoUsableTransport() throws Exception {
+        TestProxy proxy = createProxy("podip");
+        proxy.pods.clear(); // no pod IP known
+        try {
+            proxy.post("pod-1", 8080, "/test");
+            fail("No transport can reach the pod");
+        } catch (IllegalStateException expected) {
+        } finally {
+            proxy.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownTransport() throws Exception {
+        createProxy("podip,carrier-pigeon").getTransports();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.resources;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class ResourceBatchTest {
+
+    @Test
+    public void testTopLevelKind() throws Exception {
+        assertEquals(Arrays.asList("Secret"), ResourceBatch.kinds("apiVersion: v1\nkind: Secret\nmetadata:\n  name: x\n"));
+        assertEquals(Arrays.asList("RoleBinding"), ResourceBatch.kinds("kind: RoleBinding\nroleRef:\n  kind: ClusterRole\n"));
+    }
+
+    @Test
+    public void testNestedKindIgnored() throws Exception {
+        String dc = "apiVersion: v1\n" +
+            "kind: DeploymentConfig\n" +
+            "spec:\n" +
+            "  triggers:\n" +
+            "  - type: ImageChange\n" +
+            "    imageChangeParams:\n" +
+            "      from:\n" +
+            "        kind: ImageStreamTag\n";
+        assertEquals(Arrays.asList("DeploymentConfig"), ResourceBatch.kinds(dc));
+
+        // nested kind first, as YAML key order is arbitrary
+        String sa = "metadata:\n  ownerReferences:\n  - kind: DeploymentConfig\nkind: ServiceAccount\n";
+        assertEquals(Arrays.asList("ServiceAccount"), ResourceBatch.kinds(sa));
+    }
+
+    @Test
+    public void testListItems() throws Exception {
+        String list = "apiVersion: v1\n" +
+            "kind: List\n" +
+            "items:\n" +
+            "- apiVersion: v1\n" +
+            "  kind: Secret\n" +
+            "  data:\n" +
+            "  - kind: Foo\n" +
+            "- kind: \"ConfigMap\"\n" +
+            "  metadata:\n" +
+            "    kind: Bar\n";
+        assertEquals(Arrays.asList("Secret", "ConfigMap"), ResourceBatch.kinds(list));
+
+        String template = "kind: Template\nobjects:\n  - metadata:\n      name: a\n    kind: ImageStream\n";
+        assertEquals(Arrays.asList("ImageStream"), ResourceBatch.kinds(template));
+    }
+
+    @Test
+    public void testJson() throws Exception {
+        String json = "{\"kind\": \"List\", \"items\": [" +
+            "{\"kind\": \"Secret\"}," +
+            "{\"spec\": {\"triggers\": [{\"imageChangeParams\": {\"from\": {\"kind\": \"ImageStreamTag\"}}}]}, \"kind\": \"DeploymentConfig\"}" +
+            "]}";
+        assertEquals(Arrays.asList("Secret", "DeploymentConfig"), ResourceBatch.kinds(json));
+    }
+
+    @Test
+    public void testStages() throws Exception {
+        ResourceBatch batch = new ResourceBatch();
+        batch.addResource("dc", stream("kind: DeploymentConfig\nspec:\n  triggers:\n  - imageChangeParams:\n      from:\n        kind: ImageStreamTag\n"));
+        batch.addResource("secret", stream("kind: Secret\n"));
+        batch.addRoleBinding("view", "default");
+        batch.addResource("rolebinding", stream("kind: RoleBinding\nroleRef:\n  kind: ClusterRole\n"));
+
+        List<List<ResourceBatch.Entry>> stages = batch.getStages();
+        assertEquals(3, stages.size());
+        assertEquals("[secret]", stages.get(0).toString());
+        assertEquals("[dc, rolebinding]", stages.get(1).toString());
+        assertEquals("[view / default]", stages.get(2).toString());
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.jboss.arquillian.ce.adapter.OpenShiftAdapter;
+import org.jboss.arquillian.ce.spi.WebSPIConfiguration;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class NamespacePoolTest {
+    private final List<String> created = new CopyOnWriteArrayList<>();
+    private final List<String> deleted = new CopyOnWriteArrayList<>();
+
+    private NamespacePool createPool(String policy) {
+        Configuration configuration = new WebSPIConfiguration();
+        configuration.setNamespacePoolSize(1);
+        configuration.setNamespacePoolPolicy(policy);
+        OpenShiftAdapter adapter = (OpenShiftAdapter) java.lang.reflect.Proxy.newProxyInstance(
+            getClass().getClassLoader(),
+            new Class[]{OpenShiftAdapter.class},
+            new InvocationHandler() {
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    if ("createProject".equals(method.getName())) {
+                        created.add((String) args[0]);
+                        return true;
+                    } else if ("deleteProject".equals(method.getName()) && args != null) {
+                        deleted.add((String) args[0]);
+                        return true;
+                    }
+                    return method.getReturnType() == boolean.class ? false : null;
+                }
+            });
+        return new NamespacePool(configuration, adapter);
+    }
+
+    private void awaitIdle(NamespacePool pool, int created) throws Exception {
+        long end = System.currentTimeMillis() + 10000;
+        while (pool.getIdleCount() < 1 && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(created, this.created.size());
+    }
+
+    @Test
+    public void testReuse() throws Exception {
+        NamespacePool pool = createPool(NamespacePool.REUSE);
+        awaitIdle(pool, 1);
+
+        String namespace = pool.lease();
+        pool.release(namespace);
+        assertEquals(namespace, pool.lease());
+        assertEquals(1, created.size());
+
+        pool.shutdown();
+        assertEquals(created, deleted);
+    }
+
+    @Test
+    public void testRetainedSkippedOnShutdown() throws Exception {
+        NamespacePool pool = createPool(NamespacePool.REUSE);
+        awaitIdle(pool, 1);
+
+        String retained = pool.lease();
+        pool.retain(retained);
+        awaitIdle(pool, 2); // replaced
+
+        String next = pool.lease();
+        assertFalse(retained.equals(next));
+
+        pool.shutdown();
+        assertFalse(deleted.contains(retained));
+        assertTrue(deleted.contains(next));
+    }
+}